@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.cosmos.client;
+
+import com.azure.cosmos.ConnectionMode;
+import com.azure.cosmos.ConsistencyLevel;
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * What a sampler thread pays to connect: building the settings key, leasing the shared client and looking
+ * up the shared container handle, with many threads doing so at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class ClientRegistryBenchmark {
+
+    private static final String ENDPOINT = "https://benchmark.documents.azure.com:443/";
+
+    private CosmosClientRegistry.Lease testLease;
+
+    @Setup
+    public void setup() {
+        CosmosAsyncClient client = mock(CosmosAsyncClient.class, withSettings().stubOnly());
+        CosmosAsyncDatabase database = mock(CosmosAsyncDatabase.class, withSettings().stubOnly());
+        when(client.getDatabase("benchmarkDatabase")).thenReturn(database);
+        when(database.getContainer("benchmarkContainer"))
+                .thenReturn(mock(CosmosAsyncContainer.class, withSettings().stubOnly()));
+        CosmosClientSettings settings = newSettings();
+        CosmosClientRegistry.register(settings, client);
+        // Held for the whole run, like a sampler's test lease, so the client is never closed in between
+        testLease = CosmosClientRegistry.acquire(settings);
+    }
+
+    @TearDown
+    public void tearDown() {
+        testLease.close();
+        CosmosClientRegistry.closeAll();
+    }
+
+    private static CosmosClientSettings newSettings() {
+        return new CosmosClientSettings(ENDPOINT, "benchmarkKey", ConnectionMode.DIRECT, ConsistencyLevel.SESSION);
+    }
+
+    @Benchmark
+    public CosmosAsyncContainer acquireAndRelease() {
+        try (CosmosClientRegistry.Lease lease = CosmosClientRegistry.acquire(newSettings())) {
+            return lease.getContainer("benchmarkDatabase", "benchmarkContainer");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the legacy text based diagnostics parser on the diagnostics of a multi-page query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiagnosticsParsingBenchmark {
+
+    private static final String PAGE_DIAGNOSTICS = "userAgent=azsdk-java-cosmos/4.28.0 Linux/5.15 JRE/11.0.16\n" +
+            " Retrieved Document Count                 :               9\n" +
+            " Retrieved Document Size                  :            3763 bytes\n" +
+            " Output Document Count                    :               9\n" +
+            " Output Document Size                     :            3820 bytes\n" +
+            " Index Utilization                        :          100.00 %\n" +
+            " Total Query Execution Time               :        0.190000 milliseconds\n" +
+            " Query Preparation Times Query Compilation Time : 0.030000 milliseconds\n" +
+            " Logical Plan Build Time : 0.000000 milliseconds\n" +
+            " Physical Plan Build Time : 0.000000 milliseconds\n" +
+            " Query Optimization Time : 0.000000 milliseconds\n" +
+            " Index Lookup Time : 0.000000 milliseconds\n" +
+            " Document Load Time : 0.030000 milliseconds\n" +
+            " Runtime Execution Times Query Engine Times : 0.010000 milliseconds\n" +
+            " Request Charge : 2.43 RUs";
+
+    @Param({"1", "10"})
+    public int pages;
+
+    private final CosmosDBSampler sampler = new CosmosDBSampler();
+    private List<String> diagnostics;
+
+    @Setup
+    public void setup() {
+        diagnostics = new ArrayList<>(pages);
+        for (int i = 0; i < pages; i++) {
+            diagnostics.add(PAGE_DIAGNOSTICS.replace("2.43", Double.toString(2.43 + i)));
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> parseDiagnostics() {
+        Map<String, String> diagnosticsData = new HashMap<>();
+        for (String page : diagnostics) {
+            sampler.processCosmosDiagnosticsData(page, diagnosticsData);
+        }
+        return diagnosticsData;
+    }
+}
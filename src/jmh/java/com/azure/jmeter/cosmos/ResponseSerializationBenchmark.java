@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.jmeter.samplers.SampleResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Cost of turning a sample's diagnostics into its response data: the original per-sample mapper and double
+ * {@code toString()}, against the single serialization the sampler now does with the shared mapper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    private Map<String, String> diagnosticsData;
+
+    @Setup
+    public void setup() {
+        diagnosticsData = new HashMap<>();
+        diagnosticsData.put("query", "SELECT * FROM c WHERE c.tenant = @tenant");
+        diagnosticsData.put("runID", "run-42");
+        diagnosticsData.put("queryType", "tenantScan");
+        diagnosticsData.put("PageCount", "3");
+        diagnosticsData.put("ItemCount", "30");
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        metrics.addRequestCharge(7.29);
+        metrics.writeTo(diagnosticsData);
+    }
+
+    @Benchmark
+    public SampleResult perSampleMapperTwoStrings() {
+        SampleResult result = new SampleResult();
+        JsonNode responseData = new ObjectMapper().valueToTree(diagnosticsData);
+        result.setSamplerData(responseData.toString());
+        result.setResponseData(responseData.toString(), UTF_8.name());
+        return result;
+    }
+
+    @Benchmark
+    public SampleResult sharedMapperBytes() throws JsonProcessingException {
+        SampleResult result = new SampleResult();
+        byte[] responseData = ItemTemplates.MAPPER.writeValueAsBytes(diagnosticsData);
+        result.setResponseData(responseData);
+        result.setSamplerData(new String(responseData, UTF_8));
+        return result;
+    }
+
+    @Benchmark
+    public SampleResult sharedMapperBytesWithoutSamplerData() throws JsonProcessingException {
+        SampleResult result = new SampleResult();
+        result.setResponseData(ItemTemplates.MAPPER.writeValueAsBytes(diagnosticsData));
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import com.azure.cosmos.client.CosmosDBTestUtils;
+import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.util.CosmosPagedFlux;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The whole of {@link CosmosDBSampler#sample} against a container that answers immediately, so what is measured
+ * is the sampler itself: request setup, page handling, metrics, histograms and result serialization.
+ * <p>
+ * The mocks are stub-only, which keeps Mockito from recording invocations, but their dispatch is still part of
+ * the numbers; compare runs with each other rather than reading them as absolute costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleBenchmark {
+
+    private static final Entry ENTRY = new Entry();
+
+    @Param({"1", "10"})
+    public int pages;
+
+    @Param({"true", "false"})
+    public boolean copySamplerData;
+
+    private CosmosDBSampler querySampler;
+    private CosmosDBSampler readSampler;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        CosmosAsyncClient client = stub(CosmosAsyncClient.class);
+        CosmosAsyncDatabase database = stub(CosmosAsyncDatabase.class);
+        CosmosAsyncContainer container = stub(CosmosAsyncContainer.class);
+        CosmosPagedFlux<JsonNode> flux = stub(CosmosPagedFlux.class);
+        FeedResponse<JsonNode> page = stub(FeedResponse.class);
+        CosmosItemResponse<JsonNode> item = stub(CosmosItemResponse.class);
+        when(client.getDatabase("benchmarkDatabase")).thenReturn(database);
+        when(database.getContainer("benchmarkContainer")).thenReturn(container);
+        when(container.queryItems(anyString(), any(CosmosQueryRequestOptions.class), eq(JsonNode.class)))
+                .thenReturn(flux);
+        when(flux.byPage(anyInt())).thenReturn(Flux.fromIterable(Collections.nCopies(pages, page)));
+        when(page.getResults()).thenReturn(Collections.nCopies(10, null));
+        when(page.getRequestCharge()).thenReturn(2.43);
+        when(container.readItem(anyString(), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(item));
+        when(item.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+        when(item.getRequestCharge()).thenReturn(1.0);
+        when(item.getDuration()).thenReturn(Duration.ofMillis(2));
+
+        querySampler = newSampler(client);
+        querySampler.setDrainMode(DrainMode.FULL.name());
+        readSampler = newSampler(client);
+        readSampler.setOperationType(OperationType.READ.name());
+        readSampler.setItemID("item1");
+        readSampler.setPartitionKeyValue("pk1");
+    }
+
+    private CosmosDBSampler newSampler(CosmosAsyncClient client) {
+        CosmosDBSampler sampler = new CosmosDBSampler();
+        sampler.setCosmosDBURI("https://benchmark.documents.azure.com:443/");
+        sampler.setCosmosDBKey("benchmarkKey");
+        sampler.setDatabaseName("benchmarkDatabase");
+        sampler.setContainerID("benchmarkContainer");
+        sampler.setCosmosDBQuery("SELECT * FROM c");
+        sampler.setRunID("benchmark");
+        sampler.setQueryType("benchmark");
+        sampler.setCopySamplerData(copySamplerData);
+        CosmosDBTestUtils.setCosmosClient(client, sampler.getCosmosDBURI(), sampler.getCosmosDBKey());
+        return sampler;
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    @Benchmark
+    public SampleResult query() {
+        return querySampler.sample(ENTRY);
+    }
+
+    @Benchmark
+    public SampleResult pointRead() {
+        return readSampler.sample(ENTRY);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.cosmos.client;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Cosmos DB clients of a test, one per distinct {@link CosmosClientSettings}.
+ * <p>
+ * Samplers pointing at different accounts, keys or connection settings each get their own client instead
+ * of tearing down the one other samplers are using. Clients are reference counted through {@link Lease}s
+ * and closed when the last lease on them is released. Each client is built and counted under a lock of its
+ * own, so building one client does not hold up samplers acquiring another.
+ */
+public final class CosmosClientRegistry {
+
+    private static final ConcurrentMap<CosmosClientSettings, ClientEntry> clients = new ConcurrentHashMap<>();
+
+    /**
+     * A client and its references, all guarded by the entry's own monitor. An entry is retired once its client
+     * is closed or could not be built; it is then no longer in the map, and acquiring starts over with a new one.
+     */
+    private static final class ClientEntry {
+        private final ConcurrentMap<String, CosmosAsyncContainer> containers = new ConcurrentHashMap<>();
+        private volatile CosmosAsyncClient client;
+        private int references;
+        private boolean retired;
+
+        private ClientEntry() {
+        }
+
+        private ClientEntry(CosmosAsyncClient client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * A reference to a shared client. Closing the lease releases the reference; closing it again does nothing.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final CosmosClientSettings settings;
+        private final ClientEntry entry;
+        private boolean closed;
+
+        private Lease(CosmosClientSettings settings, ClientEntry entry) {
+            this.settings = settings;
+            this.entry = entry;
+        }
+
+        public CosmosClientSettings getSettings() {
+            return settings;
+        }
+
+        public CosmosAsyncClient getClient() {
+            return entry.client;
+        }
+
+        /**
+         * @return the container handle shared by every lease on this client
+         */
+        public CosmosAsyncContainer getContainer(String databaseName, String containerID) {
+            return entry.containers.computeIfAbsent(databaseName + '/' + containerID,
+                    name -> entry.client.getDatabase(databaseName).getContainer(containerID));
+        }
+
+        @Override
+        public void close() {
+            synchronized (entry) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (--entry.references == 0 && !entry.retired) {
+                    retire(settings, entry);
+                }
+            }
+        }
+    }
+
+    private CosmosClientRegistry() {
+    }
+
+    /**
+     * Takes a reference to the client for {@code settings}, building it if no one holds one yet.
+     */
+    public static Lease acquire(CosmosClientSettings settings) {
+        while (true) {
+            ClientEntry entry = clients.computeIfAbsent(settings, key -> new ClientEntry());
+            synchronized (entry) {
+                if (entry.retired) {
+                    // Its last lease closed it after we looked it up
+                    continue;
+                }
+                if (entry.client == null) {
+                    try {
+                        entry.client = settings.buildClient();
+                    } catch (RuntimeException e) {
+                        entry.retired = true;
+                        clients.remove(settings, entry);
+                        throw e;
+                    }
+                }
+                entry.references++;
+                return new Lease(settings, entry);
+            }
+        }
+    }
+
+    /**
+     * @return the number of clients currently open
+     */
+    public static int size() {
+        return clients.size();
+    }
+
+    /**
+     * Closes every client regardless of outstanding leases.
+     */
+    public static void closeAll() {
+        clients.forEach((settings, entry) -> {
+            synchronized (entry) {
+                if (!entry.retired) {
+                    retire(settings, entry);
+                }
+            }
+        });
+    }
+
+    static void register(CosmosClientSettings settings, CosmosAsyncClient client) {
+        clients.put(settings, new ClientEntry(client));
+    }
+
+    /**
+     * Closes the client of an entry and removes the entry. The caller holds the entry's monitor.
+     */
+    private static void retire(CosmosClientSettings settings, ClientEntry entry) {
+        entry.retired = true;
+        clients.remove(settings, entry);
+        if (entry.client != null) {
+            entry.client.close();
+        }
+    }
+}
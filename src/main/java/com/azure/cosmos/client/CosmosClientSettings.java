@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.cosmos.client;
+
+import com.azure.cosmos.ConnectionMode;
+import com.azure.cosmos.ConsistencyLevel;
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosClientBuilder;
+import com.azure.cosmos.DirectConnectionConfig;
+import com.azure.cosmos.GatewayConnectionConfig;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Everything that determines how a {@link CosmosAsyncClient} is built. Two samplers with equal settings
+ * share one client in the {@link CosmosClientRegistry}.
+ */
+public final class CosmosClientSettings {
+    private final String endpoint;
+    private final String key;
+    private final ConnectionMode connectionMode;
+    private final ConsistencyLevel consistencyLevel;
+    private final int maxConnectionsPerEndpoint;
+    private final Duration idleEndpointTimeout;
+    private final List<String> preferredRegions;
+
+    /**
+     * Settings that leave the connection tuning and region routing to the SDK defaults.
+     */
+    public CosmosClientSettings(String endpoint, String key, ConnectionMode connectionMode,
+                                ConsistencyLevel consistencyLevel) {
+        this(endpoint, key, connectionMode, consistencyLevel, 0, null, Collections.emptyList());
+    }
+
+    /**
+     * @param maxConnectionsPerEndpoint the most connections per backend endpoint in direct mode, or the size of
+     *                                  the connection pool in gateway mode; 0 for the SDK default
+     * @param idleEndpointTimeout       how long an unused endpoint, or a gateway connection, is kept open;
+     *                                  null for the SDK default
+     * @param preferredRegions          the regions to route requests to, in order of preference
+     */
+    public CosmosClientSettings(String endpoint, String key, ConnectionMode connectionMode,
+                                ConsistencyLevel consistencyLevel, int maxConnectionsPerEndpoint,
+                                Duration idleEndpointTimeout, List<String> preferredRegions) {
+        this.endpoint = endpoint;
+        this.key = key;
+        this.connectionMode = connectionMode;
+        this.consistencyLevel = consistencyLevel;
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+        this.idleEndpointTimeout = idleEndpointTimeout;
+        this.preferredRegions = Collections.unmodifiableList(preferredRegions);
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public ConnectionMode getConnectionMode() {
+        return connectionMode;
+    }
+
+    public ConsistencyLevel getConsistencyLevel() {
+        return consistencyLevel;
+    }
+
+    public int getMaxConnectionsPerEndpoint() {
+        return maxConnectionsPerEndpoint;
+    }
+
+    public Duration getIdleEndpointTimeout() {
+        return idleEndpointTimeout;
+    }
+
+    public List<String> getPreferredRegions() {
+        return preferredRegions;
+    }
+
+    CosmosAsyncClient buildClient() {
+        CosmosClientBuilder builder = new CosmosClientBuilder()
+                .endpoint(endpoint)
+                .key(key)
+                .clientTelemetryEnabled(false)
+                .consistencyLevel(consistencyLevel);
+        if (connectionMode == ConnectionMode.GATEWAY) {
+            GatewayConnectionConfig gatewayConfig = GatewayConnectionConfig.getDefaultConfig();
+            if (maxConnectionsPerEndpoint > 0) {
+                gatewayConfig.setMaxConnectionPoolSize(maxConnectionsPerEndpoint);
+            }
+            if (idleEndpointTimeout != null) {
+                gatewayConfig.setIdleConnectionTimeout(idleEndpointTimeout);
+            }
+            builder.gatewayMode(gatewayConfig);
+        } else {
+            DirectConnectionConfig directConfig = DirectConnectionConfig.getDefaultConfig();
+            if (maxConnectionsPerEndpoint > 0) {
+                directConfig.setMaxConnectionsPerEndpoint(maxConnectionsPerEndpoint);
+            }
+            if (idleEndpointTimeout != null) {
+                directConfig.setIdleEndpointTimeout(idleEndpointTimeout);
+            }
+            builder.directMode(directConfig);
+        }
+        if (!preferredRegions.isEmpty()) {
+            builder.preferredRegions(preferredRegions);
+        }
+        return builder.buildAsyncClient();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CosmosClientSettings)) {
+            return false;
+        }
+        CosmosClientSettings other = (CosmosClientSettings) o;
+        return Objects.equals(endpoint, other.endpoint)
+                && Objects.equals(key, other.key)
+                && connectionMode == other.connectionMode
+                && consistencyLevel == other.consistencyLevel
+                && maxConnectionsPerEndpoint == other.maxConnectionsPerEndpoint
+                && Objects.equals(idleEndpointTimeout, other.idleEndpointTimeout)
+                && preferredRegions.equals(other.preferredRegions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(endpoint, key, connectionMode, consistencyLevel, maxConnectionsPerEndpoint,
+                idleEndpointTimeout, preferredRegions);
+    }
+
+    @Override
+    public String toString() {
+        // The key is deliberately left out so that it never ends up in a log.
+        return "CosmosClientSettings{endpoint=" + endpoint + ", connectionMode=" + connectionMode
+                + ", consistencyLevel=" + consistencyLevel + ", maxConnectionsPerEndpoint=" + maxConnectionsPerEndpoint
+                + ", idleEndpointTimeout=" + idleEndpointTimeout + ", preferredRegions=" + preferredRegions + '}';
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The histogram summaries of an earlier run, kept in a file as JSON lines, that later runs of the same
+ * runIDs and queryTypes are compared against to catch query performance regressions, for example after
+ * an indexing policy or query change.
+ * <p>
+ * A query regresses when its mean request charge or retrieved to output document ratio grows by more than
+ * a relative tolerance, its index utilization drops by more than a number of percentage points, or its p99
+ * latency grows by more than a relative tolerance. These compare the run as a whole. Single samples vary
+ * around the means, so they can only be checked against the p99 request charge and retrieved document count
+ * of the baseline, which few samples of an unchanged query exceed by more than the tolerance.
+ */
+public final class Baseline {
+
+    private static final Logger logger = LogManager.getLogger(Baseline.class);
+
+    private static final Map<String, Baseline> BASELINES = new ConcurrentHashMap<>();
+
+    private static final TypeReference<LinkedHashMap<String, String>> ROW = new TypeReference<>() {
+    };
+
+    private final Map<String, Map<String, String>> rows;
+    private final Tolerances tolerances;
+
+    /**
+     * How far a run may drift from the baseline before it counts as a regression.
+     */
+    public static final class Tolerances {
+        private final double requestCharge;
+        private final double documentRatio;
+        private final double indexUtilizationPoints;
+        private final double latency;
+
+        /**
+         * @param requestCharge          the allowed relative growth of the mean request charge, such as 0.1
+         * @param documentRatio          the allowed relative growth of the retrieved to output document ratio
+         * @param indexUtilizationPoints the allowed drop of index utilization, in percentage points
+         * @param latency                the allowed relative growth of p99 latency
+         */
+        public Tolerances(double requestCharge, double documentRatio, double indexUtilizationPoints,
+                          double latency) {
+            this.requestCharge = requestCharge;
+            this.documentRatio = documentRatio;
+            this.indexUtilizationPoints = indexUtilizationPoints;
+            this.latency = latency;
+        }
+    }
+
+    Baseline(List<Map<String, String>> summaries, Tolerances tolerances) {
+        this.rows = new HashMap<>();
+        for (Map<String, String> summary : summaries) {
+            // Warm-up and hot partition rows describe no query to compare
+            if (summary.containsKey(HistogramAggregator.LATENCY_P99)) {
+                rows.put(key(summary.get("runID"), summary.get("queryType")), summary);
+            }
+        }
+        this.tolerances = tolerances;
+    }
+
+    /**
+     * @return the baseline shared by all samplers comparing against {@code path}, which has no rows if the
+     *         file does not exist yet or cannot be read
+     */
+    public static Baseline forFile(String path, Tolerances tolerances) {
+        return BASELINES.computeIfAbsent(path, p -> {
+            try {
+                return new Baseline(read(Paths.get(p)), tolerances);
+            } catch (IOException e) {
+                logger.error("Failed to read baseline {}, nothing will be compared", p, e);
+                return new Baseline(Collections.emptyList(), tolerances);
+            }
+        });
+    }
+
+    public static void clearAll() {
+        BASELINES.clear();
+    }
+
+    private static List<Map<String, String>> read(Path path) throws IOException {
+        List<Map<String, String>> summaries = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return summaries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    summaries.add(ItemTemplates.MAPPER.readValue(line, ROW));
+                }
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Replaces the baseline file with the query summaries of this run.
+     */
+    public static void write(String path, List<Map<String, String>> summaries) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(path), UTF_8)) {
+            for (Map<String, String> summary : summaries) {
+                if (summary.containsKey(HistogramAggregator.LATENCY_P99)) {
+                    writer.write(ItemTemplates.MAPPER.writeValueAsString(summary));
+                    writer.write(System.lineSeparator());
+                }
+            }
+        }
+    }
+
+    private static String key(String runID, String queryType) {
+        return runID + '\u0000' + queryType;
+    }
+
+    /**
+     * @return true if there is nothing to compare against
+     */
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * Checks one sample against the p99 request charge and retrieved document count in the baseline of its
+     * runID and queryType, allowing the request charge and document ratio tolerances on top of them.
+     *
+     * @param hasQueryMetrics whether the retrieved document count is known, as it is only for queries
+     * @return why the sample regressed, or null if it did not or there is no baseline for it
+     */
+    public String checkSample(String runID, String queryType, double requestCharge, boolean hasQueryMetrics,
+                              long retrieved) {
+        Map<String, String> row = rows.get(key(runID, queryType));
+        if (row == null) {
+            return null;
+        }
+        List<String> regressions = new ArrayList<>();
+        checkGrowth(regressions, row, HistogramAggregator.REQUEST_CHARGE_P99, requestCharge,
+                tolerances.requestCharge);
+        if (hasQueryMetrics) {
+            checkGrowth(regressions, row, HistogramAggregator.RETRIEVED_DOCUMENT_COUNT_P99, retrieved,
+                    tolerances.documentRatio);
+        }
+        return regressions.isEmpty() ? null : String.join("; ", regressions);
+    }
+
+    /**
+     * Compares the summaries of a run with the baseline.
+     *
+     * @return one entry per regressed runID and queryType, with why it regressed
+     */
+    public Map<String, String> compare(List<Map<String, String>> summaries) {
+        Map<String, String> regressed = new LinkedHashMap<>();
+        for (Map<String, String> summary : summaries) {
+            Map<String, String> row = rows.get(key(summary.get("runID"), summary.get("queryType")));
+            if (row == null || !summary.containsKey(HistogramAggregator.LATENCY_P99)) {
+                continue;
+            }
+            List<String> regressions = new ArrayList<>();
+            checkGrowth(regressions, row, HistogramAggregator.REQUEST_CHARGE_MEAN,
+                    number(summary, HistogramAggregator.REQUEST_CHARGE_MEAN), tolerances.requestCharge);
+            checkGrowth(regressions, row, HistogramAggregator.RETRIEVED_TO_OUTPUT_RATIO,
+                    number(summary, HistogramAggregator.RETRIEVED_TO_OUTPUT_RATIO), tolerances.documentRatio);
+            checkDrop(regressions, row, HistogramAggregator.INDEX_UTILIZATION,
+                    number(summary, HistogramAggregator.INDEX_UTILIZATION), tolerances.indexUtilizationPoints);
+            checkGrowth(regressions, row, HistogramAggregator.LATENCY_P99,
+                    number(summary, HistogramAggregator.LATENCY_P99), tolerances.latency);
+            if (!regressions.isEmpty()) {
+                regressed.put(summary.get("runID") + "/" + summary.get("queryType"), String.join("; ", regressions));
+            }
+        }
+        return regressed;
+    }
+
+    private static void checkGrowth(List<String> regressions, Map<String, String> row, String key, double value,
+                                    double tolerance) {
+        double baseline = number(row, key);
+        if (!Double.isNaN(baseline) && !Double.isNaN(value) && value > baseline * (1 + tolerance)) {
+            regressions.add(key + " " + CosmosResponseMetrics.formatFixed(value, 2) + " exceeds baseline "
+                    + CosmosResponseMetrics.formatFixed(baseline, 2) + " by more than "
+                    + CosmosResponseMetrics.formatFixed(tolerance * 100, 0) + "%");
+        }
+    }
+
+    private static void checkDrop(List<String> regressions, Map<String, String> row, String key, double value,
+                                  double tolerancePoints) {
+        double baseline = number(row, key);
+        if (!Double.isNaN(baseline) && !Double.isNaN(value) && value < baseline - tolerancePoints) {
+            regressions.add(key + " " + CosmosResponseMetrics.formatFixed(value, 2) + "% is below baseline "
+                    + CosmosResponseMetrics.formatFixed(baseline, 2) + "% by more than "
+                    + CosmosResponseMetrics.formatFixed(tolerancePoints, 2) + " points");
+        }
+    }
+
+    /**
+     * @return the value of {@code key}, or NaN if it is missing or not a number
+     */
+    private static double number(Map<String, String> row, String key) {
+        String value = row.get(key);
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.azure.cosmos.models.CosmosItemOperationType;
+
+/**
+ * The operations of a transactional batch, written as comma separated {@code operation:count} pairs such as
+ * {@code create:2,read:1,delete:1}, where the count defaults to 1. The operations repeat in that order until
+ * the batch is full, so every batch of the same size issues the same operations and batch sizes can be
+ * compared with each other. Supported operations are {@code create}, {@code upsert}, {@code replace},
+ * {@code patch}, {@code read} and {@code delete}. Instances are immutable and can be shared between threads.
+ */
+public final class BatchMix {
+
+    private final String spec;
+    private final List<CosmosItemOperationType> cycle;
+
+    private BatchMix(String spec, List<CosmosItemOperationType> cycle) {
+        this.spec = spec;
+        this.cycle = cycle;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the mix is empty, names an unsupported operation or has a count
+     *                                  that is not a positive integer
+     */
+    public static BatchMix parse(String spec) {
+        List<CosmosItemOperationType> cycle = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split("\\s*:\\s*");
+            CosmosItemOperationType operation;
+            try {
+                operation = CosmosItemOperationType.valueOf(parts[0].toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported batch operation: " + parts[0], e);
+            }
+            int count;
+            try {
+                count = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Count of batch operation " + parts[0] + " is not a number: "
+                        + parts[1], e);
+            }
+            if (parts.length > 2 || count <= 0) {
+                throw new IllegalArgumentException("Batch operations must be operation:count with a positive "
+                        + "count: " + entry);
+            }
+            for (int i = 0; i < count; i++) {
+                cycle.add(operation);
+            }
+        }
+        if (cycle.isEmpty()) {
+            throw new IllegalArgumentException("Batch operation mix is empty");
+        }
+        return new BatchMix(spec, Collections.unmodifiableList(cycle));
+    }
+
+    /**
+     * @return true if this mix was parsed from {@code spec}
+     */
+    public boolean matches(String spec) {
+        return this.spec.equals(spec);
+    }
+
+    /**
+     * @return the operation at {@code index} of a batch
+     */
+    public CosmosItemOperationType operationAt(int index) {
+        return cycle.get(index % cycle.size());
+    }
+
+    /**
+     * @return true if the operation writes a document body
+     */
+    public static boolean hasDocument(CosmosItemOperationType operation) {
+        return operation == CosmosItemOperationType.CREATE || operation == CosmosItemOperationType.UPSERT
+                || operation == CosmosItemOperationType.REPLACE;
+    }
+
+    /**
+     * @return true if the operation changes the container
+     */
+    public static boolean isWrite(CosmosItemOperationType operation) {
+        return operation != CosmosItemOperationType.READ;
+    }
+}
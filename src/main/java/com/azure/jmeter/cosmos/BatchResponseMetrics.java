@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+import com.azure.cosmos.models.CosmosBatchOperationResult;
+import com.azure.cosmos.models.CosmosBatchResponse;
+import com.azure.cosmos.models.CosmosItemOperationType;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Request charge and per operation status counts for one transactional batch.
+ * Instances are not thread safe; each sampler thread uses its own.
+ */
+public class BatchResponseMetrics {
+
+    private final Map<String, Integer> statusCounts = new TreeMap<>();
+    private int statusCode;
+    private boolean successful;
+    private String errorMessage;
+    private double requestCharge;
+    private int operationCount;
+    private int writeCount;
+
+    /**
+     * Adds the outcome of a batch. When the batch fails, the operation that failed carries its own status
+     * and the others are reported with 424 (failed dependency).
+     */
+    public void add(CosmosBatchResponse response) {
+        statusCode = response.getStatusCode();
+        successful = response.isSuccessStatusCode();
+        errorMessage = response.getErrorMessage();
+        requestCharge += response.getRequestCharge();
+        for (CosmosBatchOperationResult result : response.getResults()) {
+            CosmosItemOperationType operation = result.getOperation().getOperationType();
+            operationCount++;
+            if (successful && BatchMix.isWrite(operation)) {
+                writeCount++;
+            }
+            statusCounts.merge(operation.name() + " " + result.getStatusCode(), 1, Integer::sum);
+        }
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * @return the writes the batch committed, which is none if it failed
+     */
+    public int getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Writes the batch totals, and the operations per status as {@code OPERATION status=count} pairs.
+     */
+    public void writeTo(Map<String, String> diagnosticsData) {
+        diagnosticsData.put(CosmosResponseMetrics.STATUS_CODE, Integer.toString(statusCode));
+        diagnosticsData.put("OperationCount", Integer.toString(operationCount));
+        diagnosticsData.put("WriteCount", Integer.toString(writeCount));
+        diagnosticsData.put(CosmosResponseMetrics.REQUEST_CHARGE,
+                CosmosResponseMetrics.formatFixed(requestCharge, 2) + "RUs");
+        diagnosticsData.put("WritesPerRU", CosmosResponseMetrics.formatFixed(
+                requestCharge > 0 ? writeCount / requestCharge : 0, 4));
+        StringJoiner counts = new StringJoiner(",");
+        statusCounts.forEach((status, count) -> counts.add(status + "=" + count));
+        diagnosticsData.put("OperationStatusCounts", counts.toString());
+    }
+
+    /**
+     * Adds one sub-result per operation and status to {@code result}, each carrying the number of operations
+     * that completed with that status as its sample count.
+     */
+    public void addSubResults(SampleResult result, long start, long end) {
+        statusCounts.forEach((status, count) -> {
+            int operationStatus = Integer.parseInt(status.substring(status.indexOf(' ') + 1));
+            SampleResult statusResult = new SampleResult();
+            statusResult.setSampleLabel(result.getSampleLabel() + " " + status.replace(" ", " status "));
+            statusResult.setStampAndTime(start, end - start);
+            statusResult.setSampleCount(count);
+            statusResult.setResponseCode(Integer.toString(operationStatus));
+            boolean operationSuccessful = operationStatus >= 200 && operationStatus < 300;
+            statusResult.setSuccessful(operationSuccessful);
+            statusResult.setErrorCount(operationSuccessful ? 0 : count);
+            statusResult.setDataEncoding(UTF_8.name());
+            statusResult.setDataType(SampleResult.TEXT);
+            statusResult.setResponseData(count.toString(), UTF_8.name());
+            result.addRawSubResult(statusResult);
+        });
+    }
+}
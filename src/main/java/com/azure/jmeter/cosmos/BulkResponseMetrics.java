@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.models.CosmosBulkItemResponse;
+import com.azure.cosmos.models.CosmosBulkOperationResponse;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Request charge and per status code operation counts for one bulk execution.
+ * Instances are not thread safe; bulk responses are consumed from a single subscriber.
+ */
+public class BulkResponseMetrics {
+
+    private final Map<Integer, Integer> statusCounts = new TreeMap<>();
+    private double requestCharge;
+    private int operationCount;
+    private int failedCount;
+
+    /**
+     * Adds the outcome of one bulk operation. Operations that failed without a response are counted
+     * under the status code of their exception, or 0 if the exception is not a {@link CosmosException}.
+     */
+    public void add(CosmosBulkOperationResponse<?> operationResponse) {
+        operationCount++;
+        CosmosBulkItemResponse response = operationResponse.getResponse();
+        int statusCode;
+        if (response != null) {
+            statusCode = response.getStatusCode();
+            requestCharge += response.getRequestCharge();
+            if (!response.isSuccessStatusCode()) {
+                failedCount++;
+            }
+        } else {
+            Exception exception = operationResponse.getException();
+            statusCode = exception instanceof CosmosException ? ((CosmosException) exception).getStatusCode() : 0;
+            failedCount++;
+        }
+        statusCounts.merge(statusCode, 1, Integer::sum);
+    }
+
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public int getThrottledCount() {
+        return statusCounts.getOrDefault(HttpConstants.StatusCodes.TOO_MANY_REQUESTS, 0);
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    /**
+     * Writes totals and rates for an execution that took {@code elapsedNanos}.
+     */
+    public void writeTo(Map<String, String> diagnosticsData, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        diagnosticsData.put("OperationCount", Integer.toString(operationCount));
+        diagnosticsData.put("FailedCount", Integer.toString(failedCount));
+        diagnosticsData.put("ThrottledCount", Integer.toString(getThrottledCount()));
+        diagnosticsData.put(CosmosResponseMetrics.REQUEST_CHARGE,
+                CosmosResponseMetrics.formatFixed(requestCharge, 2) + "RUs");
+        diagnosticsData.put("DocsPerSecond", CosmosResponseMetrics.formatFixed(operationCount / seconds, 2));
+        diagnosticsData.put("RUPerSecond", CosmosResponseMetrics.formatFixed(requestCharge / seconds, 2));
+        statusCounts.forEach((statusCode, count) -> diagnosticsData.put("StatusCount" + statusCode, count.toString()));
+    }
+
+    /**
+     * Adds one sub-result per status code to {@code result}, each carrying the number of operations
+     * that completed with that status as its sample count.
+     */
+    public void addSubResults(SampleResult result, long start, long end) {
+        statusCounts.forEach((statusCode, count) -> {
+            SampleResult statusResult = new SampleResult();
+            statusResult.setSampleLabel(result.getSampleLabel() + " status " + statusCode);
+            statusResult.setStampAndTime(start, end - start);
+            statusResult.setSampleCount(count);
+            statusResult.setResponseCode(Integer.toString(statusCode));
+            boolean successful = statusCode >= 200 && statusCode < 300;
+            statusResult.setSuccessful(successful);
+            statusResult.setErrorCount(successful ? 0 : count);
+            statusResult.setDataEncoding(UTF_8.name());
+            statusResult.setDataType(SampleResult.TEXT);
+            statusResult.setResponseData(count.toString(), UTF_8.name());
+            result.addRawSubResult(statusResult);
+        });
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Map;
+
+import com.azure.cosmos.models.FeedResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.HdrHistogram.Histogram;
+import org.apache.jmeter.samplers.SampleResult;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Documents, request charge and pages per feed range of one change feed read, and the lag between each
+ * document's {@code _ts} and the time it was read.
+ * <p>
+ * {@code _ts} has a resolution of one second, so lags are only accurate to within a second.
+ * Instances are not thread safe; pages of all ranges are merged into a single subscriber.
+ */
+public class ChangeFeedMetrics {
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private final int[] pagesPerRange;
+    private final long[] documentsPerRange;
+    private final Histogram lagMillis = new Histogram(3);
+    private double requestCharge;
+    private long documents;
+
+    public ChangeFeedMetrics(int rangeCount) {
+        this.pagesPerRange = new int[rangeCount];
+        this.documentsPerRange = new long[rangeCount];
+    }
+
+    /**
+     * Adds a page of feed range {@code range} that was read at {@code observedMillis}.
+     */
+    public void add(int range, FeedResponse<JsonNode> page, long observedMillis) {
+        pagesPerRange[range]++;
+        requestCharge += page.getRequestCharge();
+        for (JsonNode document : page.getResults()) {
+            documents++;
+            documentsPerRange[range]++;
+            JsonNode timestamp = document == null ? null : document.get("_ts");
+            if (timestamp != null && timestamp.canConvertToLong()) {
+                lagMillis.recordValue(Math.max(observedMillis - timestamp.asLong() * MILLIS_PER_SECOND, 0));
+            }
+        }
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    /**
+     * Writes totals, rates, pages per range and lag percentiles in milliseconds for a read that took
+     * {@code elapsedNanos}.
+     */
+    public void writeTo(Map<String, String> diagnosticsData, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        StringBuilder pages = new StringBuilder();
+        for (int i = 0; i < pagesPerRange.length; i++) {
+            if (i > 0) {
+                pages.append(',');
+            }
+            pages.append(pagesPerRange[i]);
+        }
+        diagnosticsData.put("RangeCount", Integer.toString(pagesPerRange.length));
+        diagnosticsData.put("PagesPerRange", pages.toString());
+        diagnosticsData.put("DocumentCount", Long.toString(documents));
+        diagnosticsData.put(CosmosResponseMetrics.REQUEST_CHARGE,
+                CosmosResponseMetrics.formatFixed(requestCharge, 2) + "RUs");
+        diagnosticsData.put("DocsPerSecond", CosmosResponseMetrics.formatFixed(documents / seconds, 2));
+        diagnosticsData.put("RUPerSecond", CosmosResponseMetrics.formatFixed(requestCharge / seconds, 2));
+        if (lagMillis.getTotalCount() > 0) {
+            Percentiles.writeTo(diagnosticsData, "ChangeFeedLag", lagMillis, 1.0, 0);
+        }
+    }
+
+    /**
+     * Adds one sub-result per feed range to {@code result}, each carrying the documents read from that range
+     * as its sample count.
+     */
+    public void addSubResults(SampleResult result, long start, long end) {
+        for (int i = 0; i < pagesPerRange.length; i++) {
+            SampleResult rangeResult = new SampleResult();
+            rangeResult.setSampleLabel(result.getSampleLabel() + " range " + i);
+            rangeResult.setStampAndTime(start, end - start);
+            rangeResult.setSampleCount((int) Math.min(Math.max(documentsPerRange[i], 1), Integer.MAX_VALUE));
+            rangeResult.setResponseCodeOK();
+            rangeResult.setSuccessful(true);
+            rangeResult.setDataEncoding(UTF_8.name());
+            rangeResult.setDataType(SampleResult.TEXT);
+            rangeResult.setResponseData("{\"Pages\":" + pagesPerRange[i] + ",\"DocumentCount\":"
+                    + documentsPerRange[i] + "}", UTF_8.name());
+            result.addRawSubResult(rangeResult);
+        }
+    }
+}
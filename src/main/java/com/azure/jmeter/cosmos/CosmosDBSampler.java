@@ -15,39 +15,80 @@
  */
 package com.azure.jmeter.cosmos;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.ConnectionMode;
+import com.azure.cosmos.ConsistencyLevel;
 import com.azure.cosmos.CosmosAsyncContainer;
-import com.azure.cosmos.CosmosAsyncDatabase;
 import com.azure.cosmos.CosmosException;
 import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.models.CosmosBatch;
+import com.azure.cosmos.models.CosmosBatchResponse;
+import com.azure.cosmos.models.CosmosBulkExecutionOptions;
+import com.azure.cosmos.models.CosmosBulkOperations;
+import com.azure.cosmos.models.CosmosChangeFeedRequestOptions;
+import com.azure.cosmos.models.CosmosItemOperation;
+import com.azure.cosmos.models.CosmosItemOperationType;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.CosmosPatchOperations;
 import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedRange;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlQuerySpec;
 import com.azure.cosmos.util.CosmosPagedFlux;
-import com.azure.cosmos.client.CosmosClientSingleton;
+import com.azure.cosmos.client.CosmosClientRegistry;
+import com.azure.cosmos.client.CosmosClientSettings;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import org.apache.jmeter.JMeter;
 import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.control.Controller;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
 
 import org.apache.jmeter.samplers.AbstractSampler;
 import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.testelement.ThreadListener;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * A JMeter {@link Sampler} that queries Azure Cosmos DB.
  */
-public class CosmosDBSampler extends AbstractSampler implements TestStateListener {
+public class CosmosDBSampler extends AbstractSampler implements TestStateListener, ThreadListener {
 
     private static final Logger logger = LogManager.getLogger(CosmosDBSampler.class);
 
@@ -57,50 +98,538 @@ public class CosmosDBSampler extends AbstractSampler implements TestStateListene
     private static final String CONTAINER_ID = "CosmosDB.containerID";
     private static final String PARTITION_KEY_PATH = "CosmosDB.partitionKeyPath";
     private static final String COSMOS_QUERY = "CosmosDB.cosmosDBQueries";
+    private static final String QUERY_PARAMETERS = "CosmosDB.queryParameters";
+    private static final String QUERY_MIX = "CosmosDB.queryMix";
     private static final String COSMOS_RUN_ID = "CosmosDB.cosmosDBRunID";
     private static final String COSMOS_QUERY_TYPE = "CosmosDB.queryType";
+    private static final String DRAIN_MODE = "CosmosDB.drainMode";
+    private static final String PAGE_SIZE = "CosmosDB.pageSize";
+    private static final String MAX_PAGES = "CosmosDB.maxPages";
+    private static final String OPERATION_TYPE = "CosmosDB.operationType";
+    private static final String ITEM_ID = "CosmosDB.itemID";
+    private static final String PARTITION_KEY_VALUE = "CosmosDB.partitionKeyValue";
+    private static final String PARTITION_KEY_TYPE = "CosmosDB.partitionKeyType";
+    private static final String DOCUMENT_TEMPLATE = "CosmosDB.documentTemplate";
+    private static final String BULK_BATCH_SIZE = "CosmosDB.bulkBatchSize";
+    private static final String BULK_FEEDER_FILE = "CosmosDB.bulkFeederFile";
+    private static final String BULK_INITIAL_MICRO_BATCH_SIZE = "CosmosDB.bulkInitialMicroBatchSize";
+    private static final String BULK_MAX_MICRO_BATCH_CONCURRENCY = "CosmosDB.bulkMaxMicroBatchConcurrency";
+    private static final String BATCH_SIZE = "CosmosDB.batchSize";
+    private static final String BATCH_OPERATIONS = "CosmosDB.batchOperations";
+    private static final String BATCH_PARTITION_KEY_VARIABLE = "CosmosDB.batchPartitionKeyVariable";
+    private static final String BATCH_PATCH_TEMPLATE = "CosmosDB.batchPatchTemplate";
+    private static final String ISSUE_MODE = "CosmosDB.issueMode";
+    private static final String TARGET_RATE = "CosmosDB.targetRate";
+    private static final String OPEN_LOOP_WINDOW = "CosmosDB.openLoopWindowMillis";
+    private static final String MAX_IN_FLIGHT = "CosmosDB.maxInFlight";
+    private static final String WARM_UP = "CosmosDB.warmUp";
+    private static final String WARM_UP_QUERIES = "CosmosDB.warmUpQueries";
+    private static final String WARM_UP_SAMPLES = "CosmosDB.warmUpSamples";
+    private static final String CONNECTION_MODE = "CosmosDB.connectionMode";
+    private static final String CONSISTENCY_LEVEL = "CosmosDB.consistencyLevel";
+    private static final String MAX_CONNECTIONS_PER_ENDPOINT = "CosmosDB.maxConnectionsPerEndpoint";
+    private static final String IDLE_ENDPOINT_TIMEOUT = "CosmosDB.idleEndpointTimeoutSeconds";
+    private static final String PREFERRED_REGIONS = "CosmosDB.preferredRegions";
+    private static final String MAX_DEGREE_OF_PARALLELISM = "CosmosDB.maxDegreeOfParallelism";
+    private static final String MAX_BUFFERED_ITEM_COUNT = "CosmosDB.maxBufferedItemCount";
+    private static final String COPY_SAMPLER_DATA = "CosmosDB.copySamplerData";
+    private static final String RESULT_CHECKSUM = "CosmosDB.resultChecksum";
+    private static final String RAW_RESULTS = "CosmosDB.rawResults";
+    private static final String CHANGE_FEED_START = "CosmosDB.changeFeedStart";
+    private static final String KEY_FEEDER_FILE = "CosmosDB.keyFeederFile";
+    private static final String KEY_DISTRIBUTION = "CosmosDB.keyDistribution";
+    private static final String KEY_VARIABLES = "CosmosDB.keyVariables";
+    private static final String GOVERNOR_MODE = "CosmosDB.governorMode";
+    private static final String GOVERNOR_TARGET = "CosmosDB.governorTarget";
+    private static final String GOVERNOR_INITIAL_RATE = "CosmosDB.governorInitialRate";
+    private static final String DIAGNOSTICS_JOURNAL = "CosmosDB.diagnosticsJournal";
+    private static final String JOURNAL_ROTATE_SIZE = "CosmosDB.journalRotateSize";
+    private static final String DIAGNOSTICS_CAPTURE = "CosmosDB.diagnosticsCapture";
+    private static final String DIAGNOSTICS_THRESHOLD = "CosmosDB.diagnosticsThreshold";
+    private static final String DIAGNOSTICS_PERCENT = "CosmosDB.diagnosticsPercent";
+
+    /** JMeter property naming a file to append the merged histogram summaries to at the end of a test. */
+    public static final String HISTOGRAM_REPORT_PROPERTY = "cosmosdb.histogram.report";
+
+    /** JMeter property setting how many of the hottest partition key ranges of each runID are reported. */
+    public static final String HOT_PARTITIONS_PROPERTY = "cosmosdb.histogram.hotPartitions";
+
+    /** JMeter property setting the port of the live OpenMetrics endpoint; there is none unless it is set. */
+    public static final String METRICS_PORT_PROPERTY = "cosmosdb.metrics.port";
+    /** JMeter property setting the address the OpenMetrics endpoint listens on; loopback unless it is set. */
+    public static final String METRICS_BIND_PROPERTY = "cosmosdb.metrics.bind";
+
+    /**
+     * JMeter property setting how often, in seconds, each engine attaches its {@link EngineSummary} to a sample
+     * for the controller of a distributed test to merge; none are sent unless it is set.
+     */
+    public static final String ENGINE_SUMMARY_INTERVAL_PROPERTY = "cosmosdb.summary.interval";
+
+    /** JMeter property naming the baseline file that query summaries are compared against and recorded to. */
+    public static final String BASELINE_FILE_PROPERTY = "cosmosdb.baseline.file";
+    /** JMeter property that, when true, replaces an existing baseline with the summaries of this run. */
+    public static final String BASELINE_UPDATE_PROPERTY = "cosmosdb.baseline.update";
+    /** JMeter property that, when true, fails samples beyond the p99 request charge or documents of the baseline. */
+    public static final String BASELINE_MARK_SAMPLES_PROPERTY = "cosmosdb.baseline.markSamples";
+    /**
+     * JMeter property setting the exit code of a non-GUI JMeter run in which a query regressed against the
+     * baseline; the exit code is left alone unless it is set.
+     */
+    public static final String BASELINE_EXIT_CODE_PROPERTY = "cosmosdb.baseline.exitCode";
+    private static final String BASELINE_TOLERANCE_PREFIX = "cosmosdb.baseline.tolerance.";
+
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int DEFAULT_MAX_PAGES = 1;
+    private static final int DEFAULT_BULK_BATCH_SIZE = 100;
+    private static final int DEFAULT_BATCH_SIZE = 10;
+    private static final String DEFAULT_BATCH_OPERATIONS = "upsert";
+    private static final int DEFAULT_TARGET_RATE = 100;
+    private static final int DEFAULT_OPEN_LOOP_WINDOW_MILLIS = 1000;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    private static final int DEFAULT_MAX_DEGREE_OF_PARALLELISM = 10;
+    private static final int DEFAULT_MAX_BUFFERED_ITEM_COUNT = 100;
+    private static final int DEFAULT_GOVERNOR_INITIAL_RATE = 100;
+    private static final int DEFAULT_JOURNAL_ROTATE_MEGABYTES = 256;
+    private static final int DEFAULT_DIAGNOSTICS_THRESHOLD_MILLIS = 100;
+    private static final double DEFAULT_DIAGNOSTICS_PERCENT = 1;
+    private static final double DEFAULT_REQUEST_CHARGE_TOLERANCE = 0.1;
+    private static final double DEFAULT_DOCUMENT_RATIO_TOLERANCE = 0.1;
+    private static final double DEFAULT_INDEX_UTILIZATION_TOLERANCE = 5;
+    private static final double DEFAULT_LATENCY_TOLERANCE = 0.25;
+    private static final long OPEN_LOOP_DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
 
     private static final Pattern BEFORE_COLON_PATTERN = Pattern.compile("[A-Za-z].*?:");
     private static final Pattern AFTER_COLON_PATTERN = Pattern.compile(":(.*)");
     private static final Pattern CUSTOM_RETRIEVE_DOCUMENT_SIZE_PATTERN = Pattern.compile("RetrievedDocumentCount.*?:");
 
+    private CosmosClientRegistry.Lease testLease;
+    private boolean servingMetrics;
+    private CosmosClientRegistry.Lease clientLease;
     private CosmosAsyncContainer container;
+    private SimulatedBackend simulatedBackend;
+    private ParameterizedQuery parameterizedQuery;
+    private QueryMix queryMix;
+    private BatchMix batchMix;
+    private String documentTemplateSource;
+    private JsonNode documentTemplate;
+    private ParameterizedQuery currentQuery;
+    private String currentQueryType;
+    private KeyDistribution keyDistribution;
+    private List<FeedRange> changeFeedRanges;
+    private String[] changeFeedContinuations;
+    private final KeyFeeder.Record keyRecord = new KeyFeeder.Record();
+    private String keyVariables;
+    private String[] keyVariableNames;
+    private String currentItemId;
+    private String currentPartitionKeyValue;
+    private CosmosQueryRequestOptions queryRequestOptions;
+    private OpenLoopRunner openLoopRunner;
+    private final Map<String, HistogramAggregator.Recorders> histogramRecorders = new HashMap<>();
+    private RateGovernor rateGovernor;
+    private Baseline baseline;
+    private boolean baselineResolved;
+    private int samplesTaken;
+    private long threadStartMillis;
+    private long previousSampleStartMillis;
+    private long cosmosCallNanos;
+    private final CosmosResponseMetrics sampleMetrics = new CosmosResponseMetrics();
+    private final ResultChecksum resultChecksum = new ResultChecksum();
+    private final CosmosItemRequestOptions itemRequestOptions =
+            new CosmosItemRequestOptions().setContentResponseOnWriteEnabled(false);
 
     @Override
     public SampleResult sample(Entry entry) {
         SampleResult result = new SampleResult();
-        result.setSampleLabel("Azure Cosmos DB Sampler");
+        boolean warmUp = samplesTaken < positiveInt(getWarmUpSamples(), 0);
+        samplesTaken++;
+        if (warmUp) {
+            // Still cold connections and caches would skew the statistics, so listeners never see these samples
+            result.setSampleLabel("Azure Cosmos DB Sampler (warm-up)");
+            result.setIgnore();
+        } else {
+            result.setSampleLabel("Azure Cosmos DB Sampler");
+        }
+        RateGovernor governor = getRateGovernor();
+        if (governor != null) {
+            try {
+                // Waiting for a turn is pacing, not latency, so it happens before the sample starts
+                governor.acquire();
+            } catch (InterruptedException ie) {
+                // The thread is being stopped
+                Thread.currentThread().interrupt();
+                result.setIgnore();
+                return result;
+            }
+        }
         result.sampleStart();
+        long startNanos = System.nanoTime();
+        long cycleMillis = previousSampleStartMillis == 0 ? 0 : result.getStartTime() - previousSampleStartMillis;
+        previousSampleStartMillis = result.getStartTime();
+        sampleMetrics.reset();
+        cosmosCallNanos = 0;
+        currentQuery = null;
+        currentQueryType = getQueryType();
+        currentItemId = null;
+        currentPartitionKeyValue = null;
+        boolean openLoop = false;
+        // Warm-up samples are ignored, so there is nothing for their diagnostics to be looked up from
+        DiagnosticsJournal journal = warmUp ? null : getSharedJournal();
+        sampleMetrics.setCaptureDiagnostics(journal != null);
+        Map<String, String> diagnosticsData = new HashMap<>();
+        long sampleId = 0;
+        if (journal != null) {
+            sampleId = journal.nextSampleId();
+            diagnosticsData.put("SampleId", Long.toString(sampleId));
+        }
 
         try {
-            Map<String, String> diagnosticsData = new HashMap<>();
             connectCosmosClientIfNecessary();
             try {
-                CosmosPagedFlux<JsonNode> response = queryCosmosContainer(diagnosticsData);
+                OperationType operation =
+                        Enums.fromString(OperationType.class, getOperationType(), OperationType.QUERY);
+                boolean singleRequest = operation == OperationType.QUERY || operation.isPointOperation();
+                openLoop = Enums.fromString(IssueMode.class, getIssueMode(), IssueMode.CLOSED_LOOP)
+                        == IssueMode.OPEN_LOOP && singleRequest;
+                if (operation == OperationType.QUERY) {
+                    selectQuery(warmUp, result);
+                }
+                if (!openLoop && (singleRequest || operation == OperationType.BATCH)) {
+                    bindNextKey();
+                }
                 result.setDataEncoding(UTF_8.name());
                 result.setDataType(SampleResult.TEXT);
                 result.setResponseCodeOK();
                 result.setResponseMessage("OK");
                 result.setSuccessful(true);
-                JsonNode responseData = buildSampleResponseData(response, diagnosticsData);
-                result.setSamplerData(responseData.toString());
-                result.setResponseData(responseData.toString(), UTF_8.name());
+                if (openLoop) {
+                    buildOpenLoopResponseData(operation, diagnosticsData, result);
+                } else if (operation == OperationType.QUERY) {
+                    buildSampleResponseData(diagnosticsData, result);
+                } else if (operation == OperationType.BULK) {
+                    buildBulkResponseData(diagnosticsData, result);
+                } else if (operation == OperationType.BATCH) {
+                    buildBatchResponseData(diagnosticsData, result);
+                } else if (operation == OperationType.CHANGE_FEED) {
+                    buildChangeFeedResponseData(diagnosticsData, result);
+                } else {
+                    buildItemResponseData(operation, diagnosticsData);
+                    result.setResponseCode(diagnosticsData.get(CosmosResponseMetrics.STATUS_CODE));
+                }
+                if (governor != null) {
+                    diagnosticsData.put("GovernorRate", CosmosResponseMetrics.formatFixed(governor.getRate(), 1));
+                }
+                sampleMetrics.writeRetriesTo(diagnosticsData);
+                // Serialize once, straight to the bytes the result keeps, with the shared mapper
+                byte[] responseData = ItemTemplates.MAPPER.writeValueAsBytes(diagnosticsData);
+                result.setResponseData(responseData);
+                if (isCopySamplerData()) {
+                    result.setSamplerData(new String(responseData, UTF_8));
+                }
             } finally {
                 result.sampleEnd();
             }
+        } catch (CosmosException ce) {
+            addFailure(ce);
+            result.setSuccessful(false);
+            result.setResponseCode(Integer.toString(ce.getStatusCode()));
+            result.setResponseMessage(ce.toString());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            result.setSuccessful(false);
+            result.setResponseCode(Integer.toString(HttpConstants.StatusCodes.INTERNAL_SERVER_ERROR));
+            result.setResponseMessage(ie.toString());
         } catch (Exception ex) {
             result.setResponseMessage("Exception: " + ex);
             result.setSuccessful(false);
             result.setResponseCode(Integer.toString(HttpConstants.StatusCodes.INTERNAL_SERVER_ERROR));
             result.setResponseMessage(ex.toString());
         }
+        // Decided once the sample is done, so that the policy knows whether it failed
+        resolveDiagnostics(result, System.nanoTime() - startNanos);
+        if (!openLoop && !warmUp && result.isSuccessful()) {
+            checkBaseline(result);
+        }
+        // Open loop windows record the latency of each of their requests themselves
+        if (!openLoop && !warmUp) {
+            recordHistograms(result, System.nanoTime() - startNanos, cosmosCallNanos);
+        }
+        if (governor != null) {
+            governor.record(sampleMetrics.getRequestCharge(), sampleMetrics.getThrottleCount() > 0);
+        }
+        if (!warmUp) {
+            HistogramAggregator aggregator = HistogramAggregator.getInstance();
+            // The thread's last sample also sends one, or everything since the last interval would be lost
+            if (aggregator.claimEngineSummary()
+                    || aggregator.isSendingEngineSummaries() && isLastSampleOfThread(cycleMillis)) {
+                result.addRawSubResult(buildEngineSummaryResult());
+            }
+        }
+        if (journal != null) {
+            journal.offer(sampleId, result, diagnosticsData, sampleMetrics.takeDiagnostics());
+        }
         return result;
     }
 
+    /**
+     * Picks this sample's query, from the query mix when one is configured, and labels the sample and its
+     * metrics after it.
+     */
+    private void selectQuery(boolean warmUp, SampleResult result) throws IOException {
+        QueryMix mix = getParsedQueryMix();
+        if (mix == null) {
+            currentQuery = getParameterizedQuery();
+            return;
+        }
+        QueryMix.Entry selected = mix.next();
+        currentQuery = selected.getQuery();
+        currentQueryType = selected.getName();
+        if (!warmUp) {
+            result.setSampleLabel(selected.getLabel());
+        }
+    }
+
+    /**
+     * Reads the next key from the key file, when one is configured, as the id and partition key value of
+     * point operations, and sets its fields as the JMeter variables named by the key variables so query
+     * parameters can be bound to them.
+     */
+    private void bindNextKey() throws IOException {
+        String path = getKeyFeederFile();
+        if (path.isEmpty()) {
+            return;
+        }
+        KeyFeeder feeder = KeyFeeder.forFile(path);
+        String distribution = getKeyDistribution();
+        if (keyDistribution == null || !keyDistribution.matches(distribution, feeder.size())) {
+            keyDistribution = KeyDistribution.parse(distribution, feeder.size());
+        }
+        feeder.next(keyDistribution, keyRecord);
+        currentItemId = keyRecord.field(0);
+        currentPartitionKeyValue = keyRecord.getFieldCount() > 1 ? keyRecord.field(1) : currentItemId;
+
+        JMeterVariables variables = JMeterContextService.getContext().getVariables();
+        if (variables == null) {
+            return;
+        }
+        String names = getKeyVariables();
+        if (!names.equals(keyVariables)) {
+            keyVariables = names;
+            keyVariableNames = names.isBlank() ? new String[0] : names.trim().split("\\s*,\\s*");
+        }
+        for (int i = 0; i < keyVariableNames.length && i < keyRecord.getFieldCount(); i++) {
+            String value = i == 0 ? currentItemId : i == 1 ? currentPartitionKeyValue : keyRecord.field(i);
+            variables.put(keyVariableNames[i], value);
+        }
+    }
+
+    /**
+     * Renders the diagnostics the sample held on to for the journal if the capture policy selects it, and
+     * discards them otherwise, so only the slow, failed or sampled ones pay for rendering them. Without a journal
+     * no diagnostics are held on to and nothing is rendered.
+     */
+    private void resolveDiagnostics(SampleResult result, long elapsedNanos) {
+        if (!sampleMetrics.hasPendingDiagnostics()) {
+            return;
+        }
+        boolean read;
+        switch (Enums.fromString(DiagnosticsCapture.class, getDiagnosticsCapture(), DiagnosticsCapture.ALWAYS)) {
+            case NEVER:
+                read = false;
+                break;
+            case SLOW:
+                read = elapsedNanos > TimeUnit.MILLISECONDS.toNanos(
+                        positiveInt(getDiagnosticsThreshold(), DEFAULT_DIAGNOSTICS_THRESHOLD_MILLIS));
+                break;
+            case ERRORS:
+                read = !result.isSuccessful() || sampleMetrics.getThrottleCount() > 0;
+                break;
+            case SAMPLED:
+                read = ThreadLocalRandom.current().nextDouble() * 100
+                        < positiveDouble(getDiagnosticsPercent(), DEFAULT_DIAGNOSTICS_PERCENT);
+                break;
+            default:
+                read = true;
+                break;
+        }
+        if (read) {
+            sampleMetrics.readDiagnostics();
+        } else {
+            sampleMetrics.discardDiagnostics();
+        }
+    }
+
+    /**
+     * Adds the retries recorded in the diagnostics of a failed request, and counts it as throttled if it
+     * failed with 429 once the SDK stopped retrying.
+     */
+    private void addFailure(CosmosException ce) {
+        sampleMetrics.add(ce.getDiagnostics());
+        if (ce.getStatusCode() == HttpConstants.StatusCodes.TOO_MANY_REQUESTS) {
+            sampleMetrics.addThrottles(1);
+        }
+    }
+
+    /**
+     * @param callNanos the part of {@code elapsedNanos} spent waiting on Cosmos DB; the rest is the overhead
+     *                  of the sampler itself, such as building requests and serializing results
+     */
+    private void recordHistograms(SampleResult result, long elapsedNanos, long callNanos) {
+        HistogramAggregator.Recorders recorders = getHistogramRecorders();
+        recorders.recordLatency(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+        recorders.recordSamplerOverhead(TimeUnit.NANOSECONDS.toMicros(elapsedNanos - callNanos));
+        recorders.recordRequestCharge(sampleMetrics.getRequestCharge());
+        if (sampleMetrics.hasQueryMetrics()) {
+            recorders.recordServerTime(TimeUnit.NANOSECONDS.toMicros(sampleMetrics.getTotalQueryExecutionNanos()));
+            recorders.recordRetrievedDocuments(sampleMetrics.getRetrievedDocumentCount());
+            recorders.recordPartitions(sampleMetrics.getPartitions());
+            recorders.recordQueryEfficiency(sampleMetrics.getRetrievedDocumentCount(),
+                    sampleMetrics.getOutputDocumentCount(), sampleMetrics.getIndexHitDocumentCount());
+        }
+        if (!result.isSuccessful()) {
+            recorders.recordError();
+        }
+        recorders.recordThrottling(sampleMetrics.getThrottleCount(), sampleMetrics.getRetryCount(),
+                sampleMetrics.getRetryWaitNanos());
+    }
+
+    /**
+     * @return this thread's histogram recorders for the current runID and the queryType of this sample, which
+     *         is the name of the query picked when there is a query mix
+     */
+    private HistogramAggregator.Recorders getHistogramRecorders() {
+        String runID = getRunID();
+        HistogramAggregator.Recorders recorders = histogramRecorders.get(currentQueryType);
+        if (recorders == null || !recorders.matches(runID, currentQueryType)) {
+            recorders = HistogramAggregator.getInstance().newRecorders(runID, currentQueryType);
+            histogramRecorders.put(currentQueryType, recorders);
+        }
+        return recorders;
+    }
+
+    /**
+     * Fails a sample whose request charge or retrieved document count exceeds the p99 of the baseline of its
+     * runID and queryType, so the regression shows up in the results.
+     */
+    private void checkBaseline(SampleResult result) {
+        if (!baselineResolved) {
+            // Resolved once per thread to keep property lookups off the sampling path
+            String path = JMeterUtils.getPropDefault(BASELINE_FILE_PROPERTY, "");
+            if (!path.isEmpty() && JMeterUtils.getPropDefault(BASELINE_MARK_SAMPLES_PROPERTY, false)) {
+                baseline = Baseline.forFile(path, getBaselineTolerances());
+            }
+            baselineResolved = true;
+        }
+        if (baseline == null || baseline.isEmpty()) {
+            return;
+        }
+        String regression = baseline.checkSample(getRunID(), currentQueryType, sampleMetrics.getRequestCharge(),
+                sampleMetrics.hasQueryMetrics(), sampleMetrics.getRetrievedDocumentCount());
+        if (regression != null) {
+            result.setSuccessful(false);
+            result.setResponseMessage("Baseline regression: " + regression);
+        }
+    }
+
+    private static Baseline.Tolerances getBaselineTolerances() {
+        return new Baseline.Tolerances(
+                baselineTolerance("requestCharge", DEFAULT_REQUEST_CHARGE_TOLERANCE),
+                baselineTolerance("documentRatio", DEFAULT_DOCUMENT_RATIO_TOLERANCE),
+                baselineTolerance("indexUtilization", DEFAULT_INDEX_UTILIZATION_TOLERANCE),
+                baselineTolerance("latencyP99", DEFAULT_LATENCY_TOLERANCE));
+    }
+
+    private static double baselineTolerance(String name, double defaultValue) {
+        return positiveDouble(JMeterUtils.getPropDefault(BASELINE_TOLERANCE_PREFIX + name, ""), defaultValue);
+    }
+
+    /**
+     * Compares the summaries of the run with the baseline file and logs every query that regressed. The
+     * summaries become the baseline if there was none, or if asked to replace it.
+     *
+     * @return why each regressed runID and queryType regressed, empty if none did or there was no baseline
+     */
+    static Map<String, String> finishBaseline(String path, List<Map<String, String>> summaries) {
+        Baseline previous = Baseline.forFile(path, getBaselineTolerances());
+        boolean record = previous.isEmpty() || JMeterUtils.getPropDefault(BASELINE_UPDATE_PROPERTY, false);
+        Map<String, String> regressions = Collections.emptyMap();
+        if (!previous.isEmpty()) {
+            regressions = previous.compare(summaries);
+            for (Map.Entry<String, String> regression : regressions.entrySet()) {
+                logger.error("Query {} regressed against baseline {}: {}", regression.getKey(), path,
+                        regression.getValue());
+            }
+            if (regressions.isEmpty()) {
+                logger.info("No query regressed against baseline {}", path);
+            }
+        }
+        if (record) {
+            try {
+                Baseline.write(path, summaries);
+                logger.info("Recorded baseline {}", path);
+            } catch (IOException e) {
+                logger.error("Failed to write baseline {}", path, e);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Makes a non-GUI JMeter run exit with the given code once the engine thread, which is ending the test,
+     * has also ended every listener after this one, so that result files are complete.
+     */
+    private static void exitAfterTest(int exitCode) {
+        if (!JMeter.isNonGUI()) {
+            logger.warn("Ignoring {} outside of non-GUI runs", BASELINE_EXIT_CODE_PROPERTY);
+            return;
+        }
+        Thread engineThread = Thread.currentThread();
+        Thread exit = new Thread(() -> {
+            try {
+                engineThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.exit(exitCode);
+        }, "Cosmos DB baseline exit");
+        exit.start();
+    }
+
+    /**
+     * @return the diagnostics journal shared by samplers writing to this sampler's journal path, or null if
+     *         there is none
+     */
+    private DiagnosticsJournal getSharedJournal() {
+        String path = getDiagnosticsJournal();
+        if (path.isEmpty()) {
+            return null;
+        }
+        long rotateBytes = positiveInt(getJournalRotateSize(), DEFAULT_JOURNAL_ROTATE_MEGABYTES) * 1024L * 1024L;
+        return DiagnosticsJournal.forFile(path, rotateBytes);
+    }
+
+    /**
+     * @return the rate governor shared by samplers with this sampler's settings, or null if there is none.
+     *         Open loop samples set their own rate and are never governed.
+     */
+    private RateGovernor getRateGovernor() {
+        GovernorMode mode = Enums.fromString(GovernorMode.class, getGovernorMode(), GovernorMode.NONE);
+        double target = positiveDouble(getGovernorTarget(), 0);
+        if (mode == GovernorMode.NONE || target == 0
+                || Enums.fromString(IssueMode.class, getIssueMode(), IssueMode.CLOSED_LOOP) == IssueMode.OPEN_LOOP) {
+            return null;
+        }
+        double initialRate = positiveDouble(getGovernorInitialRate(), DEFAULT_GOVERNOR_INITIAL_RATE);
+        if (rateGovernor == null || !rateGovernor.matches(mode, target, initialRate)) {
+            rateGovernor = RateGovernor.forSettings(mode, target, initialRate);
+        }
+        return rateGovernor;
+    }
+
     public void setCosmosDBURI(String uri) {
         // Force re-acquisition of the container
         if (!Objects.equals(uri, getCosmosDBURI())) {
             container = null;
+            simulatedBackend = null;
         }
         setProperty(COSMOS_DB_URI, uri);
     }
@@ -161,6 +690,25 @@ public class CosmosDBSampler extends AbstractSampler implements TestStateListene
         return getPropertyAsString(COSMOS_QUERY, "");
     }
 
+    public void setQueryParameters(String parameters) {
+        setProperty(QUERY_PARAMETERS, parameters);
+    }
+
+    public String getQueryParameters() {
+        return getPropertyAsString(QUERY_PARAMETERS, "");
+    }
+
+    public void setQueryMix(String mix) {
+        setProperty(QUERY_MIX, mix);
+    }
+
+    /**
+     * @return the JSON array of weighted named queries used instead of the single query, or empty if there is none
+     */
+    public String getQueryMix() {
+        return getPropertyAsString(QUERY_MIX, "");
+    }
+
     public void setRunID(String text) {
         setProperty(COSMOS_RUN_ID, text);
     }
@@ -177,6 +725,414 @@ public class CosmosDBSampler extends AbstractSampler implements TestStateListene
         return getPropertyAsString(COSMOS_QUERY_TYPE, "");
     }
 
+    public void setDrainMode(String mode) {
+        setProperty(DRAIN_MODE, mode);
+    }
+
+    public String getDrainMode() {
+        return getPropertyAsString(DRAIN_MODE, DrainMode.FULL.name());
+    }
+
+    public void setPageSize(String pageSize) {
+        setProperty(PAGE_SIZE, pageSize);
+    }
+
+    public String getPageSize() {
+        return getPropertyAsString(PAGE_SIZE, Integer.toString(DEFAULT_PAGE_SIZE));
+    }
+
+    public void setMaxPages(String maxPages) {
+        setProperty(MAX_PAGES, maxPages);
+    }
+
+    public String getMaxPages() {
+        return getPropertyAsString(MAX_PAGES, Integer.toString(DEFAULT_MAX_PAGES));
+    }
+
+    public void setOperationType(String operation) {
+        setProperty(OPERATION_TYPE, operation);
+    }
+
+    public String getOperationType() {
+        return getPropertyAsString(OPERATION_TYPE, OperationType.QUERY.name());
+    }
+
+    public void setItemID(String id) {
+        setProperty(ITEM_ID, id);
+    }
+
+    public String getItemID() {
+        return getPropertyAsString(ITEM_ID, "");
+    }
+
+    public void setPartitionKeyValue(String value) {
+        setProperty(PARTITION_KEY_VALUE, value);
+    }
+
+    public String getPartitionKeyValue() {
+        return getPropertyAsString(PARTITION_KEY_VALUE, "");
+    }
+
+    public void setPartitionKeyType(String type) {
+        setProperty(PARTITION_KEY_TYPE, type);
+    }
+
+    /**
+     * @return the name of the {@link ValueType} that configured partition key values are converted to
+     */
+    public String getPartitionKeyType() {
+        return getPropertyAsString(PARTITION_KEY_TYPE, ValueType.STRING.name());
+    }
+
+    public void setDocumentTemplate(String template) {
+        setProperty(DOCUMENT_TEMPLATE, template);
+    }
+
+    public String getDocumentTemplate() {
+        return getPropertyAsString(DOCUMENT_TEMPLATE, "");
+    }
+
+    public void setBulkBatchSize(String batchSize) {
+        setProperty(BULK_BATCH_SIZE, batchSize);
+    }
+
+    public String getBulkBatchSize() {
+        return getPropertyAsString(BULK_BATCH_SIZE, Integer.toString(DEFAULT_BULK_BATCH_SIZE));
+    }
+
+    public void setBulkFeederFile(String path) {
+        setProperty(BULK_FEEDER_FILE, path);
+    }
+
+    public String getBulkFeederFile() {
+        return getPropertyAsString(BULK_FEEDER_FILE, "");
+    }
+
+    public void setBulkInitialMicroBatchSize(String size) {
+        setProperty(BULK_INITIAL_MICRO_BATCH_SIZE, size);
+    }
+
+    public String getBulkInitialMicroBatchSize() {
+        return getPropertyAsString(BULK_INITIAL_MICRO_BATCH_SIZE, "");
+    }
+
+    public void setBulkMaxMicroBatchConcurrency(String concurrency) {
+        setProperty(BULK_MAX_MICRO_BATCH_CONCURRENCY, concurrency);
+    }
+
+    public String getBulkMaxMicroBatchConcurrency() {
+        return getPropertyAsString(BULK_MAX_MICRO_BATCH_CONCURRENCY, "");
+    }
+
+    public void setBatchSize(String batchSize) {
+        setProperty(BATCH_SIZE, batchSize);
+    }
+
+    public String getBatchSize() {
+        return getPropertyAsString(BATCH_SIZE, Integer.toString(DEFAULT_BATCH_SIZE));
+    }
+
+    public void setBatchOperations(String operations) {
+        setProperty(BATCH_OPERATIONS, operations);
+    }
+
+    /**
+     * @return the operations of each transactional batch, in the form read by {@link BatchMix#parse(String)}
+     */
+    public String getBatchOperations() {
+        return getPropertyAsString(BATCH_OPERATIONS, DEFAULT_BATCH_OPERATIONS);
+    }
+
+    public void setBatchPartitionKeyVariable(String variable) {
+        setProperty(BATCH_PARTITION_KEY_VARIABLE, variable);
+    }
+
+    public String getBatchPartitionKeyVariable() {
+        return getPropertyAsString(BATCH_PARTITION_KEY_VARIABLE, "");
+    }
+
+    public void setBatchPatchTemplate(String template) {
+        setProperty(BATCH_PATCH_TEMPLATE, template);
+    }
+
+    public String getBatchPatchTemplate() {
+        return getPropertyAsString(BATCH_PATCH_TEMPLATE, "");
+    }
+
+    public void setIssueMode(String mode) {
+        setProperty(ISSUE_MODE, mode);
+    }
+
+    public String getIssueMode() {
+        return getPropertyAsString(ISSUE_MODE, IssueMode.CLOSED_LOOP.name());
+    }
+
+    public void setTargetRate(String rate) {
+        setProperty(TARGET_RATE, rate);
+    }
+
+    public String getTargetRate() {
+        return getPropertyAsString(TARGET_RATE, Integer.toString(DEFAULT_TARGET_RATE));
+    }
+
+    public void setOpenLoopWindow(String millis) {
+        setProperty(OPEN_LOOP_WINDOW, millis);
+    }
+
+    public String getOpenLoopWindow() {
+        return getPropertyAsString(OPEN_LOOP_WINDOW, Integer.toString(DEFAULT_OPEN_LOOP_WINDOW_MILLIS));
+    }
+
+    public void setMaxInFlight(String maxInFlight) {
+        setProperty(MAX_IN_FLIGHT, maxInFlight);
+    }
+
+    public String getMaxInFlight() {
+        return getPropertyAsString(MAX_IN_FLIGHT, Integer.toString(DEFAULT_MAX_IN_FLIGHT));
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        setProperty(WARM_UP, warmUp, false);
+    }
+
+    public boolean isWarmUp() {
+        return getPropertyAsBoolean(WARM_UP, false);
+    }
+
+    public void setWarmUpQueries(String queries) {
+        setProperty(WARM_UP_QUERIES, queries);
+    }
+
+    public String getWarmUpQueries() {
+        return getPropertyAsString(WARM_UP_QUERIES, "0");
+    }
+
+    public void setWarmUpSamples(String samples) {
+        setProperty(WARM_UP_SAMPLES, samples);
+    }
+
+    public String getWarmUpSamples() {
+        return getPropertyAsString(WARM_UP_SAMPLES, "0");
+    }
+
+    public void setConnectionMode(String mode) {
+        setProperty(CONNECTION_MODE, mode);
+    }
+
+    public String getConnectionMode() {
+        return getPropertyAsString(CONNECTION_MODE, ConnectionMode.DIRECT.name());
+    }
+
+    public void setConsistencyLevel(String level) {
+        setProperty(CONSISTENCY_LEVEL, level);
+    }
+
+    public String getConsistencyLevel() {
+        return getPropertyAsString(CONSISTENCY_LEVEL, ConsistencyLevel.SESSION.name());
+    }
+
+    public void setMaxConnectionsPerEndpoint(String maxConnections) {
+        setProperty(MAX_CONNECTIONS_PER_ENDPOINT, maxConnections);
+    }
+
+    public String getMaxConnectionsPerEndpoint() {
+        return getPropertyAsString(MAX_CONNECTIONS_PER_ENDPOINT, "");
+    }
+
+    public void setIdleEndpointTimeout(String seconds) {
+        setProperty(IDLE_ENDPOINT_TIMEOUT, seconds);
+    }
+
+    public String getIdleEndpointTimeout() {
+        return getPropertyAsString(IDLE_ENDPOINT_TIMEOUT, "");
+    }
+
+    public void setPreferredRegions(String regions) {
+        setProperty(PREFERRED_REGIONS, regions);
+    }
+
+    public String getPreferredRegions() {
+        return getPropertyAsString(PREFERRED_REGIONS, "");
+    }
+
+    public void setMaxDegreeOfParallelism(String maxDegreeOfParallelism) {
+        setProperty(MAX_DEGREE_OF_PARALLELISM, maxDegreeOfParallelism);
+    }
+
+    public String getMaxDegreeOfParallelism() {
+        return getPropertyAsString(MAX_DEGREE_OF_PARALLELISM, Integer.toString(DEFAULT_MAX_DEGREE_OF_PARALLELISM));
+    }
+
+    public void setMaxBufferedItemCount(String maxBufferedItemCount) {
+        setProperty(MAX_BUFFERED_ITEM_COUNT, maxBufferedItemCount);
+    }
+
+    public String getMaxBufferedItemCount() {
+        return getPropertyAsString(MAX_BUFFERED_ITEM_COUNT, Integer.toString(DEFAULT_MAX_BUFFERED_ITEM_COUNT));
+    }
+
+    public void setCopySamplerData(boolean copy) {
+        setProperty(COPY_SAMPLER_DATA, copy, true);
+    }
+
+    /**
+     * @return true if the response data is also copied to the sampler data, as it always was before it
+     *         became optional
+     */
+    public boolean isCopySamplerData() {
+        return getPropertyAsBoolean(COPY_SAMPLER_DATA, true);
+    }
+
+    public void setResultChecksum(boolean checksum) {
+        setProperty(RESULT_CHECKSUM, checksum, false);
+    }
+
+    /**
+     * @return true if query results are serialized through a checksum to validate them; otherwise they are
+     *         only counted and never touched
+     */
+    public boolean isResultChecksum() {
+        return getPropertyAsBoolean(RESULT_CHECKSUM, false);
+    }
+
+    public void setRawResults(boolean raw) {
+        setProperty(RAW_RESULTS, raw, false);
+    }
+
+    /**
+     * @return true if query results are streamed into byte counts as they are read, without the sampler
+     *         building a tree of each one
+     */
+    public boolean isRawResults() {
+        return getPropertyAsBoolean(RAW_RESULTS, false);
+    }
+
+    public void setChangeFeedStart(String start) {
+        setProperty(CHANGE_FEED_START, start);
+    }
+
+    /**
+     * @return where each thread starts reading the change feed: {@code BEGINNING}, {@code NOW} or an ISO-8601
+     *         instant such as {@code 2024-01-31T12:00:00Z}
+     */
+    public String getChangeFeedStart() {
+        return getPropertyAsString(CHANGE_FEED_START, "NOW");
+    }
+
+    public void setKeyFeederFile(String path) {
+        setProperty(KEY_FEEDER_FILE, path);
+    }
+
+    /**
+     * @return the fixed width key file that supplies the ids and partition keys, or empty if there is none
+     */
+    public String getKeyFeederFile() {
+        return getPropertyAsString(KEY_FEEDER_FILE, "");
+    }
+
+    public void setKeyDistribution(String distribution) {
+        setProperty(KEY_DISTRIBUTION, distribution);
+    }
+
+    public String getKeyDistribution() {
+        return getPropertyAsString(KEY_DISTRIBUTION, "sequential");
+    }
+
+    public void setKeyVariables(String names) {
+        setProperty(KEY_VARIABLES, names);
+    }
+
+    /**
+     * @return the comma separated names of the JMeter variables set from the fields of each key
+     */
+    public String getKeyVariables() {
+        return getPropertyAsString(KEY_VARIABLES, "id,pk");
+    }
+
+    public void setGovernorMode(String mode) {
+        setProperty(GOVERNOR_MODE, mode);
+    }
+
+    public String getGovernorMode() {
+        return getPropertyAsString(GOVERNOR_MODE, GovernorMode.NONE.name());
+    }
+
+    public void setGovernorTarget(String target) {
+        setProperty(GOVERNOR_TARGET, target);
+    }
+
+    /**
+     * @return the request units per second, or the share of throttled samples between 0 and 1, to hold
+     */
+    public String getGovernorTarget() {
+        return getPropertyAsString(GOVERNOR_TARGET, "");
+    }
+
+    public void setGovernorInitialRate(String rate) {
+        setProperty(GOVERNOR_INITIAL_RATE, rate);
+    }
+
+    public String getGovernorInitialRate() {
+        return getPropertyAsString(GOVERNOR_INITIAL_RATE, Integer.toString(DEFAULT_GOVERNOR_INITIAL_RATE));
+    }
+
+    public void setDiagnosticsJournal(String path) {
+        setProperty(DIAGNOSTICS_JOURNAL, path);
+    }
+
+    /**
+     * @return the path the diagnostics journal files are named after, or empty to keep no journal
+     */
+    public String getDiagnosticsJournal() {
+        return getPropertyAsString(DIAGNOSTICS_JOURNAL, "");
+    }
+
+    public void setDiagnosticsCapture(String capture) {
+        setProperty(DIAGNOSTICS_CAPTURE, capture);
+    }
+
+    /**
+     * @return the name of the {@link DiagnosticsCapture} policy selecting the samples whose diagnostics are
+     *         written to the journal
+     */
+    public String getDiagnosticsCapture() {
+        return getPropertyAsString(DIAGNOSTICS_CAPTURE, DiagnosticsCapture.ALWAYS.name());
+    }
+
+    public void setDiagnosticsThreshold(String millis) {
+        setProperty(DIAGNOSTICS_THRESHOLD, millis);
+    }
+
+    /**
+     * @return the latency, in milliseconds, above which {@link DiagnosticsCapture#SLOW} reads diagnostics
+     */
+    public String getDiagnosticsThreshold() {
+        return getPropertyAsString(DIAGNOSTICS_THRESHOLD, Integer.toString(DEFAULT_DIAGNOSTICS_THRESHOLD_MILLIS));
+    }
+
+    public void setDiagnosticsPercent(String percent) {
+        setProperty(DIAGNOSTICS_PERCENT, percent);
+    }
+
+    /**
+     * @return the percentage of samples whose diagnostics {@link DiagnosticsCapture#SAMPLED} reads
+     */
+    public String getDiagnosticsPercent() {
+        return getPropertyAsString(DIAGNOSTICS_PERCENT,
+                CosmosResponseMetrics.formatFixed(DEFAULT_DIAGNOSTICS_PERCENT, 0));
+    }
+
+    public void setJournalRotateSize(String megabytes) {
+        setProperty(JOURNAL_ROTATE_SIZE, megabytes);
+    }
+
+    /**
+     * @return the compressed size, in megabytes, at which the journal starts a new file
+     */
+    public String getJournalRotateSize() {
+        return getPropertyAsString(JOURNAL_ROTATE_SIZE, Integer.toString(DEFAULT_JOURNAL_ROTATE_MEGABYTES));
+    }
+
     @Override
     public void testStarted() {
         testStarted(""); // $NON-NLS-1$
@@ -184,42 +1140,185 @@ public class CosmosDBSampler extends AbstractSampler implements TestStateListene
 
     @Override
     public void testEnded() {
-        CosmosClientSingleton.shutDown();
         testEnded(""); // $NON-NLS-1$
     }
 
     @Override
     public void testStarted(String host) {
-        // ignored
+        if (SimulatedBackend.isSimulated(getCosmosDBURI())) {
+            try {
+                checkSimulatedOperation();
+            } catch (IllegalArgumentException e) {
+                // Failing the samples rather than the test start lets every listener start and end cleanly
+                logger.error("{} uses the simulated backend {}, so every sample will fail: {}", getName(),
+                        getCosmosDBURI(), e.getMessage());
+            }
+        }
+        HistogramAggregator.getInstance().testStarted();
+        HistogramAggregator.getInstance().setEngineSummaryInterval(
+                TimeUnit.SECONDS.toNanos(JMeterUtils.getPropDefault(ENGINE_SUMMARY_INTERVAL_PROPERTY, 0)));
+        int metricsPort = JMeterUtils.getPropDefault(METRICS_PORT_PROPERTY, -1);
+        if (metricsPort >= 0) {
+            servingMetrics = MetricsEndpoint.start(JMeterUtils.getPropDefault(METRICS_BIND_PROPERTY, ""),
+                    metricsPort, HistogramAggregator.getInstance());
+        }
+        // Hold the client for the whole test so it outlives thread groups that finish before others start.
+        if (!getCosmosDBURI().isEmpty() && !SimulatedBackend.isSimulated(getCosmosDBURI())) {
+            try {
+                testLease = CosmosClientRegistry.acquire(getClientSettings());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to create Cosmos DB client for {}", getCosmosDBURI(), e);
+            }
+        }
+        if (testLease != null && isWarmUp()) {
+            warmUp(testLease);
+        }
+    }
+
+    /**
+     * Opens the connections to the container and fills the address and collection caches before any thread
+     * starts, then runs the configured number of untimed queries. The time taken is reported on its own rather
+     * than in the latency of the first samples.
+     */
+    private void warmUp(CosmosClientRegistry.Lease lease) {
+        long start = System.nanoTime();
+        int queries = 0;
+        try {
+            CosmosAsyncContainer warmUpContainer = lease.getContainer(getDatabaseName(), getContainerID());
+            warmUpContainer.openConnectionsAndInitCaches().block();
+            int warmUpQueries = positiveInt(getWarmUpQueries(), 0);
+            if (Enums.fromString(OperationType.class, getOperationType(), OperationType.QUERY)
+                    == OperationType.QUERY) {
+                QueryMix mix = getParsedQueryMix();
+                int skipped = 0;
+                for (int i = 0; i < warmUpQueries; i++) {
+                    ParameterizedQuery query = mix != null ? mix.next().getQuery() : getParameterizedQuery();
+                    if (query.hasParameters()) {
+                        // Parameters are bound from thread variables, which do not exist yet
+                        skipped++;
+                        continue;
+                    }
+                    drainPages(warmUpContainer.queryItems(query.getQueryText(), newQueryRequestOptions(),
+                            JsonNode.class)).blockLast();
+                    queries++;
+                }
+                if (skipped > 0) {
+                    logger.warn("Skipped {} warm-up queries with parameters for {}", skipped, getQueryType());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Warm-up of container {} failed", getContainerID(), e);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        logger.info("Warm-up of container {} took {} ms including {} queries", getContainerID(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), queries);
+        HistogramAggregator.getInstance().recordWarmUp(getRunID(), getQueryType(), elapsedNanos, queries);
     }
 
     @Override
     public void testEnded(String host) {
-        // ignored
+        if (testLease != null) {
+            testLease.close();
+            testLease = null;
+        }
+        DocumentFeeder.closeAll();
+        KeyFeeder.closeAll();
+        RateGovernor.clearAll();
+        DiagnosticsJournal.closeAll();
+        if (servingMetrics) {
+            MetricsEndpoint.stop();
+            servingMetrics = false;
+        }
+        List<Map<String, String>> summaries = HistogramAggregator.getInstance().testEnded(
+                JMeterUtils.getPropDefault(HISTOGRAM_REPORT_PROPERTY, ""),
+                JMeterUtils.getPropDefault(HOT_PARTITIONS_PROPERTY, HistogramAggregator.DEFAULT_HOT_PARTITIONS));
+        // Only the last sampler to end gets the summaries, once every thread has stopped
+        if (!summaries.isEmpty()) {
+            String baselineFile = JMeterUtils.getPropDefault(BASELINE_FILE_PROPERTY, "");
+            if (!baselineFile.isEmpty()) {
+                int exitCode = JMeterUtils.getPropDefault(BASELINE_EXIT_CODE_PROPERTY, 0);
+                if (!finishBaseline(baselineFile, summaries).isEmpty() && exitCode != 0) {
+                    logger.error("Exiting with {} as queries regressed against baseline {}", exitCode, baselineFile);
+                    exitAfterTest(exitCode);
+                }
+            }
+            Baseline.clearAll();
+        }
+    }
+
+    @Override
+    public void threadStarted() {
+        threadStartMillis = System.currentTimeMillis();
+        previousSampleStartMillis = 0;
+    }
+
+    @Override
+    public void threadFinished() {
+        if (clientLease != null) {
+            clientLease.close();
+            clientLease = null;
+        }
+        container = null;
+        simulatedBackend = null;
+        changeFeedRanges = null;
+        changeFeedContinuations = null;
     }
 
     protected void connectCosmosClientIfNecessary() {
-        if (container == null) {
-            String uri = getCosmosDBURI();
-            String key = getCosmosDBKey();
+        if (container == null && simulatedBackend == null) {
+            if (SimulatedBackend.isSimulated(getCosmosDBURI())) {
+                checkSimulatedOperation();
+                simulatedBackend = SimulatedBackend.forUri(getCosmosDBURI());
+                return;
+            }
+            CosmosClientSettings settings = getClientSettings();
+            if (clientLease == null || !clientLease.getSettings().equals(settings)) {
+                if (clientLease != null) {
+                    clientLease.close();
+                }
+                clientLease = CosmosClientRegistry.acquire(settings);
+            }
+            container = clientLease.getContainer(getDatabaseName(), getContainerID());
+        }
+    }
 
-            CosmosAsyncClient client = CosmosClientSingleton.clientConnect(uri, key);
-            CosmosAsyncDatabase database = client.getDatabase(getDatabaseName());
-            container = database.getContainer(getContainerID());
+    /**
+     * The simulated backend only answers queries. Any other operation fails each sample with this reason, and
+     * is logged once when the test starts.
+     *
+     * @throws IllegalArgumentException if the operation type is not a query
+     */
+    private void checkSimulatedOperation() {
+        OperationType operation = Enums.fromString(OperationType.class, getOperationType(), OperationType.QUERY);
+        if (operation != OperationType.QUERY) {
+            throw new IllegalArgumentException("The simulated backend only supports queries, not " + operation);
         }
     }
 
-    private CosmosPagedFlux<JsonNode> queryCosmosContainer(Map<String, String> diagnosticsData) {
-        CosmosPagedFlux<JsonNode> pagedFluxResponse;
-        CosmosQueryRequestOptions queryOptions = new CosmosQueryRequestOptions();
-        queryOptions.setMaxDegreeOfParallelism(10);
-        queryOptions.setMaxBufferedItemCount(100);
-        queryOptions.setQueryMetricsEnabled(true);
+    private CosmosClientSettings getClientSettings() {
+        int idleEndpointTimeoutSeconds = positiveInt(getIdleEndpointTimeout(), 0);
+        List<String> preferredRegions = new ArrayList<>();
+        for (String region : getPreferredRegions().split(",")) {
+            if (!region.isBlank()) {
+                preferredRegions.add(region.trim());
+            }
+        }
+        return new CosmosClientSettings(getCosmosDBURI(), getCosmosDBKey(),
+                Enums.fromString(ConnectionMode.class, getConnectionMode(), ConnectionMode.DIRECT),
+                Enums.fromString(ConsistencyLevel.class, getConsistencyLevel(), ConsistencyLevel.SESSION),
+                positiveInt(getMaxConnectionsPerEndpoint(), 0),
+                idleEndpointTimeoutSeconds > 0 ? Duration.ofSeconds(idleEndpointTimeoutSeconds) : null,
+                preferredRegions);
+    }
+
+    private <T> CosmosPagedFlux<T> queryCosmosContainer(
+            Function<CosmosQueryRequestOptions, CosmosPagedFlux<T>> createQuery, Map<String, String> diagnosticsData) {
+        CosmosPagedFlux<T> pagedFluxResponse;
 
         try {
             long millis = System.currentTimeMillis();
 
-            pagedFluxResponse = container.queryItems(getCosmosDBQuery(), queryOptions, JsonNode.class);
+            pagedFluxResponse = createQuery.apply(getQueryRequestOptions());
 
             if (logger.isDebugEnabled()) {
                 long resultMillis = System.currentTimeMillis() - millis;
@@ -233,9 +1332,80 @@ public class CosmosDBSampler extends AbstractSampler implements TestStateListene
         return pagedFluxResponse;
     }
 
-    private JsonNode buildSampleResponseData(CosmosPagedFlux<JsonNode> response, Map<String, String> diagnosticsData) {
-        ObjectMapper mapper = new ObjectMapper();
-        String sqlQuery = getCosmosDBQuery();
+    private CosmosPagedFlux<JsonNode> createQuery(CosmosQueryRequestOptions queryOptions) {
+        if (simulatedBackend != null) {
+            return simulatedBackend.queryItems();
+        }
+        return createQuery(queryOptions, JsonNode.class);
+    }
+
+    /**
+     * Queries into {@link RawDocument}s, which are counted as the SDK hands them over instead of being built
+     * into trees. The simulated backend has no raw results, so it still hands over trees.
+     */
+    private CosmosPagedFlux<RawDocument> createRawQuery(CosmosQueryRequestOptions queryOptions) {
+        return createQuery(queryOptions, RawDocument.class);
+    }
+
+    private <T> CosmosPagedFlux<T> createQuery(CosmosQueryRequestOptions queryOptions, Class<T> resultType) {
+        ParameterizedQuery query = currentQuery;
+        if (query.hasParameters()) {
+            SqlQuerySpec querySpec = query.bind(JMeterContextService.getContext().getVariables());
+            return container.queryItems(querySpec, queryOptions, resultType);
+        }
+        return container.queryItems(query.getQueryText(), queryOptions, resultType);
+    }
+
+    /**
+     * Returns the parsed query for this sampler, parsing it again only when the query text or parameter
+     * bindings have changed, so repeated samples of the same query shape skip that work.
+     */
+    private ParameterizedQuery getParameterizedQuery() {
+        String queryText = getCosmosDBQuery();
+        String parameterSpec = getQueryParameters();
+        if (parameterizedQuery == null || !parameterizedQuery.matches(queryText, parameterSpec)) {
+            parameterizedQuery = ParameterizedQuery.parse(queryText, parameterSpec);
+        }
+        return parameterizedQuery;
+    }
+
+    /**
+     * Returns the parsed query mix, parsing it again only when it has changed, or null if there is none.
+     */
+    private QueryMix getParsedQueryMix() throws IOException {
+        String spec = getQueryMix();
+        if (spec.isBlank()) {
+            return null;
+        }
+        if (queryMix == null || !queryMix.matches(spec)) {
+            queryMix = QueryMix.parse(spec);
+        }
+        return queryMix;
+    }
+
+    /**
+     * Returns the query options for this sampler, built once and reused for every sample. Each thread has its
+     * own sampler clone and issues one query at a time, so the SDK never sees the same options concurrently.
+     */
+    private CosmosQueryRequestOptions getQueryRequestOptions() {
+        if (queryRequestOptions == null) {
+            queryRequestOptions = newQueryRequestOptions();
+        }
+        return queryRequestOptions;
+    }
+
+    private CosmosQueryRequestOptions newQueryRequestOptions() {
+        CosmosQueryRequestOptions queryOptions = new CosmosQueryRequestOptions();
+        // A negative degree of parallelism lets the SDK choose, so it is not forced positive like the other settings
+        queryOptions.setMaxDegreeOfParallelism(
+                intValue(getMaxDegreeOfParallelism(), DEFAULT_MAX_DEGREE_OF_PARALLELISM));
+        queryOptions.setMaxBufferedItemCount(positiveInt(getMaxBufferedItemCount(), DEFAULT_MAX_BUFFERED_ITEM_COUNT));
+        queryOptions.setQueryMetricsEnabled(true);
+        return queryOptions;
+    }
+
+    private void buildSampleResponseData(Map<String, String> diagnosticsData, SampleResult result) {
+        String sqlQuery = currentQuery.getQueryText();
 
         try {
             // Add SQL Query to the response
@@ -243,24 +1413,612 @@ public class CosmosDBSampler extends AbstractSampler implements TestStateListene
             // Add runID to the response
             diagnosticsData.put("runID", getRunID());
             // Add the query type to the response
-            diagnosticsData.put("queryType", getQueryType());
+            diagnosticsData.put("queryType", currentQueryType);
 
-            processCosmosResponseData(response, diagnosticsData);
+            if (isRawResults() && simulatedBackend == null) {
+                processRawResponseData(queryCosmosContainer(this::createRawQuery, diagnosticsData), diagnosticsData,
+                        result);
+            } else {
+                processCosmosResponseData(queryCosmosContainer(this::createQuery, diagnosticsData), diagnosticsData,
+                        result);
+            }
 
         } catch (final CosmosException ce) {
+            addFailure(ce);
             logger.error(String.format("Read Item failed with %s\n", ce));
         }
-        return mapper.valueToTree(diagnosticsData);
     }
 
-    protected void processCosmosResponseData(CosmosPagedFlux<JsonNode> response, Map<String, String> diagnosticsData) {
-        int pageSize = 10;
-        response.byPage(pageSize).flatMap(fr -> {
-            processCosmosDiagnosticsData(fr.getCosmosDiagnostics().toString(), diagnosticsData);
-            return Flux.empty();
+    private void buildItemResponseData(OperationType operation, Map<String, String> diagnosticsData)
+            throws IOException {
+        diagnosticsData.put("operation", operation.name());
+        diagnosticsData.put("runID", getRunID());
+        diagnosticsData.put("queryType", currentQueryType);
+
+        Mono<? extends CosmosItemResponse<?>> operationMono = createItemOperation(operation);
+        long callStart = System.nanoTime();
+        CosmosItemResponse<?> response = operationMono.block();
+        cosmosCallNanos += System.nanoTime() - callStart;
+        sampleMetrics.add(response);
+        sampleMetrics.writeTo(diagnosticsData);
+    }
+
+    /**
+     * Creates a point operation. The item id and partition key value come from the sampler properties,
+     * which typically reference JMeter variables, and writes take their body from the document template.
+     * When no partition key value is configured it is read from the document at the partition key path.
+     */
+    protected Mono<? extends CosmosItemResponse<?>> createItemOperation(OperationType operation) throws IOException {
+        String id = currentItemId != null ? currentItemId : getItemID();
+        switch (operation) {
+            case READ:
+                return container.readItem(id, resolvePartitionKey(null), JsonNode.class);
+            case DELETE:
+                return container.deleteItem(id, resolvePartitionKey(null), itemRequestOptions);
+            case PATCH:
+                return container.patchItem(id, resolvePartitionKey(null),
+                        ItemTemplates.parsePatchOperations(getDocumentTemplate()), JsonNode.class);
+            default:
+                break;
+        }
+
+        ObjectNode document = ItemTemplates.parseDocument(getDocumentTemplate(), id);
+        PartitionKey partitionKey = resolvePartitionKey(document);
+        switch (operation) {
+            case UPSERT:
+                return container.upsertItem(document, partitionKey, itemRequestOptions);
+            case CREATE:
+                return container.createItem(document, partitionKey, itemRequestOptions);
+            case REPLACE:
+                return container.replaceItem(document, document.get("id").asText(), partitionKey, itemRequestOptions);
+            default:
+                throw new IllegalArgumentException("Unsupported item operation: " + operation);
+        }
+    }
+
+    /**
+     * Issues the operation without blocking at the target rate for one window and reports the window as a
+     * single sample, with latency percentiles measured from each request's intended start time.
+     */
+    private void buildOpenLoopResponseData(OperationType operation, Map<String, String> diagnosticsData,
+                                           SampleResult result) throws InterruptedException {
+        if (operation == OperationType.QUERY) {
+            diagnosticsData.put("query", currentQuery.getQueryText());
+        } else {
+            diagnosticsData.put("operation", operation.name());
+        }
+        diagnosticsData.put("runID", getRunID());
+        diagnosticsData.put("queryType", currentQueryType);
+        diagnosticsData.put("issueMode", IssueMode.OPEN_LOOP.name());
+
+        Supplier<Mono<Double>> requests;
+        if (operation == OperationType.QUERY) {
+            // Requests overlap, so each needs its own options instead of the cached ones, and its own key
+            requests = () -> {
+                try {
+                    bindNextKey();
+                } catch (IOException e) {
+                    return Mono.error(e);
+                }
+                return drainPages(createQuery(newQueryRequestOptions()))
+                        .map(FeedResponse::getRequestCharge)
+                        .reduce(0.0, Double::sum);
+            };
+        } else {
+            requests = () -> {
+                try {
+                    bindNextKey();
+                    return createItemOperation(operation).map(CosmosItemResponse::getRequestCharge);
+                } catch (IOException e) {
+                    return Mono.error(e);
+                }
+            };
+        }
+
+        if (openLoopRunner == null) {
+            openLoopRunner = new OpenLoopRunner();
+        }
+        OpenLoopRunner.Window window = openLoopRunner.run(requests,
+                positiveDouble(getTargetRate(), DEFAULT_TARGET_RATE),
+                TimeUnit.MILLISECONDS.toNanos(positiveInt(getOpenLoopWindow(), DEFAULT_OPEN_LOOP_WINDOW_MILLIS)),
+                positiveInt(getMaxInFlight(), DEFAULT_MAX_IN_FLIGHT),
+                OPEN_LOOP_DRAIN_TIMEOUT_NANOS);
+
+        window.writeTo(diagnosticsData);
+        HistogramAggregator.Recorders recorders = getHistogramRecorders();
+        recorders.recordLatencies(window.getCorrectedLatency());
+        int errors = window.getFailed() + window.getTimedOut();
+        // Counting every request keeps JMeter's throughput and error rate right, but its elapsed-time statistics
+        // then divide the window length by the requests issued; the latencies are in the response data instead
+        result.setSampleCount(window.getIssued());
+        result.setErrorCount(errors);
+        if (errors > 0) {
+            recorders.recordError();
+            result.setSuccessful(false);
+            result.setResponseMessage(errors + " of " + window.getIssued() + " requests failed or timed out");
+        }
+    }
+
+    /**
+     * Reads the change feed of every feed range of the container in parallel and reports the read as one
+     * sample, with a sub-result per range. Each thread is an independent consumer: its first sample starts
+     * at the configured start point and later samples continue from where the previous one stopped. With
+     * the {@code FULL} drain mode a sample reads until every range has caught up.
+     */
+    private void buildChangeFeedResponseData(Map<String, String> diagnosticsData, SampleResult result) {
+        diagnosticsData.put("operation", OperationType.CHANGE_FEED.name());
+        diagnosticsData.put("runID", getRunID());
+        diagnosticsData.put("queryType", currentQueryType);
+
+        if (changeFeedRanges == null) {
+            changeFeedRanges = container.getFeedRanges().block();
+            changeFeedContinuations = new String[changeFeedRanges.size()];
+        }
+        int rangeCount = changeFeedRanges.size();
+        ChangeFeedMetrics metrics = new ChangeFeedMetrics(rangeCount);
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        Flux.range(0, rangeCount)
+                .flatMap(range -> drainPages(container.queryChangeFeed(changeFeedOptions(range), JsonNode.class))
+                        .doOnNext(page -> changeFeedContinuations[range] = page.getContinuationToken())
+                        .map(page -> Tuples.of(range, page)), Math.max(rangeCount, 1))
+                .doOnNext(rangePage -> metrics.add(rangePage.getT1(), rangePage.getT2(), System.currentTimeMillis()))
+                .blockLast();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        cosmosCallNanos += elapsedNanos;
+
+        metrics.writeTo(diagnosticsData, elapsedNanos);
+        metrics.addSubResults(result, start, System.currentTimeMillis());
+        sampleMetrics.addRequestCharge(metrics.getRequestCharge());
+    }
+
+    private CosmosChangeFeedRequestOptions changeFeedOptions(int range) {
+        String continuation = changeFeedContinuations[range];
+        if (continuation != null) {
+            return CosmosChangeFeedRequestOptions.createForProcessingFromContinuation(continuation);
+        }
+        FeedRange feedRange = changeFeedRanges.get(range);
+        String start = getChangeFeedStart().trim();
+        if ("BEGINNING".equalsIgnoreCase(start)) {
+            return CosmosChangeFeedRequestOptions.createForProcessingFromBeginning(feedRange);
+        } else if (start.isEmpty() || "NOW".equalsIgnoreCase(start)) {
+            return CosmosChangeFeedRequestOptions.createForProcessingFromNow(feedRange);
+        }
+        return CosmosChangeFeedRequestOptions.createForProcessingFromPointInTime(Instant.parse(start), feedRange);
+    }
+
+    /**
+     * Upserts a batch of documents through the bulk executor and reports the whole batch as one sample,
+     * with a sub-result per operation status code. Documents come from the feeder file when one is set and
+     * from the document template otherwise; documents without an id are given a random one.
+     */
+    private void buildBulkResponseData(Map<String, String> diagnosticsData, SampleResult result)
+            throws IOException {
+        diagnosticsData.put("operation", OperationType.BULK.name());
+        diagnosticsData.put("runID", getRunID());
+        diagnosticsData.put("queryType", currentQueryType);
+
+        List<CosmosItemOperation> operations = buildBulkOperations(positiveInt(getBulkBatchSize(),
+                DEFAULT_BULK_BATCH_SIZE));
+        CosmosBulkExecutionOptions options = new CosmosBulkExecutionOptions();
+        String initialMicroBatchSize = getBulkInitialMicroBatchSize();
+        if (!initialMicroBatchSize.isEmpty()) {
+            options.setInitialMicroBatchSize(positiveInt(initialMicroBatchSize, 1));
+        }
+        String maxMicroBatchConcurrency = getBulkMaxMicroBatchConcurrency();
+        if (!maxMicroBatchConcurrency.isEmpty()) {
+            options.setMaxMicroBatchConcurrency(positiveInt(maxMicroBatchConcurrency, 1));
+        }
+
+        BulkResponseMetrics metrics = new BulkResponseMetrics();
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        container.executeBulkOperations(Flux.fromIterable(operations), options).doOnNext(metrics::add).blockLast();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        cosmosCallNanos += elapsedNanos;
+
+        metrics.writeTo(diagnosticsData, elapsedNanos);
+        metrics.addSubResults(result, start, System.currentTimeMillis());
+        sampleMetrics.addRequestCharge(metrics.getRequestCharge());
+        sampleMetrics.addThrottles(metrics.getThrottledCount());
+        result.setSampleCount(metrics.getOperationCount());
+        result.setErrorCount(metrics.getFailedCount());
+        if (metrics.getFailedCount() > 0) {
+            result.setSuccessful(false);
+            result.setResponseMessage(metrics.getFailedCount() + " of " + metrics.getOperationCount()
+                    + " operations failed");
+        }
+    }
+
+    private List<CosmosItemOperation> buildBulkOperations(int batchSize) throws IOException {
+        List<CosmosItemOperation> operations = new ArrayList<>(batchSize);
+        String feederFile = getBulkFeederFile();
+        if (!feederFile.isEmpty()) {
+            for (ObjectNode document : DocumentFeeder.forFile(feederFile).nextDocuments(batchSize)) {
+                operations.add(bulkUpsert(document));
+            }
+        } else {
+            JsonNode template = getParsedDocumentTemplate();
+            if (!(template instanceof ObjectNode)) {
+                throw new IllegalArgumentException("Document template must be a JSON object");
+            }
+            for (int i = 0; i < batchSize; i++) {
+                operations.add(bulkUpsert(((ObjectNode) template).deepCopy()));
+            }
+        }
+        return operations;
+    }
+
+    private CosmosItemOperation bulkUpsert(ObjectNode document) {
+        if (!document.path("id").isTextual()) {
+            document.put("id", randomId());
+        }
+        return CosmosBulkOperations.getUpsertItemOperation(document, resolvePartitionKey(document));
+    }
+
+    private static String randomId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    /**
+     * Runs a transactional batch of {@code Batch Size} operations on one logical partition and reports it as
+     * one sample, with a sub-result per operation and status. The sample fails if the batch did, so the error
+     * rate of batch samples is the batch failure rate.
+     */
+    private void buildBatchResponseData(Map<String, String> diagnosticsData, SampleResult result)
+            throws IOException {
+        diagnosticsData.put("operation", OperationType.BATCH.name());
+        diagnosticsData.put("runID", getRunID());
+        diagnosticsData.put("queryType", currentQueryType);
+
+        CosmosBatch batch = buildBatch(positiveInt(getBatchSize(), DEFAULT_BATCH_SIZE));
+        BatchResponseMetrics metrics = new BatchResponseMetrics();
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        CosmosBatchResponse response = container.executeCosmosBatch(batch).block();
+        cosmosCallNanos += System.nanoTime() - startNanos;
+
+        metrics.add(response);
+        metrics.writeTo(diagnosticsData);
+        metrics.addSubResults(result, start, System.currentTimeMillis());
+        sampleMetrics.add(response.getDiagnostics());
+        sampleMetrics.addRequestCharge(metrics.getRequestCharge());
+        result.setResponseCode(Integer.toString(metrics.getStatusCode()));
+        if (metrics.getStatusCode() == HttpConstants.StatusCodes.TOO_MANY_REQUESTS) {
+            sampleMetrics.addThrottles(1);
+        }
+        if (!metrics.isSuccessful()) {
+            result.setSuccessful(false);
+            result.setResponseMessage("Batch failed: " + metrics.getErrorMessage());
+        }
+    }
+
+    /**
+     * Builds a batch from the batch operations. Creates and upserts write copies of the document template with
+     * a random id; the other operations act on the last item written earlier in the batch, or on the item id
+     * if there is none. All of them go to the partition key value of the partition key variable, which is also
+     * written into the documents at the partition key path.
+     */
+    private CosmosBatch buildBatch(int batchSize) throws IOException {
+        BatchMix mix = getParsedBatchMix();
+        JsonNode parsed = getParsedDocumentTemplate();
+        ObjectNode template = parsed instanceof ObjectNode ? (ObjectNode) parsed : null;
+        String value = getBatchPartitionKeyValue();
+        PartitionKey partitionKey;
+        if (!value.isEmpty()) {
+            Object typedValue = typedPartitionKeyValue(value);
+            partitionKey = new PartitionKey(typedValue);
+            if (template != null && !getPartitionKeyPath().isEmpty()) {
+                // The parsed template is kept for later samples, so this sample's value goes into a copy
+                template = template.deepCopy();
+                ItemTemplates.setPartitionKey(template, getPartitionKeyPath(), typedValue);
+            }
+        } else if (template != null) {
+            partitionKey = ItemTemplates.partitionKey(template, getPartitionKeyPath());
+        } else {
+            throw new IllegalArgumentException("A batch needs a partition key variable, a partition key value or "
+                    + "a document template");
+        }
+
+        String itemId = currentItemId != null ? currentItemId : getItemID();
+        if (itemId.isEmpty() && template != null && template.path("id").isTextual()) {
+            itemId = template.get("id").asText();
+        }
+        Deque<String> written = new ArrayDeque<>();
+        CosmosPatchOperations patchOperations = null;
+        CosmosBatch batch = CosmosBatch.createCosmosBatch(partitionKey);
+        for (int i = 0; i < batchSize; i++) {
+            CosmosItemOperationType operation = mix.operationAt(i);
+            String id = written.isEmpty() ? itemId : written.peek();
+            ObjectNode document = null;
+            if (BatchMix.hasDocument(operation)) {
+                if (template == null) {
+                    throw new IllegalArgumentException("Batch operation " + operation + " needs a document template");
+                }
+                document = template.deepCopy();
+                if (operation != CosmosItemOperationType.REPLACE) {
+                    id = randomId();
+                    written.push(id);
+                }
+            }
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("Batch operation " + operation + " needs an item written before "
+                        + "it in the batch, or an item id");
+            }
+            switch (operation) {
+                case CREATE:
+                    batch.createItemOperation(document.put("id", id));
+                    break;
+                case UPSERT:
+                    batch.upsertItemOperation(document.put("id", id));
+                    break;
+                case REPLACE:
+                    batch.replaceItemOperation(id, document.put("id", id));
+                    break;
+                case PATCH:
+                    if (patchOperations == null) {
+                        patchOperations = ItemTemplates.parsePatchOperations(getBatchPatchTemplate());
+                    }
+                    batch.patchItemOperation(id, patchOperations);
+                    break;
+                case READ:
+                    batch.readItemOperation(id);
+                    break;
+                case DELETE:
+                    batch.deleteItemOperation(id);
+                    if (!written.isEmpty()) {
+                        written.pop();
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported batch operation: " + operation);
+            }
+        }
+        return batch;
+    }
+
+    private BatchMix getParsedBatchMix() {
+        String spec = getBatchOperations();
+        if (batchMix == null || !batchMix.matches(spec)) {
+            batchMix = BatchMix.parse(spec);
+        }
+        return batchMix;
+    }
+
+    /**
+     * Returns the parsed document template, parsing it again only when it has changed. It is shared by every
+     * sample of the thread, so callers copy it before changing it.
+     */
+    private JsonNode getParsedDocumentTemplate() throws IOException {
+        String source = getDocumentTemplate();
+        if (documentTemplate == null || !source.equals(documentTemplateSource)) {
+            documentTemplate = ItemTemplates.MAPPER.readTree(source);
+            documentTemplateSource = source;
+        }
+        return documentTemplate;
+    }
+
+    /**
+     * @return the value of the partition key variable when one is named, or else the partition key of the
+     *         current key or the partition key value
+     * @throws IllegalArgumentException if the partition key variable is not set
+     */
+    private String getBatchPartitionKeyValue() {
+        String name = getBatchPartitionKeyVariable();
+        if (name.isEmpty()) {
+            return currentPartitionKeyValue != null ? currentPartitionKeyValue : getPartitionKeyValue();
+        }
+        JMeterVariables variables = JMeterContextService.getContext().getVariables();
+        String value = variables != null ? variables.get(name) : null;
+        if (value == null) {
+            throw new IllegalArgumentException("Partition key variable " + name + " is not set");
+        }
+        return value;
+    }
+
+    /**
+     * @return a configured partition key value converted to the partition key type, so containers keyed by
+     *         numbers or booleans can be addressed without reading the key from a document
+     * @throws IllegalArgumentException if the value is not a number and the type is
+     */
+    private Object typedPartitionKeyValue(String value) {
+        try {
+            return Enums.fromString(ValueType.class, getPartitionKeyType(), ValueType.STRING).convert(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Partition key value is not a number: " + value, e);
+        }
+    }
+
+    private PartitionKey resolvePartitionKey(JsonNode document) {
+        String value = currentPartitionKeyValue != null ? currentPartitionKeyValue : getPartitionKeyValue();
+        if (!value.isEmpty()) {
+            return new PartitionKey(typedPartitionKeyValue(value));
+        }
+        if (document == null) {
+            throw new IllegalArgumentException("A partition key value is required for point operations");
+        }
+        return ItemTemplates.partitionKey(document, getPartitionKeyPath());
+    }
+
+    /**
+     * Reads the pages selected by the drain mode, recording each page as a sub-result of {@code result}
+     * and the totals across all pages in {@code diagnosticsData}.
+     */
+    protected void processCosmosResponseData(CosmosPagedFlux<JsonNode> response, Map<String, String> diagnosticsData,
+                                             SampleResult result) {
+        boolean checksum = isResultChecksum();
+        resultChecksum.reset();
+        readPages(response, result, checksum ? documents -> documents.forEach(resultChecksum::add) : null);
+
+        writeDrainTotals(diagnosticsData);
+        if (checksum) {
+            resultChecksum.writeTo(diagnosticsData);
+        }
+    }
+
+    /**
+     * Reads the pages selected by the drain mode like {@link #processCosmosResponseData}, adding up the byte
+     * counts and checksums the results were streamed into as they were read.
+     */
+    private void processRawResponseData(CosmosPagedFlux<RawDocument> response, Map<String, String> diagnosticsData,
+                                        SampleResult result) {
+        resultChecksum.reset();
+        readPages(response, result, documents -> documents.forEach(resultChecksum::add));
+
+        writeDrainTotals(diagnosticsData);
+        if (isResultChecksum()) {
+            resultChecksum.writeTo(diagnosticsData);
+        } else {
+            diagnosticsData.put(ResultChecksum.RESULT_BYTES, Long.toString(resultChecksum.getByteCount()));
+        }
+    }
+
+    /**
+     * Drains {@code response}, recording each page as a sub-result of {@code result} and handing its results
+     * to {@code onResults}, if any. That is work of the sampler, not of Cosmos DB, so its time is taken out of
+     * the call time.
+     */
+    private <T> void readPages(CosmosPagedFlux<T> response, SampleResult result, Consumer<List<T>> onResults) {
+        long[] pageStart = {System.currentTimeMillis()};
+        long[] onResultsNanos = {0};
+        long callStart = System.nanoTime();
+        drainPages(response).doOnNext(page -> {
+            long pageEnd = System.currentTimeMillis();
+            double chargeBefore = sampleMetrics.getRequestCharge();
+            long itemsBefore = sampleMetrics.getItemCount();
+            sampleMetrics.add(page);
+            if (onResults != null) {
+                long onResultsStart = System.nanoTime();
+                onResults.accept(page.getResults());
+                onResultsNanos[0] += System.nanoTime() - onResultsStart;
+            }
+            result.addRawSubResult(buildPageResult(result.getSampleLabel(), sampleMetrics.getPageCount(),
+                    pageStart[0], pageEnd, sampleMetrics.getRequestCharge() - chargeBefore,
+                    sampleMetrics.getItemCount() - itemsBefore));
+            pageStart[0] = pageEnd;
         }).blockLast();
+        cosmosCallNanos += System.nanoTime() - callStart - onResultsNanos[0];
+    }
+
+    private void writeDrainTotals(Map<String, String> diagnosticsData) {
+        sampleMetrics.writeTo(diagnosticsData);
+        diagnosticsData.put("PageCount", Integer.toString(sampleMetrics.getPageCount()));
+        diagnosticsData.put("ItemCount", Long.toString(sampleMetrics.getItemCount()));
+    }
+
+    /**
+     * @return the pages of {@code response} selected by the drain mode and page size
+     */
+    private <T> Flux<FeedResponse<T>> drainPages(CosmosPagedFlux<T> response) {
+        Flux<FeedResponse<T>> pages = response.byPage(positiveInt(getPageSize(), DEFAULT_PAGE_SIZE));
+        switch (Enums.fromString(DrainMode.class, getDrainMode(), DrainMode.FULL)) {
+            case FIRST_PAGE:
+                return pages.take(1);
+            case PAGES:
+                return pages.take(positiveInt(getMaxPages(), DEFAULT_MAX_PAGES));
+            default:
+                return pages;
+        }
+    }
+
+    /**
+     * @return a sub-result carrying this engine's summary, as JSON in its sampler data, which unlike the
+     *         response data is kept when the engine strips results before sending them to the controller
+     */
+    /**
+     * Tells whether the thread group is done with this thread after this sample, as far as its loop count or
+     * scheduled duration say. Guessing wrong costs little: summaries are cumulative, so an early one is only
+     * superseded, and only a missed one loses the tail of the test.
+     *
+     * @param cycleMillis the time since this thread's previous sample started, or 0 for its first sample
+     */
+    private boolean isLastSampleOfThread(long cycleMillis) {
+        JMeterContext context = JMeterContextService.getContext();
+        AbstractThreadGroup group = context.getThreadGroup();
+        if (!(group instanceof ThreadGroup)) {
+            return false;
+        }
+        ThreadGroup threadGroup = (ThreadGroup) group;
+        Controller controller = threadGroup.getSamplerController();
+        JMeterVariables variables = context.getVariables();
+        if (controller instanceof LoopController && variables != null) {
+            int loops = ((LoopController) controller).getLoops();
+            if (loops > 0 && variables.getIteration() >= loops) {
+                return true;
+            }
+        }
+        if (threadGroup.getScheduler() && threadGroup.getDuration() > 0 && threadStartMillis > 0) {
+            long endMillis = threadStartMillis + TimeUnit.SECONDS.toMillis(threadGroup.getDuration());
+            // The next sample would start about one cycle from now; allowing two absorbs uneven cycles
+            return System.currentTimeMillis() + 2 * cycleMillis >= endMillis;
+        }
+        return false;
+    }
+
+    private static SampleResult buildEngineSummaryResult() {
+        SampleResult summaryResult = new SampleResult(System.currentTimeMillis(), 0);
+        summaryResult.setSampleLabel(EngineSummary.LABEL);
+        summaryResult.setDataEncoding(UTF_8.name());
+        summaryResult.setDataType(SampleResult.TEXT);
+        summaryResult.setResponseCodeOK();
+        summaryResult.setResponseMessage("OK");
+        summaryResult.setSuccessful(true);
+        try {
+            summaryResult.setSamplerData(HistogramAggregator.getInstance().engineSummary().toJson());
+        } catch (IOException e) {
+            logger.warn("Failed to serialize the engine summary", e);
+        }
+        return summaryResult;
+    }
+
+    private static SampleResult buildPageResult(String label, int pageNumber, long start, long end,
+                                                double requestCharge, long itemCount) {
+        SampleResult pageResult = new SampleResult();
+        pageResult.setSampleLabel(label + " page " + pageNumber);
+        pageResult.setStampAndTime(start, end - start);
+        pageResult.setDataEncoding(UTF_8.name());
+        pageResult.setDataType(SampleResult.TEXT);
+        pageResult.setResponseCodeOK();
+        pageResult.setResponseMessage("OK");
+        pageResult.setSuccessful(true);
+        pageResult.setResponseData("{\"RequestCharge\":" + requestCharge + ",\"ItemCount\":" + itemCount + "}",
+                UTF_8.name());
+        return pageResult;
+    }
+
+    private static double positiveDouble(String value, double defaultValue) {
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static int intValue(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static int positiveInt(String value, int defaultValue) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
 
+    /**
+     * Parses a {@code CosmosDiagnostics} string into the diagnostics map.
+     * <p>
+     * This is the original text based parser. Samples are now populated from {@link CosmosResponseMetrics},
+     * which produces the same keys without formatting and re-parsing the diagnostics on every page.
+     */
     protected void processCosmosDiagnosticsData(String cosmosDiagnostics, Map<String, String> diagnosticsData) {
         String[] splitDiagnostic = cosmosDiagnostics.split(System.lineSeparator());
 
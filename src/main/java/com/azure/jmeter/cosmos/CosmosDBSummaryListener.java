@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.samplers.Remoteable;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Merges the {@link EngineSummary engine summaries} the samplers of every engine send into one report for
+ * the whole test.
+ * <p>
+ * In a distributed test JMeter runs this listener on the controller and forwards it the results of every
+ * engine, because it is {@link Remoteable}. Only the latest summary of each engine is kept, since summaries
+ * are cumulative. The merged summaries are logged, and optionally appended as JSON lines to a report file,
+ * once every engine has ended its test. Each thread sends a final summary with its last sample, when its
+ * thread group's loop count or scheduled duration tells which that is.
+ * <p>
+ * The summaries ride on 0 ms sub-results labelled {@link EngineSummary#LABEL}, which other listeners
+ * count as samples unless they filter that label out.
+ */
+public class CosmosDBSummaryListener extends AbstractTestElement
+        implements SampleListener, TestStateListener, Remoteable, NoThreadClone {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LogManager.getLogger(CosmosDBSummaryListener.class);
+
+    private static final String REPORT_FILE = "CosmosDB.summaryReportFile";
+    private static final String HOT_PARTITIONS = "CosmosDB.summaryHotPartitions";
+
+    private final transient Map<String, EngineSummary> engines = new ConcurrentHashMap<>();
+    private transient int runningEngines;
+
+    public void setReportFile(String path) {
+        setProperty(REPORT_FILE, path);
+    }
+
+    /**
+     * @return the file to append the merged summaries to, or empty to only log them
+     */
+    public String getReportFile() {
+        return getPropertyAsString(REPORT_FILE, "");
+    }
+
+    public void setHotPartitions(String count) {
+        setProperty(HOT_PARTITIONS, count);
+    }
+
+    public String getHotPartitions() {
+        return getPropertyAsString(HOT_PARTITIONS, Integer.toString(HistogramAggregator.DEFAULT_HOT_PARTITIONS));
+    }
+
+    @Override
+    public void sampleOccurred(SampleEvent event) {
+        for (SampleResult subResult : event.getResult().getSubResults()) {
+            if (EngineSummary.LABEL.equals(subResult.getSampleLabel())) {
+                add(subResult.getSamplerData());
+            }
+        }
+    }
+
+    /**
+     * Keeps a summary unless a later one from the same engine has already arrived.
+     */
+    void add(String json) {
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+        try {
+            EngineSummary summary = EngineSummary.fromJson(json);
+            engines.merge(summary.getEngine(), summary,
+                    (kept, received) -> received.getSequence() > kept.getSequence() ? received : kept);
+        } catch (IOException e) {
+            logger.warn("Ignoring malformed Cosmos DB engine summary", e);
+        }
+    }
+
+    /**
+     * @return the summaries of every engine merged, as for the histograms of a single engine
+     */
+    List<Map<String, String>> summarize() {
+        EngineSummary merged = new EngineSummary("", 0);
+        for (EngineSummary summary : engines.values()) {
+            merged.merge(summary);
+        }
+        int hotPartitions;
+        try {
+            hotPartitions = Math.max(Integer.parseInt(getHotPartitions().trim()), 0);
+        } catch (NumberFormatException e) {
+            hotPartitions = HistogramAggregator.DEFAULT_HOT_PARTITIONS;
+        }
+        return merged.summarize(hotPartitions);
+    }
+
+    @Override
+    public void sampleStarted(SampleEvent event) {
+    }
+
+    @Override
+    public void sampleStopped(SampleEvent event) {
+    }
+
+    @Override
+    public void testStarted() {
+        testStarted(""); // $NON-NLS-1$
+    }
+
+    @Override
+    public synchronized void testStarted(String host) {
+        if (runningEngines++ == 0) {
+            engines.clear();
+        }
+    }
+
+    @Override
+    public void testEnded() {
+        testEnded(""); // $NON-NLS-1$
+    }
+
+    /**
+     * Reports once the last engine has ended, as the controller is told of each engine separately.
+     */
+    @Override
+    public synchronized void testEnded(String host) {
+        if (runningEngines > 0 && --runningEngines > 0) {
+            return;
+        }
+        List<Map<String, String>> summaries = summarize();
+        for (Map<String, String> summary : summaries) {
+            logger.info("Cosmos DB sampler summary of {} engines: {}", engines.size(), summary);
+        }
+        String reportFile = getReportFile();
+        if (!reportFile.isEmpty()) {
+            HistogramAggregator.writeReport(reportFile, summaries);
+        }
+        engines.clear();
+    }
+}
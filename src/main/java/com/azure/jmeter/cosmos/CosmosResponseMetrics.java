@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.azure.cosmos.BridgeInternal;
+import com.azure.cosmos.CosmosDiagnostics;
+import com.azure.cosmos.implementation.ClientSideMetrics;
+import com.azure.cosmos.implementation.ClientSideRequestStatistics;
+import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.implementation.QueryMetrics;
+import com.azure.cosmos.implementation.QueryPreparationTimes;
+import com.azure.cosmos.implementation.RetryContext;
+import com.azure.cosmos.implementation.RuntimeExecutionTimes;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.FeedResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Numeric request charge and query metrics for a single sample, read directly from the
+ * {@link FeedResponse} pages or {@link CosmosItemResponse} instead of being parsed out of the diagnostics string.
+ * <p>
+ * Values are accumulated across every page added, and rendered with the same key names and
+ * formatting the text based parser produced so existing dashboards keep working.
+ * Instances are not thread safe; pages of a single paged flux are delivered sequentially.
+ * An instance can be {@link #reset() reset} and reused for the next sample.
+ * <p>
+ * The SDK retries throttled (429) requests internally. The attempts it made are read from the request statistics
+ * behind each diagnostics object rather than from the diagnostics text, which is expensive to render and is
+ * only rendered for samples whose diagnostics are {@link #setCaptureDiagnostics(boolean) captured}. The request
+ * statistics are not part of the public SDK API, so if they cannot be read retries are no longer counted.
+ */
+public class CosmosResponseMetrics {
+
+    private static final Logger logger = LogManager.getLogger(CosmosResponseMetrics.class);
+
+    /** Cleared the first time the request statistics of the SDK cannot be read; no sample tries again after. */
+    static final AtomicBoolean RETRY_STATISTICS_READABLE = new AtomicBoolean(true);
+
+    static final String REQUEST_CHARGE = "RequestCharge";
+    static final String RETRIEVED_DOCUMENT_COUNT = "RetrievedDocumentCount";
+    static final String RETRIEVED_DOCUMENT_SIZE = "RetrievedDocumentSize";
+    static final String OUTPUT_DOCUMENT_COUNT = "OutputDocumentCount";
+    static final String OUTPUT_DOCUMENT_SIZE = "OutputDocumentSize";
+    static final String INDEX_UTILIZATION = "IndexUtilization";
+    static final String TOTAL_QUERY_EXECUTION_TIME = "TotalQueryExecutionTime";
+    static final String QUERY_COMPILATION_TIME = "QueryPreparationTimesQueryCompilationTime";
+    static final String LOGICAL_PLAN_BUILD_TIME = "LogicalPlanBuildTime";
+    static final String PHYSICAL_PLAN_BUILD_TIME = "PhysicalPlanBuildTime";
+    static final String QUERY_OPTIMIZATION_TIME = "QueryOptimizationTime";
+    static final String INDEX_LOOKUP_TIME = "IndexLookupTime";
+    static final String DOCUMENT_LOAD_TIME = "DocumentLoadTime";
+    static final String QUERY_ENGINE_TIME = "RuntimeExecutionTimesQueryEngineTimes";
+    static final String STATUS_CODE = "StatusCode";
+    static final String LATENCY = "Latency";
+    static final String THROTTLE_COUNT = "ThrottleCount";
+    static final String RETRY_COUNT = "RetryCount";
+    static final String RETRY_WAIT = "RetryWait";
+    static final String PARTITION_REQUEST_CHARGE = "PartitionRequestCharge";
+    static final String PARTITION_DOCUMENT_COUNT = "PartitionDocumentCount";
+    static final String PARTITION_QUERY_EXECUTION_TIME = "PartitionQueryExecutionTime";
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private double requestCharge;
+    private int statusCode;
+    private long latencyNanos;
+    private int pageCount;
+    private long itemCount;
+    private boolean hasQueryMetrics;
+    private long retrievedDocumentCount;
+    private long retrievedDocumentSize;
+    private long outputDocumentCount;
+    private long outputDocumentSize;
+    private long indexHitDocumentCount;
+    private long totalQueryExecutionNanos;
+    private long queryCompilationNanos;
+    private long logicalPlanBuildNanos;
+    private long physicalPlanBuildNanos;
+    private long queryOptimizationNanos;
+    private long indexLookupNanos;
+    private long documentLoadNanos;
+    private long queryEngineNanos;
+    private int throttleCount;
+    private int retryCount;
+    private long retryWaitNanos;
+    private final Map<String, PartitionMetrics> partitions = new LinkedHashMap<>();
+    private final List<CosmosDiagnostics> pendingDiagnostics = new ArrayList<>();
+    private boolean captureDiagnostics;
+    private List<String> capturedDiagnostics = new ArrayList<>();
+
+    /**
+     * The share of a sample's query work done by one partition key range.
+     */
+    public static final class PartitionMetrics {
+        private final String partitionKeyRangeId;
+        private int pageCount;
+        private long retrievedDocumentCount;
+        private double requestCharge;
+        private long queryExecutionNanos;
+
+        private PartitionMetrics(String partitionKeyRangeId) {
+            this.partitionKeyRangeId = partitionKeyRangeId;
+        }
+
+        public String getPartitionKeyRangeId() {
+            return partitionKeyRangeId;
+        }
+
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        public long getRetrievedDocumentCount() {
+            return retrievedDocumentCount;
+        }
+
+        public double getRequestCharge() {
+            return requestCharge;
+        }
+
+        public long getQueryExecutionNanos() {
+            return queryExecutionNanos;
+        }
+    }
+
+    /**
+     * Adds the request charge, item count and any query metrics carried by a result page.
+     */
+    public void add(FeedResponse<?> page) {
+        requestCharge += page.getRequestCharge();
+        itemCount += page.getResults().size();
+        pageCount++;
+        add(page.getCosmosDiagnostics());
+        Map<String, QueryMetrics> queryMetrics = BridgeInternal.queryMetricsFromFeedResponse(page);
+        if (queryMetrics != null) {
+            for (Map.Entry<String, QueryMetrics> partitionMetrics : queryMetrics.entrySet()) {
+                add(partitionMetrics.getValue());
+                // A page from a single range is charged to it in full; otherwise each range reports its own share
+                double charge = queryMetrics.size() == 1
+                        ? page.getRequestCharge() : clientSideCharge(partitionMetrics.getValue());
+                addPartition(partitionMetrics.getKey(), partitionMetrics.getValue(), charge);
+            }
+        }
+    }
+
+    private static double clientSideCharge(QueryMetrics queryMetrics) {
+        ClientSideMetrics clientSideMetrics = queryMetrics.getClientSideMetrics();
+        return clientSideMetrics == null ? 0 : clientSideMetrics.getRequestCharge();
+    }
+
+    /**
+     * Adds a page of query metrics, and its request charge, to the partition key range that produced it.
+     */
+    void addPartition(String partitionKeyRangeId, QueryMetrics queryMetrics, double charge) {
+        PartitionMetrics partition = partitions.get(partitionKeyRangeId);
+        if (partition == null) {
+            partition = new PartitionMetrics(partitionKeyRangeId);
+            partitions.put(partitionKeyRangeId, partition);
+        }
+        partition.pageCount++;
+        partition.retrievedDocumentCount += queryMetrics.getRetrievedDocumentCount();
+        partition.requestCharge += charge;
+        partition.queryExecutionNanos += nanos(queryMetrics.getTotalQueryExecutionTime());
+    }
+
+    /**
+     * Adds the request charge, status code and latency of a point operation.
+     */
+    public void add(CosmosItemResponse<?> response) {
+        requestCharge += response.getRequestCharge();
+        statusCode = response.getStatusCode();
+        latencyNanos += nanos(response.getDuration());
+        add(response.getDiagnostics());
+    }
+
+    /**
+     * Adds the throttled attempts, retries and time spent waiting to retry recorded for a page, point operation
+     * or failure. When {@link #setCaptureDiagnostics(boolean) capturing}, also holds on to the diagnostics until
+     * they are {@link #readDiagnostics() read} or {@link #discardDiagnostics() discarded}.
+     */
+    public void add(CosmosDiagnostics diagnostics) {
+        if (diagnostics == null) {
+            return;
+        }
+        if (RETRY_STATISTICS_READABLE.get()) {
+            try {
+                addRetries(diagnostics);
+            } catch (LinkageError | RuntimeException e) {
+                // The request statistics are SDK internals, which another SDK version may have changed
+                if (RETRY_STATISTICS_READABLE.getAndSet(false)) {
+                    logger.warn("Cannot read retries from the request statistics of this Cosmos DB SDK version,"
+                            + " so retried 429s of requests that succeeded are not counted", e);
+                }
+            }
+        }
+        if (captureDiagnostics) {
+            pendingDiagnostics.add(diagnostics);
+        }
+    }
+
+    private void addRetries(CosmosDiagnostics diagnostics) {
+        ClientSideRequestStatistics statistics = BridgeInternal.getClientSideRequestStatics(diagnostics);
+        if (statistics != null) {
+            addRetries(statistics.getRetryContext());
+        } else {
+            // Query pages keep the statistics of every request that went into them
+            for (ClientSideRequestStatistics requestStatistics
+                    : BridgeInternal.getClientSideRequestStatisticsList(diagnostics)) {
+                addRetries(requestStatistics.getRetryContext());
+            }
+        }
+    }
+
+    /**
+     * Adds the attempts the SDK made before a request succeeded or it gave up, counting those rejected with 429.
+     */
+    void addRetries(RetryContext retryContext) {
+        if (retryContext == null) {
+            return;
+        }
+        List<int[]> statusCodes = retryContext.getStatusAndSubStatusCodes();
+        if (statusCodes != null) {
+            for (int[] statusCode : statusCodes) {
+                if (statusCode[0] == HttpConstants.StatusCodes.TOO_MANY_REQUESTS) {
+                    throttleCount++;
+                }
+            }
+        }
+        retryCount += retryContext.getRetryCount();
+        retryWaitNanos += retryContext.getRetryLatency() * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return true if diagnostics were added that are neither read nor discarded yet
+     */
+    public boolean hasPendingDiagnostics() {
+        return !pendingDiagnostics.isEmpty();
+    }
+
+    /**
+     * Renders the pending diagnostics as text, to be handed on with {@link #takeDiagnostics()}.
+     */
+    public void readDiagnostics() {
+        for (CosmosDiagnostics diagnostics : pendingDiagnostics) {
+            capturedDiagnostics.add(diagnostics.toString());
+        }
+        pendingDiagnostics.clear();
+    }
+
+    /**
+     * Drops the pending diagnostics without rendering them. Throttle and retry counts are kept.
+     */
+    public void discardDiagnostics() {
+        pendingDiagnostics.clear();
+    }
+
+    /**
+     * Sets whether the diagnostics added are held on to, so that their full text can be
+     * {@link #readDiagnostics() read} and handed on with {@link #takeDiagnostics()}.
+     */
+    public void setCaptureDiagnostics(boolean capture) {
+        this.captureDiagnostics = capture;
+    }
+
+    /**
+     * @return the diagnostics captured since the last reset, which the caller now owns
+     */
+    public List<String> takeDiagnostics() {
+        if (capturedDiagnostics.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> taken = capturedDiagnostics;
+        capturedDiagnostics = new ArrayList<>();
+        return taken;
+    }
+
+    /**
+     * Counts requests that failed with 429 once the SDK gave up retrying them.
+     */
+    public void addThrottles(int count) {
+        throttleCount += count;
+    }
+
+    void addRequestCharge(double charge) {
+        requestCharge += charge;
+    }
+
+    void add(QueryMetrics queryMetrics) {
+        hasQueryMetrics = true;
+        retrievedDocumentCount += queryMetrics.getRetrievedDocumentCount();
+        retrievedDocumentSize += queryMetrics.getRetrievedDocumentSize();
+        outputDocumentCount += queryMetrics.getOutputDocumentCount();
+        outputDocumentSize += queryMetrics.getOutputDocumentSize();
+        indexHitDocumentCount += queryMetrics.getIndexHitDocumentCount();
+        totalQueryExecutionNanos += nanos(queryMetrics.getTotalQueryExecutionTime());
+        indexLookupNanos += nanos(queryMetrics.getIndexLookupTime());
+        documentLoadNanos += nanos(queryMetrics.getDocumentLoadTime());
+
+        QueryPreparationTimes preparationTimes = queryMetrics.getQueryPreparationTimes();
+        if (preparationTimes != null) {
+            queryCompilationNanos += nanos(preparationTimes.getQueryCompilationTime());
+            logicalPlanBuildNanos += nanos(preparationTimes.getLogicalPlanBuildTime());
+            physicalPlanBuildNanos += nanos(preparationTimes.getPhysicalPlanBuildTime());
+            queryOptimizationNanos += nanos(preparationTimes.getQueryOptimizationTime());
+        }
+
+        RuntimeExecutionTimes runtimeTimes = queryMetrics.getRuntimeExecutionTimes();
+        if (runtimeTimes != null) {
+            queryEngineNanos += nanos(runtimeTimes.getQueryEngineExecutionTime());
+        }
+    }
+
+    /**
+     * Clears every value so the instance can be reused.
+     */
+    public void reset() {
+        pendingDiagnostics.clear();
+        capturedDiagnostics.clear();
+        requestCharge = 0;
+        statusCode = 0;
+        latencyNanos = 0;
+        pageCount = 0;
+        itemCount = 0;
+        hasQueryMetrics = false;
+        retrievedDocumentCount = 0;
+        retrievedDocumentSize = 0;
+        outputDocumentCount = 0;
+        outputDocumentSize = 0;
+        indexHitDocumentCount = 0;
+        totalQueryExecutionNanos = 0;
+        queryCompilationNanos = 0;
+        logicalPlanBuildNanos = 0;
+        physicalPlanBuildNanos = 0;
+        queryOptimizationNanos = 0;
+        indexLookupNanos = 0;
+        documentLoadNanos = 0;
+        queryEngineNanos = 0;
+        throttleCount = 0;
+        retryCount = 0;
+        retryWaitNanos = 0;
+        // Ranges rarely change, so their entries are kept and zeroed rather than allocated again
+        for (PartitionMetrics partition : partitions.values()) {
+            partition.pageCount = 0;
+            partition.retrievedDocumentCount = 0;
+            partition.requestCharge = 0;
+            partition.queryExecutionNanos = 0;
+        }
+    }
+
+    public double getRequestCharge() {
+        return requestCharge;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @return true if at least one page carried query metrics
+     */
+    public boolean hasQueryMetrics() {
+        return hasQueryMetrics;
+    }
+
+    public long getRetrievedDocumentCount() {
+        return retrievedDocumentCount;
+    }
+
+    public long getRetrievedDocumentSize() {
+        return retrievedDocumentSize;
+    }
+
+    public long getOutputDocumentCount() {
+        return outputDocumentCount;
+    }
+
+    public long getOutputDocumentSize() {
+        return outputDocumentSize;
+    }
+
+    public long getIndexHitDocumentCount() {
+        return indexHitDocumentCount;
+    }
+
+    /**
+     * @return the fraction of retrieved documents that were served from the index, between 0 and 1
+     */
+    public double getIndexHitRatio() {
+        return retrievedDocumentCount == 0 ? 1.0 : (double) indexHitDocumentCount / retrievedDocumentCount;
+    }
+
+    public long getTotalQueryExecutionNanos() {
+        return totalQueryExecutionNanos;
+    }
+
+    /**
+     * @return the number of attempts rejected with 429, whether or not the SDK retried them successfully
+     */
+    public int getThrottleCount() {
+        return throttleCount;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public long getRetryWaitNanos() {
+        return retryWaitNanos;
+    }
+
+    /**
+     * @return the metrics of every partition key range seen by this instance; ranges without pages in the
+     *         current sample have a page count of 0
+     */
+    public Collection<PartitionMetrics> getPartitions() {
+        return partitions.values();
+    }
+
+    /**
+     * Writes the metrics using the key names and value formatting of the legacy diagnostics parser.
+     * Throttle and retry counts are only written when there was at least one, query metrics only when
+     * at least one page carried them, and per partition key range values, as {@code id=value} lists, only
+     * when the pages said which range they came from.
+     */
+    public void writeTo(Map<String, String> diagnosticsData) {
+        diagnosticsData.put(REQUEST_CHARGE, formatFixed(requestCharge, 2) + "RUs");
+        if (statusCode != 0) {
+            diagnosticsData.put(STATUS_CODE, Integer.toString(statusCode));
+            diagnosticsData.put(LATENCY, formatMillis(latencyNanos));
+        }
+        writeRetriesTo(diagnosticsData);
+        writePartitionsTo(diagnosticsData);
+        if (!hasQueryMetrics) {
+            return;
+        }
+        diagnosticsData.put(RETRIEVED_DOCUMENT_COUNT, Long.toString(retrievedDocumentCount));
+        diagnosticsData.put(RETRIEVED_DOCUMENT_SIZE, retrievedDocumentSize + "bytes");
+        diagnosticsData.put(OUTPUT_DOCUMENT_COUNT, Long.toString(outputDocumentCount));
+        diagnosticsData.put(OUTPUT_DOCUMENT_SIZE, outputDocumentSize + "bytes");
+        diagnosticsData.put(INDEX_UTILIZATION, formatFixed(getIndexHitRatio() * 100, 2) + "%");
+        diagnosticsData.put(TOTAL_QUERY_EXECUTION_TIME, formatMillis(totalQueryExecutionNanos));
+        diagnosticsData.put(QUERY_COMPILATION_TIME, formatMillis(queryCompilationNanos));
+        diagnosticsData.put(LOGICAL_PLAN_BUILD_TIME, formatMillis(logicalPlanBuildNanos));
+        diagnosticsData.put(PHYSICAL_PLAN_BUILD_TIME, formatMillis(physicalPlanBuildNanos));
+        diagnosticsData.put(QUERY_OPTIMIZATION_TIME, formatMillis(queryOptimizationNanos));
+        diagnosticsData.put(INDEX_LOOKUP_TIME, formatMillis(indexLookupNanos));
+        diagnosticsData.put(DOCUMENT_LOAD_TIME, formatMillis(documentLoadNanos));
+        diagnosticsData.put(QUERY_ENGINE_TIME, formatMillis(queryEngineNanos));
+    }
+
+    /**
+     * Writes the throttle and retry counts, if there were any.
+     */
+    public void writeRetriesTo(Map<String, String> diagnosticsData) {
+        if (throttleCount > 0 || retryCount > 0) {
+            diagnosticsData.put(THROTTLE_COUNT, Integer.toString(throttleCount));
+            diagnosticsData.put(RETRY_COUNT, Integer.toString(retryCount));
+            diagnosticsData.put(RETRY_WAIT, formatMillis(retryWaitNanos));
+        }
+    }
+
+    private void writePartitionsTo(Map<String, String> diagnosticsData) {
+        StringBuilder charges = new StringBuilder();
+        StringBuilder documents = new StringBuilder();
+        StringBuilder times = new StringBuilder();
+        for (PartitionMetrics partition : partitions.values()) {
+            if (partition.pageCount == 0) {
+                continue;
+            }
+            if (charges.length() > 0) {
+                charges.append(',');
+                documents.append(',');
+                times.append(',');
+            }
+            String id = partition.partitionKeyRangeId;
+            charges.append(id).append('=').append(formatFixed(partition.requestCharge, 2));
+            documents.append(id).append('=').append(partition.retrievedDocumentCount);
+            times.append(id).append('=')
+                    .append(formatFixed((double) partition.queryExecutionNanos / NANOS_PER_MILLI, 3));
+        }
+        if (charges.length() > 0) {
+            diagnosticsData.put(PARTITION_REQUEST_CHARGE, charges.toString());
+            diagnosticsData.put(PARTITION_DOCUMENT_COUNT, documents.toString());
+            diagnosticsData.put(PARTITION_QUERY_EXECUTION_TIME, times.toString());
+        }
+    }
+
+    private static long nanos(Duration duration) {
+        return duration == null ? 0 : duration.toNanos();
+    }
+
+    private static String formatMillis(long nanos) {
+        return formatFixed((double) nanos / NANOS_PER_MILLI, 6) + "milliseconds";
+    }
+
+    /**
+     * Formats a non-negative value with a fixed number of decimals, equivalent to
+     * {@code String.format(Locale.ROOT, "%.Nf", value)} without going through {@link java.util.Formatter}.
+     */
+    static String formatFixed(double value, int decimals) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        StringBuilder builder = new StringBuilder(24);
+        if (value < 0 && scaled != 0) {
+            builder.append('-');
+        }
+        builder.append(scaled / scale);
+        if (decimals > 0) {
+            builder.append('.');
+            String fraction = Long.toString(scaled % scale);
+            for (int i = fraction.length(); i < decimals; i++) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+        }
+        return builder.toString();
+    }
+}
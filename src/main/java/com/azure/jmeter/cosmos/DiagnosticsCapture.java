@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+/**
+ * Which samples have their full Cosmos DB diagnostics rendered for the diagnostics journal. Request charge, item
+ * counts, status codes, query metrics and retry counts are recorded for every sample regardless.
+ */
+public enum DiagnosticsCapture {
+    /** Every sample. */
+    ALWAYS,
+    /** No sample. */
+    NEVER,
+    /** Samples that took longer than a latency threshold. */
+    SLOW,
+    /** Samples that failed, or had a request throttled even if the SDK retried it successfully. */
+    ERRORS,
+    /** A random share of samples. */
+    SAMPLED;
+}
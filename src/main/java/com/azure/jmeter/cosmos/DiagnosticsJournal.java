@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the full diagnostics of every sample out of the results by writing them, on a background thread, to
+ * gzip compressed JSON lines files.
+ * <p>
+ * Sampler threads only offer a record to a bounded queue, which never waits: when the writer falls behind the
+ * record is dropped and counted instead. The writer drains the queue in batches through a large buffer, so the
+ * file channel sees few, large writes, and starts a new file once the current one reaches the rotation size.
+ * Files are named {@code <path>.<n>.jsonl.gz}, numbered from the first that does not exist yet. Each record
+ * carries the sample id that the sample's response data refers to.
+ */
+public final class DiagnosticsJournal {
+
+    private static final Logger logger = LogManager.getLogger(DiagnosticsJournal.class);
+
+    private static final Map<String, DiagnosticsJournal> JOURNALS = new ConcurrentHashMap<>();
+
+    static final int QUEUE_CAPACITY = 16_384;
+    private static final int BATCH_SIZE = 1024;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long POLL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final String path;
+    private final long rotateBytes;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong sampleIds = new AtomicLong();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // Only touched by the writer thread
+    private int fileIndex;
+    private FileChannel channel;
+    private OutputStream out;
+    private boolean failed;
+
+    /**
+     * One sample's record, built on the sampler thread from values it already has; serializing it, and
+     * so the cost of the diagnostics strings, is left to the writer.
+     */
+    private static final class Entry {
+        private final long sampleId;
+        private final long timeStamp;
+        private final long elapsed;
+        private final String label;
+        private final boolean successful;
+        private final String responseCode;
+        private final Map<String, String> summary;
+        private final List<String> diagnostics;
+
+        Entry(long sampleId, SampleResult result, Map<String, String> summary, List<String> diagnostics) {
+            this.sampleId = sampleId;
+            this.timeStamp = result.getTimeStamp();
+            this.elapsed = result.getTime();
+            this.label = result.getSampleLabel();
+            this.successful = result.isSuccessful();
+            this.responseCode = result.getResponseCode();
+            this.summary = summary;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    DiagnosticsJournal(String path, long rotateBytes) {
+        this.path = path;
+        this.rotateBytes = rotateBytes;
+        this.writer = new Thread(this::run, "cosmosdb-diagnostics-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * @return the journal shared by all samplers writing to {@code path}; the rotation size of the first
+     *         caller applies
+     */
+    public static DiagnosticsJournal forFile(String path, long rotateBytes) {
+        return JOURNALS.computeIfAbsent(path, p -> new DiagnosticsJournal(p, rotateBytes));
+    }
+
+    /**
+     * Writes out what is queued and closes every journal. Called once all sampler threads have stopped.
+     */
+    public static void closeAll() {
+        JOURNALS.values().forEach(DiagnosticsJournal::close);
+        JOURNALS.clear();
+    }
+
+    /**
+     * @return a sample id unique within this journal, for the sample's response data to refer to
+     */
+    public long nextSampleId() {
+        return sampleIds.incrementAndGet();
+    }
+
+    /**
+     * Queues a sample's record without waiting.
+     *
+     * @param summary     the compact metrics also written to the sample's response data
+     * @param diagnostics the full diagnostics of each response of the sample, which the journal takes over
+     * @return false if the queue was full and the record was dropped
+     */
+    public boolean offer(long sampleId, SampleResult result, Map<String, String> summary, List<String> diagnostics) {
+        if (closed || !queue.offer(new Entry(sampleId, result, summary, diagnostics))) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            logger.warn("Diagnostics journal {} did not finish writing within {} s", path, CLOSE_TIMEOUT_SECONDS);
+            writer.interrupt();
+        }
+        logger.info("Diagnostics journal {} wrote {} records and dropped {}", path, getWrittenCount(),
+                getDroppedCount());
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        if (failed) {
+            dropped.add(batch.size());
+            return;
+        }
+        try {
+            if (out == null) {
+                openNextFile();
+            }
+            for (Entry entry : batch) {
+                out.write(ItemTemplates.MAPPER.writeValueAsBytes(toRecord(entry)));
+                out.write('\n');
+            }
+            // Hand the batch to the channel; the compressed size only grows as the deflater emits blocks
+            out.flush();
+            written.add(batch.size());
+            if (channel.size() >= rotateBytes) {
+                closeFile();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write diagnostics journal {}, dropping further records", path, e);
+            failed = true;
+            dropped.add(batch.size());
+            closeFile();
+        }
+    }
+
+    private static Map<String, Object> toRecord(Entry entry) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("SampleId", entry.sampleId);
+        record.put("TimeStamp", entry.timeStamp);
+        record.put("Elapsed", entry.elapsed);
+        record.put("Label", entry.label);
+        record.put("Successful", entry.successful);
+        record.put("ResponseCode", entry.responseCode);
+        record.put("Summary", entry.summary);
+        record.put("Diagnostics", entry.diagnostics);
+        return record;
+    }
+
+    private void openNextFile() throws IOException {
+        while (true) {
+            fileIndex++;
+            Path file = Paths.get(path + '.' + fileIndex + ".jsonl.gz");
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                // Never overwrite the journal of an earlier run
+                continue;
+            }
+            out = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE),
+                    BUFFER_SIZE);
+            return;
+        }
+    }
+
+    private void closeFile() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close diagnostics journal {}.{}.jsonl.gz", path, fileIndex, e);
+        }
+        out = null;
+        channel = null;
+    }
+}
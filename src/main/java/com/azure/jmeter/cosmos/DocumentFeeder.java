@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Hands out documents from a JSON lines file, one document per line, to all sampler threads.
+ * The file is read sequentially and restarts from the top when the end is reached.
+ */
+public final class DocumentFeeder {
+
+    private static final Logger logger = LogManager.getLogger(DocumentFeeder.class);
+
+    private static final Map<String, DocumentFeeder> FEEDERS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private BufferedReader reader;
+    private int lineNumber;
+
+    private DocumentFeeder(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the feeder shared by all samplers reading {@code path}
+     */
+    public static DocumentFeeder forFile(String path) {
+        return FEEDERS.computeIfAbsent(path, DocumentFeeder::new);
+    }
+
+    /**
+     * Closes every open feeder so that the next test starts reading from the top of its files.
+     */
+    public static void closeAll() {
+        FEEDERS.values().forEach(DocumentFeeder::close);
+        FEEDERS.clear();
+    }
+
+    /**
+     * Reads the next {@code count} non-blank lines, wrapping around to the start of the file as needed.
+     *
+     * @throws IOException if the file cannot be read or has no non-blank lines
+     */
+    public List<String> next(int count) throws IOException {
+        return next(count, null);
+    }
+
+    /**
+     * Reads the next {@code count} documents, one per non-blank line, wrapping around to the start of the file
+     * as needed. Lines are parsed outside the feeder's lock, so threads only wait on each other for reading.
+     *
+     * @throws IOException              if the file cannot be read or has no non-blank lines
+     * @throws IllegalArgumentException if a line is not a JSON object
+     */
+    public List<ObjectNode> nextDocuments(int count) throws IOException {
+        int[] lineNumbers = new int[count];
+        List<String> lines = next(count, lineNumbers);
+        List<ObjectNode> documents = new ArrayList<>(count);
+        for (int i = 0; i < lines.size(); i++) {
+            JsonNode document;
+            try {
+                document = ItemTemplates.MAPPER.readTree(lines.get(i));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Line " + lineNumbers[i] + " of feeder file " + path
+                        + " is not valid JSON", e);
+            }
+            if (document == null || !document.isObject()) {
+                throw new IllegalArgumentException("Line " + lineNumbers[i] + " of feeder file " + path
+                        + " is not a JSON object");
+            }
+            documents.add((ObjectNode) document);
+        }
+        return documents;
+    }
+
+    private synchronized List<String> next(int count, int[] lineNumbers) throws IOException {
+        List<String> lines = new ArrayList<>(count);
+        boolean wrapped = false;
+        while (lines.size() < count) {
+            if (reader == null) {
+                reader = Files.newBufferedReader(Paths.get(path), UTF_8);
+                lineNumber = 0;
+            }
+            String line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                if (wrapped && lines.isEmpty()) {
+                    throw new IOException("Feeder file " + path + " has no documents");
+                }
+                wrapped = true;
+                reader.close();
+                reader = null;
+            } else if (!line.isBlank()) {
+                if (lineNumbers != null) {
+                    lineNumbers[lines.size()] = lineNumber;
+                }
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private synchronized void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close feeder file {}", path, e);
+            }
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+/**
+ * How much of a query result a single sample reads before it completes.
+ */
+public enum DrainMode {
+    /** Stop after the first page, measuring time to first page. */
+    FIRST_PAGE,
+    /** Stop after a fixed number of pages. */
+    PAGES,
+    /** Read every page of the result. */
+    FULL;
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+/**
+ * A compact, mergeable summary of everything one JMeter engine's samplers have recorded so far: the latency
+ * histogram, sample, error, throttle and retry counts and request units of each runID and queryType, and
+ * the work done by each partition key range.
+ * <p>
+ * Engines send their summary to the controller from time to time, as the sampler data of a sub-result, so
+ * that distributed tests can be reported as one without shipping per-sample diagnostics. Summaries are
+ * cumulative, so the controller only keeps the latest of each engine and a lost one costs nothing.
+ */
+public final class EngineSummary {
+
+    /** The label of the sub-results carrying summaries. */
+    public static final String LABEL = "Azure Cosmos DB Sampler summary";
+
+    /** Identifies this JVM, and so this engine, among those of a distributed test. */
+    static final String LOCAL_ENGINE = ManagementFactory.getRuntimeMXBean().getName();
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String engine;
+    private final long sequence;
+    private final Map<String, Series> series = new LinkedHashMap<>();
+
+    /**
+     * The totals of one runID and queryType.
+     */
+    static final class Series {
+        private final String runID;
+        private final String queryType;
+        private final Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+        private long errors;
+        private long throttles;
+        private long retries;
+        private double requestCharge;
+        private final Map<String, PartitionTotals> partitions = new LinkedHashMap<>();
+
+        Series(String runID, String queryType) {
+            this.runID = runID;
+            this.queryType = queryType;
+        }
+
+        void add(Series other) {
+            latency.add(other.latency);
+            errors += other.errors;
+            throttles += other.throttles;
+            retries += other.retries;
+            requestCharge += other.requestCharge;
+            for (Map.Entry<String, PartitionTotals> partition : other.partitions.entrySet()) {
+                partitions.computeIfAbsent(partition.getKey(), id -> new PartitionTotals())
+                        .add(partition.getValue().pages, partition.getValue().documents,
+                                partition.getValue().requestCharge);
+            }
+        }
+    }
+
+    private static final class PartitionTotals {
+        private long pages;
+        private long documents;
+        private double requestCharge;
+
+        void add(long pages, long documents, double requestCharge) {
+            this.pages += pages;
+            this.documents += documents;
+            this.requestCharge += requestCharge;
+        }
+    }
+
+    /**
+     * @param engine   the engine the summary describes
+     * @param sequence increases with each summary an engine sends, so that a late one does not replace a
+     *                 newer one
+     */
+    public EngineSummary(String engine, long sequence) {
+        this.engine = engine;
+        this.sequence = sequence;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    private Series series(String runID, String queryType) {
+        return series.computeIfAbsent(runID + '\u0000' + queryType, key -> new Series(runID, queryType));
+    }
+
+    /**
+     * Adds the totals of a runID and queryType, typically those of one sampler thread.
+     */
+    void addSeries(String runID, String queryType, Histogram latency, long errors, long throttles, long retries,
+                   double requestCharge) {
+        Series totals = series(runID, queryType);
+        totals.latency.add(latency);
+        totals.errors += errors;
+        totals.throttles += throttles;
+        totals.retries += retries;
+        totals.requestCharge += requestCharge;
+    }
+
+    /**
+     * Adds the work a partition key range did for a runID and queryType.
+     */
+    void addPartition(String runID, String queryType, String partitionKeyRangeId, long pages, long documents,
+                      double requestCharge) {
+        series(runID, queryType).partitions.computeIfAbsent(partitionKeyRangeId, id -> new PartitionTotals())
+                .add(pages, documents, requestCharge);
+    }
+
+    /**
+     * Adds every total of another summary, such as that of another engine, to this one.
+     */
+    public void merge(EngineSummary other) {
+        for (Series totals : other.series.values()) {
+            series(totals.runID, totals.queryType).add(totals);
+        }
+    }
+
+    /**
+     * Summarizes each runID and queryType the way the {@link HistogramAggregator} does, followed by the
+     * hottest {@code hotPartitions} partition key ranges of each runID.
+     */
+    public List<Map<String, String>> summarize(int hotPartitions) {
+        List<Map<String, String>> summaries = new ArrayList<>();
+        Map<String, Map<String, PartitionTotals>> runPartitions = new LinkedHashMap<>();
+        for (Series totals : series.values()) {
+            Map<String, String> summary = new LinkedHashMap<>();
+            summary.put("runID", totals.runID);
+            summary.put("queryType", totals.queryType);
+            summary.put("Samples", Long.toString(totals.latency.getTotalCount()));
+            summary.put("Errors", Long.toString(totals.errors));
+            summary.put("Throttles", Long.toString(totals.throttles));
+            summary.put("Retries", Long.toString(totals.retries));
+            summary.put("RequestChargeTotal", CosmosResponseMetrics.formatFixed(totals.requestCharge, 2));
+            Percentiles.writeTo(summary, "Latency", totals.latency, 1000.0, 3);
+            summaries.add(summary);
+
+            Map<String, PartitionTotals> partitions = runPartitions.computeIfAbsent(totals.runID,
+                    id -> new HashMap<>());
+            for (Map.Entry<String, PartitionTotals> partition : totals.partitions.entrySet()) {
+                partitions.computeIfAbsent(partition.getKey(), id -> new PartitionTotals())
+                        .add(partition.getValue().pages, partition.getValue().documents,
+                                partition.getValue().requestCharge);
+            }
+        }
+
+        for (Map.Entry<String, Map<String, PartitionTotals>> run : runPartitions.entrySet()) {
+            List<Map.Entry<String, PartitionTotals>> ranked = new ArrayList<>(run.getValue().entrySet());
+            ranked.sort(Comparator.comparingDouble(
+                    (Map.Entry<String, PartitionTotals> partition) -> partition.getValue().requestCharge).reversed()
+                    .thenComparing(Map.Entry::getKey));
+            double totalCharge = 0;
+            for (Map.Entry<String, PartitionTotals> partition : ranked) {
+                totalCharge += partition.getValue().requestCharge;
+            }
+            for (int rank = 0; rank < Math.min(hotPartitions, ranked.size()); rank++) {
+                PartitionTotals partition = ranked.get(rank).getValue();
+                Map<String, String> summary = new LinkedHashMap<>();
+                summary.put("runID", run.getKey());
+                summary.put("queryType", "hot-partition");
+                summary.put("Rank", Integer.toString(rank + 1));
+                summary.put("PartitionKeyRangeId", ranked.get(rank).getKey());
+                summary.put("PartitionCount", Integer.toString(ranked.size()));
+                summary.put("Pages", Long.toString(partition.pages));
+                summary.put("RetrievedDocumentCount", Long.toString(partition.documents));
+                summary.put("RequestCharge", CosmosResponseMetrics.formatFixed(partition.requestCharge, 2));
+                summary.put("RequestChargeShare", CosmosResponseMetrics.formatFixed(
+                        totalCharge > 0 ? partition.requestCharge * 100 / totalCharge : 0, 2) + "%");
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * @return the summary as JSON, with each latency histogram in HdrHistogram's compressed encoding
+     */
+    public String toJson() throws IOException {
+        ObjectNode root = ItemTemplates.MAPPER.createObjectNode();
+        root.put("engine", engine);
+        root.put("sequence", sequence);
+        ArrayNode seriesArray = root.putArray("series");
+        for (Series totals : series.values()) {
+            ObjectNode node = seriesArray.addObject();
+            node.put("runID", totals.runID);
+            node.put("queryType", totals.queryType);
+            node.put("latency", encode(totals.latency));
+            node.put("errors", totals.errors);
+            node.put("throttles", totals.throttles);
+            node.put("retries", totals.retries);
+            node.put("requestCharge", totals.requestCharge);
+            ObjectNode partitions = node.putObject("partitions");
+            for (Map.Entry<String, PartitionTotals> partition : totals.partitions.entrySet()) {
+                partitions.putArray(partition.getKey())
+                        .add(partition.getValue().pages)
+                        .add(partition.getValue().documents)
+                        .add(partition.getValue().requestCharge);
+            }
+        }
+        return ItemTemplates.MAPPER.writeValueAsString(root);
+    }
+
+    /**
+     * @throws IOException if {@code json} is not a summary written by {@link #toJson()}
+     */
+    public static EngineSummary fromJson(String json) throws IOException {
+        JsonNode root = ItemTemplates.MAPPER.readTree(json);
+        if (root == null || !root.path("series").isArray()) {
+            throw new IOException("Not an engine summary: " + json);
+        }
+        EngineSummary summary = new EngineSummary(root.path("engine").asText(), root.path("sequence").asLong());
+        for (JsonNode node : root.get("series")) {
+            String runID = node.path("runID").asText();
+            String queryType = node.path("queryType").asText();
+            summary.addSeries(runID, queryType, decode(node.path("latency").asText()), node.path("errors").asLong(),
+                    node.path("throttles").asLong(), node.path("retries").asLong(),
+                    node.path("requestCharge").asDouble());
+            Iterator<Map.Entry<String, JsonNode>> partitions = node.path("partitions").fields();
+            while (partitions.hasNext()) {
+                Map.Entry<String, JsonNode> partition = partitions.next();
+                JsonNode values = partition.getValue();
+                summary.addPartition(runID, queryType, partition.getKey(), values.path(0).asLong(),
+                        values.path(1).asLong(), values.path(2).asDouble());
+            }
+        }
+        return summary;
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    private static Histogram decode(String encoded) throws IOException {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IOException("Malformed latency histogram in engine summary", e);
+        }
+    }
+}
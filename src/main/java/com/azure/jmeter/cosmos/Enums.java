@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Arrays;
+
+/**
+ * Reads enum settings, such as the operation type or drain mode, from their text properties.
+ */
+public final class Enums {
+
+    private Enums() {
+    }
+
+    /**
+     * @return the constant of {@code type} with the given name, ignoring case and surrounding whitespace, or
+     *         {@code defaultValue} if the name is empty
+     * @throws IllegalArgumentException if the name is not empty and names no constant of {@code type}
+     */
+    public static <E extends Enum<E>> E fromString(Class<E> type, String name, E defaultValue) {
+        if (name == null || name.isBlank()) {
+            return defaultValue;
+        }
+        E[] constants = type.getEnumConstants();
+        for (E constant : constants) {
+            if (constant.name().equalsIgnoreCase(name.trim())) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + name + ", expected one of "
+                + Arrays.toString(constants));
+    }
+}
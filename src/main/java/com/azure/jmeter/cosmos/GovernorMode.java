@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+/**
+ * What, if anything, the shared {@link RateGovernor} holds steady by adjusting the sample rate.
+ */
+public enum GovernorMode {
+    /** Samples are issued as fast as the threads and timers allow. */
+    NONE,
+    /** The rate is adjusted to consume a target number of request units per second. */
+    REQUEST_UNITS,
+    /** The rate is adjusted to keep the share of throttled samples at a target ratio. */
+    THROTTLE_RATIO;
+}
@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.DoubleRecorder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Latency, server time, request charge and retrieved document histograms shared by every
+ * {@link CosmosDBSampler} in a test, grouped by runID and queryType.
+ * <p>
+ * Each sampler clone, and so each JMeter thread, records into its own {@link Recorders}, which
+ * are wait-free, so the sampling hot path takes no lock and does not contend with other threads.
+ * When the last sampler ends its test the recorders of each group are merged and their percentiles
+ * logged, and optionally appended as JSON lines to a report file.
+ * <p>
+ * Query work is also totalled per partition key range, so that each runID's hottest ranges, those
+ * consuming the most request units, can be reported with the queryType {@code hot-partition}.
+ */
+public final class HistogramAggregator {
+
+    private static final Logger logger = LogManager.getLogger(HistogramAggregator.class);
+
+    private static final HistogramAggregator INSTANCE = new HistogramAggregator();
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /** The number of hottest partition key ranges reported for each runID unless the caller asks otherwise. */
+    public static final int DEFAULT_HOT_PARTITIONS = 10;
+
+    static final String REQUEST_CHARGE_MEAN = "RequestChargeMean";
+    static final String RETRIEVED_TO_OUTPUT_RATIO = "RetrievedToOutputRatio";
+    static final String INDEX_UTILIZATION = "IndexUtilization";
+    static final String LATENCY_P99 = "LatencyP99";
+    static final String REQUEST_CHARGE_P99 = "RequestChargeP99";
+    static final String RETRIEVED_DOCUMENT_COUNT_P99 = "RetrievedDocumentCountP99";
+
+    private final ConcurrentMap<String, List<Recorders>> series = new ConcurrentHashMap<>();
+    private final List<Map<String, String>> warmUps = new CopyOnWriteArrayList<>();
+    private final AtomicInteger activeSamplers = new AtomicInteger();
+    private final AtomicLong nextEngineSummaryNanos = new AtomicLong();
+    private final AtomicLong engineSummarySequence = new AtomicLong();
+    private volatile long engineSummaryIntervalNanos;
+
+    /**
+     * The histograms of one sampler thread for one runID and queryType.
+     */
+    public static final class Recorders {
+        private final String runID;
+        private final String queryType;
+        private final Recorder latency = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder serverTime = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder samplerOverhead = new Recorder(SIGNIFICANT_DIGITS);
+        private final Recorder retrievedDocuments = new Recorder(SIGNIFICANT_DIGITS);
+        private final DoubleRecorder requestCharge = new DoubleRecorder(SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder throttles = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder retryWaitNanos = new LongAdder();
+        private final LongAdder retrievedDocumentTotal = new LongAdder();
+        private final LongAdder outputDocumentTotal = new LongAdder();
+        private final LongAdder indexHitDocumentTotal = new LongAdder();
+        private final ConcurrentMap<String, PartitionTotals> partitions = new ConcurrentHashMap<>();
+        private final DoubleAdder requestChargeTotal = new DoubleAdder();
+        // Readers, the live metrics endpoint and the final summary, take turns moving intervals in here
+        private final Histogram latencyTotal = new Histogram(SIGNIFICANT_DIGITS);
+
+        private Recorders(String runID, String queryType) {
+            this.runID = runID;
+            this.queryType = queryType;
+        }
+
+        /**
+         * @return true if these recorders belong to the given runID and queryType
+         */
+        public boolean matches(String runID, String queryType) {
+            return Objects.equals(this.runID, runID) && Objects.equals(this.queryType, queryType);
+        }
+
+        public void recordLatency(long micros) {
+            latency.recordValue(Math.max(micros, 0));
+        }
+
+        /**
+         * Records every value of a histogram of latencies in microseconds.
+         */
+        public void recordLatencies(AbstractHistogram micros) {
+            for (HistogramIterationValue value : micros.recordedValues()) {
+                latency.recordValueWithCount(value.getValueIteratedTo(), value.getCountAtValueIteratedTo());
+            }
+        }
+
+        /**
+         * Records the time a sample spent in the sampler itself rather than waiting on Cosmos DB.
+         */
+        public void recordSamplerOverhead(long micros) {
+            samplerOverhead.recordValue(Math.max(micros, 0));
+        }
+
+        public void recordServerTime(long micros) {
+            serverTime.recordValue(Math.max(micros, 0));
+        }
+
+        public void recordRetrievedDocuments(long count) {
+            retrievedDocuments.recordValue(Math.max(count, 0));
+        }
+
+        /**
+         * Records how many documents a query sample read, returned and found through the index, from which
+         * its retrieved to output ratio and index utilization are reported.
+         */
+        public void recordQueryEfficiency(long retrieved, long output, long indexHits) {
+            retrievedDocumentTotal.add(retrieved);
+            outputDocumentTotal.add(output);
+            indexHitDocumentTotal.add(indexHits);
+        }
+
+        public void recordRequestCharge(double charge) {
+            requestCharge.recordValue(Math.max(charge, 0));
+            requestChargeTotal.add(Math.max(charge, 0));
+        }
+
+        public void recordError() {
+            errors.increment();
+        }
+
+        /**
+         * Records the throttled (429) attempts of a sample and the retries, and time spent waiting to retry,
+         * the SDK made on its behalf.
+         */
+        public void recordThrottling(long throttleCount, long retryCount, long waitNanos) {
+            throttles.add(throttleCount);
+            retries.add(retryCount);
+            retryWaitNanos.add(waitNanos);
+        }
+
+        /**
+         * Adds a sample's work on each partition key range to the range's totals. Ranges without pages in
+         * the sample are skipped.
+         */
+        public void recordPartitions(Collection<CosmosResponseMetrics.PartitionMetrics> sample) {
+            for (CosmosResponseMetrics.PartitionMetrics partition : sample) {
+                if (partition.getPageCount() == 0) {
+                    continue;
+                }
+                PartitionTotals totals = partitions.get(partition.getPartitionKeyRangeId());
+                if (totals == null) {
+                    totals = partitions.computeIfAbsent(partition.getPartitionKeyRangeId(),
+                            id -> new PartitionTotals());
+                }
+                totals.record(partition);
+            }
+        }
+    }
+
+    /**
+     * @return every latency recorded so far, which callers must only read while holding the lock of
+     *         {@code recorders}
+     */
+    private static Histogram drainLatency(Recorders recorders) {
+        recorders.latencyTotal.add(recorders.latency.getIntervalHistogram());
+        return recorders.latencyTotal;
+    }
+
+    /**
+     * The work one sampler thread has had done by one partition key range.
+     */
+    private static final class PartitionTotals {
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder retrievedDocuments = new LongAdder();
+        private final DoubleAdder requestCharge = new DoubleAdder();
+        private final Recorder serverTime = new Recorder(SIGNIFICANT_DIGITS);
+
+        void record(CosmosResponseMetrics.PartitionMetrics partition) {
+            samples.increment();
+            pages.add(partition.getPageCount());
+            retrievedDocuments.add(partition.getRetrievedDocumentCount());
+            requestCharge.add(partition.getRequestCharge());
+            serverTime.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(partition.getQueryExecutionNanos()), 0));
+        }
+    }
+
+    /**
+     * The totals of one partition key range merged across threads and queryTypes.
+     */
+    private static final class HotPartition {
+        private final String partitionKeyRangeId;
+        private final Histogram serverTime = new Histogram(SIGNIFICANT_DIGITS);
+        private long samples;
+        private long pages;
+        private long retrievedDocuments;
+        private double requestCharge;
+
+        HotPartition(String partitionKeyRangeId) {
+            this.partitionKeyRangeId = partitionKeyRangeId;
+        }
+
+        void add(PartitionTotals totals) {
+            samples += totals.samples.sumThenReset();
+            pages += totals.pages.sumThenReset();
+            retrievedDocuments += totals.retrievedDocuments.sumThenReset();
+            requestCharge += totals.requestCharge.sumThenReset();
+            serverTime.add(totals.serverTime.getIntervalHistogram());
+        }
+    }
+
+    HistogramAggregator() {
+    }
+
+    public static HistogramAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates the recorders for one sampler thread. Callers keep the returned instance and record into it
+     * for as long as their runID and queryType stay the same.
+     */
+    public Recorders newRecorders(String runID, String queryType) {
+        Recorders recorders = new Recorders(runID, queryType);
+        series.computeIfAbsent(runID + '\u0000' + queryType, key -> new CopyOnWriteArrayList<>()).add(recorders);
+        return recorders;
+    }
+
+    /**
+     * Records how long a sampler took to warm up, which is reported as its own summary with the queryType
+     * {@code warm-up}.
+     */
+    public void recordWarmUp(String runID, String queryType, long elapsedNanos, int queries) {
+        Map<String, String> summary = new LinkedHashMap<>();
+        summary.put("runID", runID);
+        summary.put("queryType", "warm-up");
+        summary.put("WarmedUpQueryType", queryType);
+        summary.put("WarmUpQueries", Integer.toString(queries));
+        summary.put("WarmUpTime", CosmosResponseMetrics.formatFixed(elapsedNanos / 1e6, 3));
+        warmUps.add(summary);
+    }
+
+    /**
+     * Sets how often {@link #claimEngineSummary()} lets a sampler send this engine's summary, or 0 for never.
+     */
+    public void setEngineSummaryInterval(long intervalNanos) {
+        engineSummaryIntervalNanos = intervalNanos;
+    }
+
+    /**
+     * @return true if an engine summary interval is set, so that samplers send summaries at all
+     */
+    public boolean isSendingEngineSummaries() {
+        return engineSummaryIntervalNanos > 0;
+    }
+
+    /**
+     * @return true for exactly one caller once every summary interval, which should then send the
+     *         {@link #engineSummary() engine summary}. The first interval starts with the first call.
+     */
+    public boolean claimEngineSummary() {
+        long interval = engineSummaryIntervalNanos;
+        if (interval <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long next = nextEngineSummaryNanos.get();
+        if (next == 0) {
+            nextEngineSummaryNanos.compareAndSet(0, now + interval);
+            return false;
+        }
+        return now - next >= 0 && nextEngineSummaryNanos.compareAndSet(next, now + interval);
+    }
+
+    /**
+     * @return everything recorded on this engine so far, merged across threads, in a form the controller of a
+     *         distributed test can merge with the summaries of the other engines
+     */
+    public EngineSummary engineSummary() {
+        EngineSummary summary = new EngineSummary(EngineSummary.LOCAL_ENGINE, engineSummarySequence.incrementAndGet());
+        for (List<Recorders> threadRecorders : series.values()) {
+            for (Recorders recorders : threadRecorders) {
+                Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+                synchronized (recorders) {
+                    latency.add(drainLatency(recorders));
+                }
+                summary.addSeries(recorders.runID, recorders.queryType, latency, recorders.errors.sum(),
+                        recorders.throttles.sum(), recorders.retries.sum(), recorders.requestChargeTotal.sum());
+                for (Map.Entry<String, PartitionTotals> partition : recorders.partitions.entrySet()) {
+                    PartitionTotals totals = partition.getValue();
+                    summary.addPartition(recorders.runID, recorders.queryType, partition.getKey(),
+                            totals.pages.sum(), totals.retrievedDocuments.sum(), totals.requestCharge.sum());
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Registers a sampler taking part in the test.
+     */
+    public void testStarted() {
+        activeSamplers.incrementAndGet();
+    }
+
+    /**
+     * Unregisters a sampler, reporting up to {@link #DEFAULT_HOT_PARTITIONS} hot partitions per runID.
+     *
+     * @see #testEnded(String, int)
+     */
+    public List<Map<String, String>> testEnded(String reportFile) {
+        return testEnded(reportFile, DEFAULT_HOT_PARTITIONS);
+    }
+
+    /**
+     * Unregisters a sampler. The last one to end merges, logs and reports the histograms and clears them
+     * for the next test.
+     *
+     * @param reportFile    the file to append the summaries to as JSON lines, or empty to only log them
+     * @param hotPartitions the number of partition key ranges to report per runID, hottest first
+     * @return the summary of each runID and queryType followed by those of the hot partitions and the
+     *         warm-ups, or an empty list if other samplers are still running
+     */
+    public List<Map<String, String>> testEnded(String reportFile, int hotPartitions) {
+        if (activeSamplers.decrementAndGet() > 0) {
+            return new ArrayList<>();
+        }
+        activeSamplers.set(0);
+        List<Map<String, String>> summaries = summarize();
+        summaries.addAll(summarizePartitions(hotPartitions));
+        summaries.addAll(warmUps);
+        nextEngineSummaryNanos.set(0);
+        series.clear();
+        warmUps.clear();
+        for (Map<String, String> summary : summaries) {
+            logger.info("Cosmos DB sampler histograms: {}", summary);
+        }
+        if (reportFile != null && !reportFile.isEmpty()) {
+            writeReport(reportFile, summaries);
+        }
+        return summaries;
+    }
+
+    List<Map<String, String>> summarize() {
+        List<Map<String, String>> summaries = new ArrayList<>();
+        for (List<Recorders> threadRecorders : series.values()) {
+            if (threadRecorders.isEmpty()) {
+                continue;
+            }
+            Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+            Histogram serverTime = new Histogram(SIGNIFICANT_DIGITS);
+            Histogram samplerOverhead = new Histogram(SIGNIFICANT_DIGITS);
+            Histogram retrievedDocuments = new Histogram(SIGNIFICANT_DIGITS);
+            DoubleHistogram requestCharge = new DoubleHistogram(SIGNIFICANT_DIGITS);
+            long errors = 0;
+            long throttles = 0;
+            long retries = 0;
+            long retryWaitNanos = 0;
+            long retrievedTotal = 0;
+            long outputTotal = 0;
+            long indexHitTotal = 0;
+            for (Recorders recorders : threadRecorders) {
+                synchronized (recorders) {
+                    latency.add(drainLatency(recorders));
+                }
+                serverTime.add(recorders.serverTime.getIntervalHistogram());
+                samplerOverhead.add(recorders.samplerOverhead.getIntervalHistogram());
+                retrievedDocuments.add(recorders.retrievedDocuments.getIntervalHistogram());
+                requestCharge.add(recorders.requestCharge.getIntervalHistogram());
+                errors += recorders.errors.sumThenReset();
+                throttles += recorders.throttles.sumThenReset();
+                retries += recorders.retries.sumThenReset();
+                retryWaitNanos += recorders.retryWaitNanos.sumThenReset();
+                retrievedTotal += recorders.retrievedDocumentTotal.sumThenReset();
+                outputTotal += recorders.outputDocumentTotal.sumThenReset();
+                indexHitTotal += recorders.indexHitDocumentTotal.sumThenReset();
+            }
+
+            Recorders first = threadRecorders.get(0);
+            Map<String, String> summary = new LinkedHashMap<>();
+            summary.put("runID", first.runID);
+            summary.put("queryType", first.queryType);
+            summary.put("Samples", Long.toString(latency.getTotalCount()));
+            summary.put("Errors", Long.toString(errors));
+            summary.put("Throttles", Long.toString(throttles));
+            summary.put("Retries", Long.toString(retries));
+            summary.put("RetryWait", CosmosResponseMetrics.formatFixed(retryWaitNanos / 1e6, 3));
+            Percentiles.writeTo(summary, "Latency", latency, 1000.0, 3);
+            if (samplerOverhead.getTotalCount() > 0) {
+                Percentiles.writeTo(summary, "SamplerOverhead", samplerOverhead, 1000.0, 3);
+            }
+            if (serverTime.getTotalCount() > 0) {
+                Percentiles.writeTo(summary, "TotalQueryExecutionTime", serverTime, 1000.0, 3);
+                Percentiles.writeTo(summary, "RetrievedDocumentCount", retrievedDocuments, 1.0, 0);
+                summary.put(RETRIEVED_TO_OUTPUT_RATIO, CosmosResponseMetrics.formatFixed(
+                        (double) retrievedTotal / Math.max(outputTotal, 1), 2));
+                summary.put(INDEX_UTILIZATION, CosmosResponseMetrics.formatFixed(
+                        retrievedTotal == 0 ? 100 : indexHitTotal * 100.0 / retrievedTotal, 2));
+            }
+            Percentiles.writeTo(summary, "RequestCharge", requestCharge, 2);
+            summary.put(REQUEST_CHARGE_MEAN, CosmosResponseMetrics.formatFixed(
+                    requestCharge.getTotalCount() > 0 ? requestCharge.getMean() : 0, 2));
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Merges the partition totals of every thread and queryType of each runID, and summarizes the
+     * {@code limit} ranges with the highest request charge. The share of each is that of the runID's
+     * total charge across all of its ranges, so a skewed workload shows as one range far above the rest.
+     */
+    List<Map<String, String>> summarizePartitions(int limit) {
+        Map<String, Map<String, HotPartition>> runs = new LinkedHashMap<>();
+        for (List<Recorders> threadRecorders : series.values()) {
+            for (Recorders recorders : threadRecorders) {
+                if (recorders.partitions.isEmpty()) {
+                    continue;
+                }
+                Map<String, HotPartition> run = runs.computeIfAbsent(recorders.runID, id -> new HashMap<>());
+                for (Map.Entry<String, PartitionTotals> totals : recorders.partitions.entrySet()) {
+                    run.computeIfAbsent(totals.getKey(), HotPartition::new).add(totals.getValue());
+                }
+            }
+        }
+
+        List<Map<String, String>> summaries = new ArrayList<>();
+        for (Map.Entry<String, Map<String, HotPartition>> run : runs.entrySet()) {
+            List<HotPartition> ranked = new ArrayList<>(run.getValue().values());
+            ranked.sort(Comparator.comparingDouble((HotPartition partition) -> partition.requestCharge).reversed()
+                    .thenComparing(partition -> partition.partitionKeyRangeId));
+            double totalCharge = 0;
+            for (HotPartition partition : ranked) {
+                totalCharge += partition.requestCharge;
+            }
+            for (int rank = 0; rank < Math.min(limit, ranked.size()); rank++) {
+                HotPartition partition = ranked.get(rank);
+                Map<String, String> summary = new LinkedHashMap<>();
+                summary.put("runID", run.getKey());
+                summary.put("queryType", "hot-partition");
+                summary.put("Rank", Integer.toString(rank + 1));
+                summary.put("PartitionKeyRangeId", partition.partitionKeyRangeId);
+                summary.put("PartitionCount", Integer.toString(ranked.size()));
+                summary.put("Samples", Long.toString(partition.samples));
+                summary.put("Pages", Long.toString(partition.pages));
+                summary.put("RetrievedDocumentCount", Long.toString(partition.retrievedDocuments));
+                summary.put("RequestCharge", CosmosResponseMetrics.formatFixed(partition.requestCharge, 2));
+                summary.put("RequestChargeShare", CosmosResponseMetrics.formatFixed(
+                        totalCharge > 0 ? partition.requestCharge * 100 / totalCharge : 0, 2) + "%");
+                Percentiles.writeTo(summary, "TotalQueryExecutionTime", partition.serverTime, 1000.0, 3);
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Writes the live totals of each runID and queryType in the OpenMetrics text format: sample, error,
+     * throttle and retry counters, the request units consumed, and latency quantiles. Rates such as
+     * samples and request units per second are left to the scraper. Recording is not slowed down; only
+     * the reader merges the threads' histograms.
+     */
+    public void writeOpenMetrics(StringBuilder out) {
+        List<Map.Entry<String, Histogram>> latencies = new ArrayList<>();
+        StringBuilder samples = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        StringBuilder throttles = new StringBuilder();
+        StringBuilder retries = new StringBuilder();
+        StringBuilder requestUnits = new StringBuilder();
+        for (List<Recorders> threadRecorders : series.values()) {
+            if (threadRecorders.isEmpty()) {
+                continue;
+            }
+            Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+            long errorCount = 0;
+            long throttleCount = 0;
+            long retryCount = 0;
+            double charge = 0;
+            for (Recorders recorders : threadRecorders) {
+                synchronized (recorders) {
+                    latency.add(drainLatency(recorders));
+                }
+                errorCount += recorders.errors.sum();
+                throttleCount += recorders.throttles.sum();
+                retryCount += recorders.retries.sum();
+                charge += recorders.requestChargeTotal.sum();
+            }
+            Recorders first = threadRecorders.get(0);
+            String labels = "{runID=\"" + escapeLabel(first.runID) + "\",queryType=\""
+                    + escapeLabel(first.queryType) + "\"}";
+            samples.append("cosmosdb_sampler_samples_total").append(labels).append(' ')
+                    .append(latency.getTotalCount()).append('\n');
+            errors.append("cosmosdb_sampler_errors_total").append(labels).append(' ').append(errorCount).append('\n');
+            throttles.append("cosmosdb_sampler_throttles_total").append(labels).append(' ').append(throttleCount)
+                    .append('\n');
+            retries.append("cosmosdb_sampler_retries_total").append(labels).append(' ').append(retryCount)
+                    .append('\n');
+            requestUnits.append("cosmosdb_sampler_request_units_total").append(labels).append(' ').append(charge)
+                    .append('\n');
+            latencies.add(Map.entry(labels, latency));
+        }
+
+        writeFamily(out, "cosmosdb_sampler_samples", "counter", "Samples taken", samples);
+        writeFamily(out, "cosmosdb_sampler_errors", "counter", "Failed samples", errors);
+        writeFamily(out, "cosmosdb_sampler_throttles", "counter", "Attempts throttled with 429", throttles);
+        writeFamily(out, "cosmosdb_sampler_retries", "counter", "Retries made by the SDK", retries);
+        writeFamily(out, "cosmosdb_sampler_request_units", "counter", "Request units consumed", requestUnits);
+        out.append("# TYPE cosmosdb_sampler_latency_seconds summary\n");
+        out.append("# UNIT cosmosdb_sampler_latency_seconds seconds\n");
+        out.append("# HELP cosmosdb_sampler_latency_seconds Sample latency\n");
+        for (Map.Entry<String, Histogram> latency : latencies) {
+            String labels = latency.getKey();
+            Histogram histogram = latency.getValue();
+            String prefix = labels.substring(0, labels.length() - 1);
+            for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                out.append("cosmosdb_sampler_latency_seconds").append(prefix).append(",quantile=\"").append(quantile)
+                        .append("\"} ").append(histogram.getValueAtPercentile(quantile * 100) / 1e6).append('\n');
+            }
+            out.append("cosmosdb_sampler_latency_seconds_sum").append(labels).append(' ')
+                    .append(histogram.getMean() * histogram.getTotalCount() / 1e6).append('\n');
+            out.append("cosmosdb_sampler_latency_seconds_count").append(labels).append(' ')
+                    .append(histogram.getTotalCount()).append('\n');
+        }
+        out.append("# EOF\n");
+    }
+
+    private static void writeFamily(StringBuilder out, String name, String type, String help,
+                                     StringBuilder metrics) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append(metrics);
+    }
+
+    private static String escapeLabel(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static void writeReport(String reportFile, List<Map<String, String>> summaries) {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(reportFile), UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Map<String, String> summary : summaries) {
+                writer.write(ItemTemplates.MAPPER.writeValueAsString(summary));
+                writer.write(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write histogram report to {}", reportFile, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+/**
+ * How a sampler thread issues requests.
+ */
+public enum IssueMode {
+    /** One blocking request per sample; the next request waits for the previous one. */
+    CLOSED_LOOP,
+    /** Requests are issued without blocking at a target rate, and each sample reports one window of them. */
+    OPEN_LOOP;
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+
+import com.azure.cosmos.models.CosmosPatchOperations;
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Builds item operation inputs from the sampler's text templates.
+ * <p>
+ * Templates are plain JSON; JMeter has already substituted any {@code ${variables}} in them by the
+ * time they reach these methods.
+ */
+public final class ItemTemplates {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ItemTemplates() {
+    }
+
+    /**
+     * Parses a document template, setting its {@code id} to {@code id} unless {@code id} is empty.
+     *
+     * @throws IllegalArgumentException if the template is not a JSON object or the document has no id
+     */
+    public static ObjectNode parseDocument(String template, String id) throws IOException {
+        JsonNode node = MAPPER.readTree(template);
+        if (!(node instanceof ObjectNode)) {
+            throw new IllegalArgumentException("Document template must be a JSON object");
+        }
+        ObjectNode document = (ObjectNode) node;
+        if (id != null && !id.isEmpty()) {
+            document.put("id", id);
+        } else if (!document.path("id").isTextual()) {
+            throw new IllegalArgumentException("Document template has no id and no item ID is configured");
+        }
+        return document;
+    }
+
+    /**
+     * Reads the partition key value at {@code partitionKeyPath}, e.g. {@code /customer/id}, from a document.
+     *
+     * @throws IllegalArgumentException if the path is empty or does not resolve to a scalar value
+     */
+    public static PartitionKey partitionKey(JsonNode document, String partitionKeyPath) {
+        if (partitionKeyPath == null || partitionKeyPath.isEmpty()) {
+            throw new IllegalArgumentException("No partition key value or partition key path is configured");
+        }
+        JsonNode value = document.at(partitionKeyPath.startsWith("/") ? partitionKeyPath : "/" + partitionKeyPath);
+        if (value.isTextual()) {
+            return new PartitionKey(value.textValue());
+        } else if (value.isNumber()) {
+            return new PartitionKey(value.numberValue());
+        } else if (value.isBoolean()) {
+            return new PartitionKey(value.booleanValue());
+        } else if (value.isNull()) {
+            return PartitionKey.NONE;
+        }
+        throw new IllegalArgumentException("Partition key path " + partitionKeyPath
+                + " is not a scalar in the document");
+    }
+
+    /**
+     * Sets the value at {@code partitionKeyPath}, e.g. {@code /customer/id}, of a document, creating the objects
+     * on the path that are missing.
+     *
+     * @throws IllegalArgumentException if the path is empty or runs through a value that is not an object
+     */
+    public static void setPartitionKey(ObjectNode document, String partitionKeyPath, Object value) {
+        if (partitionKeyPath == null || partitionKeyPath.isEmpty()) {
+            throw new IllegalArgumentException("No partition key path is configured");
+        }
+        String[] names = (partitionKeyPath.startsWith("/") ? partitionKeyPath.substring(1) : partitionKeyPath)
+                .split("/");
+        ObjectNode parent = document;
+        for (int i = 0; i < names.length - 1; i++) {
+            JsonNode child = parent.get(names[i]);
+            if (child == null || child.isNull()) {
+                parent = parent.putObject(names[i]);
+            } else if (child instanceof ObjectNode) {
+                parent = (ObjectNode) child;
+            } else {
+                throw new IllegalArgumentException("Partition key path " + partitionKeyPath
+                        + " runs through a value that is not an object in the document");
+            }
+        }
+        parent.set(names[names.length - 1], MAPPER.valueToTree(value));
+    }
+
+    /**
+     * Parses a JSON patch template of the form
+     * {@code [{"op": "set", "path": "/status", "value": "shipped"}, {"op": "remove", "path": "/draft"}]}.
+     * Supported operations are {@code add}, {@code set}, {@code replace}, {@code remove} and {@code increment}.
+     *
+     * @throws IllegalArgumentException if the template is not an array of supported operations
+     */
+    public static CosmosPatchOperations parsePatchOperations(String template) throws IOException {
+        JsonNode operations = MAPPER.readTree(template);
+        if (operations == null || !operations.isArray()) {
+            throw new IllegalArgumentException("Patch template must be a JSON array of operations");
+        }
+        CosmosPatchOperations patchOperations = CosmosPatchOperations.create();
+        for (JsonNode operation : operations) {
+            String op = operation.path("op").asText();
+            String path = operation.path("path").asText();
+            JsonNode value = operation.get("value");
+            switch (op) {
+                case "add":
+                    patchOperations.add(path, value);
+                    break;
+                case "set":
+                    patchOperations.set(path, value);
+                    break;
+                case "replace":
+                    patchOperations.replace(path, value);
+                    break;
+                case "remove":
+                    patchOperations.remove(path);
+                    break;
+                case "increment":
+                    if (value != null && value.isIntegralNumber()) {
+                        patchOperations.increment(path, value.longValue());
+                    } else {
+                        patchOperations.increment(path, value == null ? 0 : value.doubleValue());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported patch operation: " + op);
+            }
+        }
+        return patchOperations;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses which of {@code size} keys a sample uses, written as {@code sequential}, {@code random},
+ * {@code zipfian:theta} or {@code hotset:hotFraction:hotShare}.
+ * <ul>
+ *     <li>{@code sequential} walks the keys in file order, shared by all threads, and wraps around.</li>
+ *     <li>{@code random} picks keys uniformly.</li>
+ *     <li>{@code zipfian} picks key {@code i} in proportion to {@code 1 / (i + 1)^theta}, with {@code theta}
+ *     between 0 and 1 exclusive (default 0.99), so the first keys of the file are the hottest.</li>
+ *     <li>{@code hotset} sends {@code hotShare} of the picks (default 0.8) to the first {@code hotFraction}
+ *     of the keys (default 0.2), and the rest uniformly to the others.</li>
+ * </ul>
+ * The Zipfian generator is the one of Gray et al., "Quickly Generating Billion-Record Synthetic Databases",
+ * which takes one random double per pick. Instances are immutable and thread safe.
+ */
+public final class KeyDistribution {
+
+    private enum Kind { SEQUENTIAL, RANDOM, ZIPFIAN, HOTSET }
+
+    /** Terms of the zeta sum computed exactly; the tail is approximated by an integral. */
+    private static final int EXACT_ZETA_TERMS = 100_000;
+
+    private final String spec;
+    private final long size;
+    private final Kind kind;
+    private final double theta;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+    private final long hotCount;
+    private final double hotShare;
+
+    private KeyDistribution(String spec, long size, Kind kind, double first, double second) {
+        this.spec = spec;
+        this.size = size;
+        this.kind = kind;
+        if (kind == Kind.ZIPFIAN) {
+            this.theta = first;
+            this.zetan = zeta(size, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / size, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+        } else {
+            this.theta = 0;
+            this.zetan = 0;
+            this.alpha = 0;
+            this.eta = 0;
+        }
+        this.hotCount = kind == Kind.HOTSET ? Math.max(1, Math.min(size, Math.round(size * first))) : 0;
+        this.hotShare = second;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the distribution is not one of the supported forms or {@code size}
+     *                                  is not positive
+     */
+    public static KeyDistribution parse(String spec, long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Cannot pick keys from an empty key file");
+        }
+        String[] parts = spec.trim().split(":");
+        try {
+            Kind kind = parts[0].isEmpty()
+                    ? Kind.SEQUENTIAL : Kind.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            double first = parts.length > 1 ? Double.parseDouble(parts[1]) : Double.NaN;
+            double second = parts.length > 2 ? Double.parseDouble(parts[2]) : Double.NaN;
+            switch (kind) {
+                case ZIPFIAN:
+                    first = Double.isNaN(first) ? 0.99 : first;
+                    if (!(first > 0 && first < 1)) {
+                        throw new IllegalArgumentException("Zipfian theta must be between 0 and 1 exclusive");
+                    }
+                    break;
+                case HOTSET:
+                    first = Double.isNaN(first) ? 0.2 : first;
+                    second = Double.isNaN(second) ? 0.8 : second;
+                    if (!(first > 0 && first <= 1 && second >= 0 && second <= 1)) {
+                        throw new IllegalArgumentException("Hot set fraction and share must be between 0 and 1");
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return new KeyDistribution(spec, size, kind, first, second);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Key distribution must be sequential, random, zipfian:theta or "
+                    + "hotset:hotFraction:hotShare: " + spec, e);
+        }
+    }
+
+    /**
+     * @return true if this distribution was parsed from {@code spec} for {@code size} keys
+     */
+    public boolean matches(String spec, long size) {
+        return this.size == size && this.spec.equals(spec);
+    }
+
+    /**
+     * @param sequence the position of the sequential walk, shared by every thread using the same keys
+     * @return the index of the next key, from 0 to {@code size - 1}
+     */
+    public long next(AtomicLong sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (kind) {
+            case RANDOM:
+                return random.nextLong(size);
+            case ZIPFIAN:
+                return nextZipfian(random.nextDouble());
+            case HOTSET:
+                if (hotCount == size || random.nextDouble() < hotShare) {
+                    return random.nextLong(hotCount);
+                }
+                return hotCount + random.nextLong(size - hotCount);
+            default:
+                return Math.floorMod(sequence.getAndIncrement(), size);
+        }
+    }
+
+    long nextZipfian(double u) {
+        double uz = u * zetan;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, size - 1);
+        }
+        return Math.min((long) (size * Math.pow(eta * u - eta + 1, alpha)), size - 1);
+    }
+
+    /**
+     * @return the sum of {@code 1 / i^theta} for {@code i} from 1 to {@code n}
+     */
+    static double zeta(long n, double theta) {
+        long exact = Math.min(n, EXACT_ZETA_TERMS);
+        double sum = 0;
+        for (long i = 1; i <= exact; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        if (n > exact) {
+            // Midpoint rule for the tail: the sum from exact + 1 to n is close to the integral from exact + 0.5
+            // to n + 0.5, which is accurate to well under one part in a million for these smooth terms
+            sum += (Math.pow(n + 0.5, 1 - theta) - Math.pow(exact + 0.5, 1 - theta)) / (1 - theta);
+        }
+        return sum;
+    }
+}
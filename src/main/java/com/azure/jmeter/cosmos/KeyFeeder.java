@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Hands out keys from a memory-mapped key file to all sampler threads without locking.
+ * <p>
+ * Every line of the file is one key record of comma separated fields, usually an id and a partition key
+ * value, padded with trailing spaces so that all lines have the same length. Record {@code i} then starts at
+ * byte {@code i * recordLength} and any record can be read without an index or a scan, which keeps files
+ * of tens of millions of keys cheap to open and to pick from at random. Files larger than 2 GB are mapped
+ * in several segments.
+ * <p>
+ * A record is copied from the mapping into a {@link Record} owned by the calling thread, and only the
+ * fields that are asked for become strings.
+ */
+public final class KeyFeeder {
+
+    private static final Map<String, KeyFeeder> FEEDERS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final int recordLength;
+    private final long size;
+    private final int recordsPerSegment;
+    private final MappedByteBuffer[] segments;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * One key record, reused by a thread for every key it reads.
+     */
+    public static final class Record {
+        private byte[] bytes = new byte[64];
+        private int length;
+        private int[] fieldStarts = new int[4];
+        private int[] fieldEnds = new int[4];
+        private int fieldCount;
+
+        public int getFieldCount() {
+            return fieldCount;
+        }
+
+        /**
+         * @return field {@code index} of the record, without surrounding whitespace
+         */
+        public String field(int index) {
+            if (index >= fieldCount) {
+                throw new IllegalArgumentException("Key record has no field " + (index + 1) + ": "
+                        + new String(bytes, 0, length, UTF_8));
+            }
+            return new String(bytes, fieldStarts[index], fieldEnds[index] - fieldStarts[index], UTF_8);
+        }
+
+        private void split() {
+            fieldCount = 0;
+            int start = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i == length || bytes[i] == ',') {
+                    if (fieldCount == fieldStarts.length) {
+                        fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                        fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                    }
+                    int end = i;
+                    while (start < end && bytes[start] == ' ') {
+                        start++;
+                    }
+                    while (end > start && bytes[end - 1] == ' ') {
+                        end--;
+                    }
+                    fieldStarts[fieldCount] = start;
+                    fieldEnds[fieldCount] = end;
+                    fieldCount++;
+                    start = i + 1;
+                }
+            }
+        }
+    }
+
+    private KeyFeeder(String path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            MappedByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(fileSize, Integer.MAX_VALUE));
+            int newline = -1;
+            for (int i = 0; i < first.limit(); i++) {
+                if (first.get(i) == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+            if (newline <= 0) {
+                throw new IllegalArgumentException("Key file " + path + " has no complete key record");
+            }
+            this.recordLength = newline + 1;
+            if (fileSize % recordLength != 0) {
+                throw new IllegalArgumentException("Lines of key file " + path + " must all be padded to "
+                        + recordLength + " bytes including the line break");
+            }
+            this.size = fileSize / recordLength;
+            this.recordsPerSegment = Integer.MAX_VALUE / recordLength;
+            int segmentCount = (int) ((size + recordsPerSegment - 1) / recordsPerSegment);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = (long) i * recordsPerSegment * recordLength;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min((long) recordsPerSegment * recordLength, fileSize - offset));
+            }
+        }
+    }
+
+    /**
+     * @return the feeder shared by all samplers reading {@code path}, mapping the file on first use
+     * @throws IOException              if the file cannot be mapped
+     * @throws IllegalArgumentException if the lines of the file are not all the same length
+     */
+    public static KeyFeeder forFile(String path) throws IOException {
+        KeyFeeder feeder = FEEDERS.get(path);
+        if (feeder == null) {
+            synchronized (FEEDERS) {
+                feeder = FEEDERS.get(path);
+                if (feeder == null) {
+                    feeder = new KeyFeeder(path);
+                    FEEDERS.put(path, feeder);
+                }
+            }
+        }
+        return feeder;
+    }
+
+    /**
+     * Forgets every feeder so that the next test maps its files again and starts sequential walks from the
+     * top. The mappings are released once they are garbage collected.
+     */
+    public static void closeAll() {
+        FEEDERS.clear();
+    }
+
+    /**
+     * @return the number of key records in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Reads the next key chosen by {@code distribution} into {@code record}.
+     */
+    public void next(KeyDistribution distribution, Record record) {
+        read(distribution.next(sequence), record);
+    }
+
+    /**
+     * Reads key record {@code index} into {@code record}.
+     */
+    public void read(long index, Record record) {
+        MappedByteBuffer segment = segments[(int) (index / recordsPerSegment)];
+        int position = (int) (index % recordsPerSegment) * recordLength;
+        int length = recordLength - 1;
+        if (record.bytes.length < length) {
+            record.bytes = new byte[length];
+        }
+        byte[] bytes = record.bytes;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = segment.get(position + i);
+        }
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        record.length = length;
+        record.split();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serves the live statistics of the {@link HistogramAggregator} at {@code /metrics} in the OpenMetrics text
+ * format, so a local Prometheus or similar scraper can watch a run as it happens.
+ * <p>
+ * The endpoint runs on the JDK's own HTTP server with a single thread. Samplers start it when their test
+ * starts and stop it when it ends; it is started by the first and stopped by the last.
+ */
+public final class MetricsEndpoint {
+
+    private static final Logger logger = LogManager.getLogger(MetricsEndpoint.class);
+
+    static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static HttpServer server;
+    private static int users;
+
+    private MetricsEndpoint() {
+    }
+
+    /**
+     * Starts serving the metrics of {@code aggregator} on {@code port} unless it is already being served.
+     * An address or port that cannot be bound is logged rather than failing the test.
+     *
+     * @param bindAddress the address to listen on, or empty for the loopback address, so the metrics are not
+     *                    exposed to the network unless asked for
+     * @param port        the port to listen on, or 0 for any free port
+     * @return true if the endpoint is being served, in which case the caller must {@link #stop()} it
+     */
+    public static synchronized boolean start(String bindAddress, int port, HistogramAggregator aggregator) {
+        if (server == null) {
+            try {
+                InetAddress address = bindAddress.isBlank()
+                        ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddress.trim());
+                server = HttpServer.create(new InetSocketAddress(address, port), 0);
+            } catch (IOException e) {
+                logger.warn("Failed to start the metrics endpoint on {} port {}", bindAddress, port, e);
+                return false;
+            }
+            server.createContext("/metrics", exchange -> serve(exchange, aggregator));
+            server.start();
+            logger.info("Serving Cosmos DB sampler metrics at http://{}:{}/metrics",
+                    server.getAddress().getHostString(), getPort());
+        }
+        users++;
+        return true;
+    }
+
+    /**
+     * Stops serving once every sampler that started the endpoint has stopped it.
+     */
+    public static synchronized void stop() {
+        if (users > 0 && --users == 0) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * @return the port the endpoint listens on, or 0 if it is not running
+     */
+    public static synchronized int getPort() {
+        return server == null ? 0 : server.getAddress().getPort();
+    }
+
+    private static void serve(HttpExchange exchange, HistogramAggregator aggregator) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder metrics = new StringBuilder();
+            aggregator.writeOpenMetrics(metrics);
+            byte[] body = metrics.toString().getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+/**
+ * Issues requests without blocking at a fixed arrival rate, one window at a time.
+ * <p>
+ * Every request has an intended start time on a fixed schedule, and its corrected latency is measured
+ * from that time rather than from when it was actually sent. A slow service therefore shows up as
+ * higher latency instead of as a lower request rate, avoiding coordinated omission. The schedule
+ * carries over from one window to the next unless the caller was away for longer than a window.
+ * Requests still in flight when a window's drain timeout expires are cancelled and counted as timed out,
+ * and each window records into its own histograms, so nothing completing late leaks into the next window.
+ * <p>
+ * Each sampler clone owns one runner; {@link #run} must not be called concurrently.
+ */
+public class OpenLoopRunner {
+
+    private static final long NANOS_PER_MICRO = 1_000L;
+
+    private final LongSupplier nanoTime;
+    private long nextIntendedNanos;
+
+    public OpenLoopRunner() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the clock the schedule and latencies are measured with, in the manner of
+     *                 {@link System#nanoTime()}
+     */
+    OpenLoopRunner(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * The outcome of one window of requests.
+     */
+    public static final class Window {
+        private final double targetRate;
+        private final long elapsedNanos;
+        private final int issued;
+        private final int completed;
+        private final int failed;
+        private final int timedOut;
+        private final double requestCharge;
+        private final Histogram corrected;
+        private final Histogram service;
+
+        private Window(double targetRate, long elapsedNanos, int issued, int completed, int failed, int timedOut,
+                       double requestCharge, Histogram corrected, Histogram service) {
+            this.targetRate = targetRate;
+            this.elapsedNanos = elapsedNanos;
+            this.issued = issued;
+            this.completed = completed;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.requestCharge = requestCharge;
+            this.corrected = corrected;
+            this.service = service;
+        }
+
+        public int getIssued() {
+            return issued;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * @return latencies in microseconds measured from each request's intended start time
+         */
+        public Histogram getCorrectedLatency() {
+            return corrected;
+        }
+
+        /**
+         * Writes counts, rates and latency percentiles in milliseconds.
+         */
+        public void writeTo(Map<String, String> diagnosticsData) {
+            double seconds = Math.max(elapsedNanos, 1) / 1e9;
+            diagnosticsData.put("Issued", Integer.toString(issued));
+            diagnosticsData.put("Completed", Integer.toString(completed));
+            diagnosticsData.put("Failed", Integer.toString(failed));
+            diagnosticsData.put("TimedOut", Integer.toString(timedOut));
+            diagnosticsData.put("TargetRate", CosmosResponseMetrics.formatFixed(targetRate, 2));
+            diagnosticsData.put("AchievedRate", CosmosResponseMetrics.formatFixed(completed / seconds, 2));
+            diagnosticsData.put(CosmosResponseMetrics.REQUEST_CHARGE,
+                    CosmosResponseMetrics.formatFixed(requestCharge, 2) + "RUs");
+            Percentiles.writeTo(diagnosticsData, "CorrectedLatency", corrected, 1000.0, 3);
+            Percentiles.writeTo(diagnosticsData, "ServiceLatency", service, 1000.0, 3);
+        }
+    }
+
+    /**
+     * Issues requests at {@code ratePerSecond} for {@code windowNanos}, then waits up to
+     * {@code drainTimeoutNanos} for the requests still in flight and cancels those that have not finished.
+     *
+     * @param requests      creates the next request; it is subscribed to immediately and emits its request charge
+     * @param maxInFlight   the most requests outstanding at once; when reached, issuing waits for a completion,
+     *                      which still counts against the corrected latency of the delayed requests
+     * @throws InterruptedException if the thread is interrupted, for example because the test is stopping
+     */
+    public Window run(Supplier<Mono<Double>> requests, double ratePerSecond, long windowNanos, int maxInFlight,
+                      long drainTimeoutNanos) throws InterruptedException {
+        long intervalNanos = Math.max(1, (long) (1e9 / ratePerSecond));
+        long now = nanoTime.getAsLong();
+        long windowStart = nextIntendedNanos == 0 || now - nextIntendedNanos > windowNanos ? now : nextIntendedNanos;
+        long windowEnd = windowStart + windowNanos;
+
+        Recorder correctedLatency = new Recorder(3);
+        Recorder serviceLatency = new Recorder(3);
+        Disposable.Composite pending = Disposables.composite();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        DoubleAdder requestCharge = new DoubleAdder();
+        int issued = 0;
+        long intended = windowStart;
+        int timedOut = 0;
+        try {
+            while (intended < windowEnd) {
+                long wait;
+                while ((wait = intended - nanoTime.getAsLong()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                inFlight.acquire();
+                long intendedStart = intended;
+                long actualStart = nanoTime.getAsLong();
+                issued++;
+                try {
+                    pending.add(requests.get().subscribe(requestCharge::add,
+                            error -> {
+                                failed.incrementAndGet();
+                                complete(correctedLatency, serviceLatency, inFlight, intendedStart, actualStart);
+                            },
+                            () -> {
+                                completed.incrementAndGet();
+                                complete(correctedLatency, serviceLatency, inFlight, intendedStart, actualStart);
+                            }));
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    complete(correctedLatency, serviceLatency, inFlight, intendedStart, actualStart);
+                }
+                intended += intervalNanos;
+            }
+            nextIntendedNanos = intended;
+
+            if (inFlight.tryAcquire(maxInFlight, drainTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                inFlight.release(maxInFlight);
+            } else {
+                timedOut = maxInFlight - inFlight.availablePermits();
+            }
+        } finally {
+            // Cancels whatever is still in flight, whether the drain timed out or the thread was interrupted
+            pending.dispose();
+        }
+        long elapsedNanos = nanoTime.getAsLong() - windowStart;
+
+        return new Window(ratePerSecond, elapsedNanos, issued, completed.get(), failed.get(), timedOut,
+                requestCharge.sum(), correctedLatency.getIntervalHistogram(), serviceLatency.getIntervalHistogram());
+    }
+
+    private void complete(Recorder correctedLatency, Recorder serviceLatency, Semaphore inFlight,
+                          long intendedStart, long actualStart) {
+        long end = nanoTime.getAsLong();
+        correctedLatency.recordValue((end - intendedStart) / NANOS_PER_MICRO);
+        serviceLatency.recordValue((end - actualStart) / NANOS_PER_MICRO);
+        inFlight.release();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+/**
+ * The Azure Cosmos DB operation issued by each sample.
+ */
+public enum OperationType {
+    QUERY,
+    READ,
+    UPSERT,
+    CREATE,
+    REPLACE,
+    DELETE,
+    PATCH,
+    BULK,
+    BATCH,
+    CHANGE_FEED;
+
+    /**
+     * @return true if the operation reads or writes a single item
+     */
+    public boolean isPointOperation() {
+        return this != QUERY && this != BULK && this != BATCH && this != CHANGE_FEED;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
+
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * The parsed shape of a parameterized query: the query text and how each named parameter is bound
+ * from a JMeter variable.
+ * <p>
+ * Bindings are written one per line or separated by {@code ;}, as {@code @name=variable} or
+ * {@code @name=variable:type} where type is {@code string} (the default), {@code number} or {@code boolean}.
+ * Instances are immutable; {@link #bind} creates a new {@link SqlQuerySpec} per call so specs can be
+ * in flight concurrently.
+ */
+public final class ParameterizedQuery {
+
+    private static final class Binding {
+        private final String name;
+        private final String variable;
+        private final ValueType type;
+
+        private Binding(String name, String variable, ValueType type) {
+            this.name = name;
+            this.variable = variable;
+            this.type = type;
+        }
+    }
+
+    private final String queryText;
+    private final String parameterSpec;
+    private final List<Binding> bindings;
+
+    private ParameterizedQuery(String queryText, String parameterSpec, List<Binding> bindings) {
+        this.queryText = queryText;
+        this.parameterSpec = parameterSpec;
+        this.bindings = bindings;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a binding is malformed
+     */
+    public static ParameterizedQuery parse(String queryText, String parameterSpec) {
+        List<Binding> bindings = new ArrayList<>();
+        for (String entry : parameterSpec.split("[;\\r\\n]")) {
+            String binding = entry.trim();
+            if (binding.isEmpty()) {
+                continue;
+            }
+            int equals = binding.indexOf('=');
+            if (equals <= 0 || binding.charAt(0) != '@') {
+                throw new IllegalArgumentException("Query parameter must be written as @name=variable: " + binding);
+            }
+            String name = binding.substring(0, equals).trim();
+            String variable = binding.substring(equals + 1).trim();
+            ValueType type = ValueType.STRING;
+            int colon = variable.lastIndexOf(':');
+            if (colon > 0) {
+                type = Enums.fromString(ValueType.class, variable.substring(colon + 1), ValueType.STRING);
+                variable = variable.substring(0, colon).trim();
+            }
+            bindings.add(new Binding(name, variable, type));
+        }
+        return new ParameterizedQuery(queryText, parameterSpec, Collections.unmodifiableList(bindings));
+    }
+
+    /**
+     * @return true if this query was parsed from the given query text and parameter bindings
+     */
+    public boolean matches(String queryText, String parameterSpec) {
+        return Objects.equals(this.queryText, queryText) && Objects.equals(this.parameterSpec, parameterSpec);
+    }
+
+    public String getQueryText() {
+        return queryText;
+    }
+
+    public boolean hasParameters() {
+        return !bindings.isEmpty();
+    }
+
+    /**
+     * Creates a query spec with every parameter set from the current value of its variable.
+     *
+     * @throws IllegalArgumentException if a variable is not set or cannot be converted to its type
+     */
+    public SqlQuerySpec bind(JMeterVariables variables) {
+        List<SqlParameter> parameters = new ArrayList<>(bindings.size());
+        for (Binding binding : bindings) {
+            String value = variables == null ? null : variables.get(binding.variable);
+            if (value == null) {
+                throw new IllegalArgumentException("JMeter variable " + binding.variable + " is not set");
+            }
+            parameters.add(new SqlParameter(binding.name, binding.type.convert(value)));
+        }
+        return new SqlQuerySpec(queryText, parameters);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Map;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.DoubleHistogram;
+
+/**
+ * Writes the standard set of percentiles of a histogram into a diagnostics map.
+ */
+public final class Percentiles {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] SUFFIXES = {"P50", "P90", "P99", "P999"};
+
+    private Percentiles() {
+    }
+
+    /**
+     * Writes p50, p90, p99, p99.9 and max as {@code <prefix>P50} ... {@code <prefix>Max}, dividing every
+     * recorded value by {@code scale} and formatting it with {@code decimals} decimals.
+     */
+    public static void writeTo(Map<String, String> data, String prefix, AbstractHistogram histogram, double scale,
+                               int decimals) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double value = histogram.getValueAtPercentile(PERCENTILES[i]) / scale;
+            data.put(prefix + SUFFIXES[i], CosmosResponseMetrics.formatFixed(value, decimals));
+        }
+        data.put(prefix + "Max", CosmosResponseMetrics.formatFixed(histogram.getMaxValue() / scale, decimals));
+    }
+
+    /**
+     * Writes p50, p90, p99, p99.9 and max of a {@link DoubleHistogram} with {@code decimals} decimals.
+     */
+    public static void writeTo(Map<String, String> data, String prefix, DoubleHistogram histogram, int decimals) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            data.put(prefix + SUFFIXES[i],
+                    CosmosResponseMetrics.formatFixed(histogram.getValueAtPercentile(PERCENTILES[i]), decimals));
+        }
+        data.put(prefix + "Max", CosmosResponseMetrics.formatFixed(histogram.getMaxValue(), decimals));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A weighted mix of named queries, from which each sample picks one.
+ * <p>
+ * The mix is written as a JSON array, for example
+ * <pre>
+ * [{"name": "byTenant", "weight": 70, "query": "SELECT * FROM c WHERE c.tenant = @tenant",
+ *   "parameters": "@tenant=tenantId"},
+ *  {"name": "recent", "weight": 30, "query": "SELECT TOP 10 * FROM c ORDER BY c._ts DESC"}]
+ * </pre>
+ * where {@code weight} defaults to 1 and {@code parameters} uses the bindings of {@link ParameterizedQuery}.
+ * Queries are chosen with Walker's alias method, which takes one random index and one random double per
+ * pick however many queries there are. Instances are immutable and can be shared between threads.
+ */
+public final class QueryMix {
+
+    /**
+     * One named query of the mix.
+     */
+    public static final class Entry {
+        private final String name;
+        private final double weight;
+        private final ParameterizedQuery query;
+        private final String label;
+
+        private Entry(String name, double weight, ParameterizedQuery query) {
+            this.name = name;
+            this.weight = weight;
+            this.query = query;
+            this.label = "Azure Cosmos DB Sampler: " + name;
+        }
+
+        /**
+         * @return the name, which samples of this query report as their queryType
+         */
+        public String getName() {
+            return name;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        public ParameterizedQuery getQuery() {
+            return query;
+        }
+
+        /**
+         * @return the sample label for this query
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String spec;
+    private final List<Entry> entries;
+    private final double[] probability;
+    private final int[] alias;
+
+    private QueryMix(String spec, List<Entry> entries) {
+        this.spec = spec;
+        this.entries = entries;
+        int size = entries.size();
+        this.probability = new double[size];
+        this.alias = new int[size];
+
+        double totalWeight = 0;
+        for (Entry entry : entries) {
+            totalWeight += entry.weight;
+        }
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = entries.get(i).weight * size / totalWeight;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] -= 1.0 - scaled[less];
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left is 1 up to rounding error
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the mix is not a non-empty JSON array of named queries with positive
+     *                                  weights, or a parameter binding is malformed
+     */
+    public static QueryMix parse(String spec) throws IOException {
+        JsonNode root = ItemTemplates.MAPPER.readTree(spec);
+        if (root == null || !root.isArray() || root.size() == 0) {
+            throw new IllegalArgumentException("Query mix must be a non-empty JSON array of queries");
+        }
+        List<Entry> entries = new ArrayList<>(root.size());
+        for (JsonNode node : root) {
+            String name = node.path("name").asText("");
+            String queryText = node.path("query").asText("");
+            double weight = node.path("weight").asDouble(1.0);
+            if (name.isEmpty() || queryText.isEmpty()) {
+                throw new IllegalArgumentException("Every query in the mix needs a name and a query: " + node);
+            }
+            if (!(weight > 0)) {
+                throw new IllegalArgumentException("Weight of query " + name + " must be positive: " + weight);
+            }
+            ParameterizedQuery query = ParameterizedQuery.parse(queryText, node.path("parameters").asText(""));
+            entries.add(new Entry(name, weight, query));
+        }
+        return new QueryMix(spec, Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * @return true if this mix was parsed from {@code spec}
+     */
+    public boolean matches(String spec) {
+        return this.spec.equals(spec);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return a query picked at random in proportion to its weight
+     */
+    public Entry next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? entries.get(column) : entries.get(alias[column]);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Paces the samples of every thread sharing it to a common rate, and adjusts that rate once a second to hold
+ * a target request unit consumption or throttle ratio.
+ * <p>
+ * In {@link GovernorMode#REQUEST_UNITS} mode the next rate is the target divided by the request charge of an
+ * average sample. In {@link GovernorMode#THROTTLE_RATIO} mode the rate backs off by 30% while the share of
+ * samples that were throttled at least once is above the target, and otherwise grows by 10%. Either way the
+ * rate changes by at most a factor of two per second, and never rises above twice the rate the threads
+ * actually achieved, so it does not run away while the threads cannot keep up. The rate it settles at is the
+ * sustainable throughput of the account for the workload.
+ * <p>
+ * Pacing and recording are lock free; whichever thread records the first sample after a second has passed
+ * makes the adjustment.
+ */
+public final class RateGovernor {
+
+    private static final Logger logger = LogManager.getLogger(RateGovernor.class);
+
+    private static final Map<String, RateGovernor> GOVERNORS = new ConcurrentHashMap<>();
+
+    static final double MIN_RATE = 1.0;
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double MAX_STEP = 2.0;
+    private static final double BACK_OFF = 0.7;
+    private static final double GROWTH = 1.1;
+
+    private final String key;
+    private final GovernorMode mode;
+    private final double target;
+    private volatile double rate;
+    private final AtomicLong nextSlotNanos;
+    private final AtomicLong windowStartNanos;
+    private final DoubleAdder requestCharge = new DoubleAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder throttledSamples = new LongAdder();
+    private final AtomicBoolean warned = new AtomicBoolean();
+
+    RateGovernor(String key, GovernorMode mode, double target, double initialRate) {
+        this.key = key;
+        this.mode = mode;
+        this.target = target;
+        this.rate = Math.max(initialRate, MIN_RATE);
+        long now = System.nanoTime();
+        this.nextSlotNanos = new AtomicLong(now);
+        this.windowStartNanos = new AtomicLong(now);
+    }
+
+    /**
+     * @return the governor shared by all samplers with the same settings
+     */
+    public static RateGovernor forSettings(GovernorMode mode, double target, double initialRate) {
+        String key = key(mode, target, initialRate);
+        return GOVERNORS.computeIfAbsent(key, k -> new RateGovernor(k, mode, target, initialRate));
+    }
+
+    /**
+     * Logs the rate each governor settled at and forgets them, so the next test starts from the initial rate.
+     */
+    public static void clearAll() {
+        for (RateGovernor governor : GOVERNORS.values()) {
+            logger.info("Rate governor holding {} at {} settled at {} samples/s", governor.mode, governor.target,
+                    CosmosResponseMetrics.formatFixed(governor.rate, 1));
+        }
+        GOVERNORS.clear();
+    }
+
+    private static String key(GovernorMode mode, double target, double initialRate) {
+        return mode.name() + ':' + target + ':' + initialRate;
+    }
+
+    /**
+     * @return true if this governor was created with the given settings
+     */
+    public boolean matches(GovernorMode mode, double target, double initialRate) {
+        return key.equals(key(mode, target, initialRate));
+    }
+
+    /**
+     * Waits for this thread's turn at the current rate. Turns are not saved up while threads are idle, so a
+     * pause is not followed by a burst.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long now = System.nanoTime();
+        long interval = (long) (1e9 / rate);
+        long slot;
+        while (true) {
+            long next = nextSlotNanos.get();
+            slot = Math.max(next, now);
+            if (nextSlotNanos.compareAndSet(next, slot + interval)) {
+                break;
+            }
+        }
+        long remaining;
+        while ((remaining = slot - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of one sample, and adjusts the rate if a second has passed since the last adjustment.
+     *
+     * @param charge    the request units the sample consumed
+     * @param throttled true if at least one of its requests was rejected with 429
+     */
+    public void record(double charge, boolean throttled) {
+        requestCharge.add(charge);
+        samples.increment();
+        if (throttled) {
+            throttledSamples.increment();
+        }
+        long now = System.nanoTime();
+        long start = windowStartNanos.get();
+        if (now - start >= ADJUST_INTERVAL_NANOS && windowStartNanos.compareAndSet(start, now)) {
+            adjust(now - start);
+        }
+    }
+
+    /**
+     * Sets the next rate from the samples recorded over the last {@code elapsedNanos}.
+     */
+    void adjust(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double charge = requestCharge.sumThenReset();
+        long count = samples.sumThenReset();
+        long throttled = throttledSamples.sumThenReset();
+        if (count == 0 || seconds <= 0) {
+            return;
+        }
+        double current = rate;
+        double achieved = count / seconds;
+        double next;
+        if (mode == GovernorMode.REQUEST_UNITS) {
+            double chargePerSample = charge / count;
+            if (chargePerSample > 0) {
+                next = target / chargePerSample;
+            } else {
+                warnOnce("{} samples over {} s reported no request charge, so the rate governor holding {} RU/s"
+                        + " can only raise the rate", count, CosmosResponseMetrics.formatFixed(seconds, 1), target);
+                next = current * MAX_STEP;
+            }
+        } else {
+            if (!CosmosResponseMetrics.RETRY_STATISTICS_READABLE.get()) {
+                warnOnce("Retries cannot be read from the SDK's request statistics, so the rate governor holding"
+                        + " a throttle ratio of {} only sees requests that failed with 429", target);
+            }
+            next = (double) throttled / count > target ? current * BACK_OFF : current * GROWTH;
+        }
+        next = Math.min(Math.max(next, current / MAX_STEP), current * MAX_STEP);
+        next = Math.min(next, Math.max(achieved * MAX_STEP, MIN_RATE));
+        rate = Math.max(next, MIN_RATE);
+        logger.debug("Rate governor {} adjusted from {} to {} samples/s, achieved {} and {} RU/s, {} of {} "
+                + "throttled", mode, current, rate, achieved, charge / seconds, throttled, count);
+    }
+
+    /**
+     * Warns about a window the governor could not measure, once per governor so a whole test of them does not
+     * flood the log.
+     */
+    private void warnOnce(String message, Object... parameters) {
+        if (warned.compareAndSet(false, true)) {
+            logger.warn(message, parameters);
+        }
+    }
+
+    /**
+     * @return true if a window could not be measured, because it had no request charge or no retry data
+     */
+    boolean hasWarned() {
+        return warned.get();
+    }
+
+    /**
+     * @return the current target rate in samples per second
+     */
+    public double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A query result that is streamed, as it is deserialized, into the size and CRC32 of its compact JSON, and of
+ * which nothing else is kept. Querying into this type spares the sampler from building a {@code JsonNode} of
+ * each result and walking it again to checksum it. It does not spare the SDK, which still parses each page
+ * into a tree and hands every result over through a parser reading that tree.
+ * <p>
+ * The size and CRC are those of the JSON the shared mapper writes for the same value, so results read either
+ * way add up to the same {@link ResultChecksum}.
+ */
+@JsonDeserialize(using = RawDocument.Deserializer.class)
+public final class RawDocument {
+
+    /** A JSON {@code null} result, which some mappers hand over as {@code null} instead of deserializing it. */
+    static final RawDocument NULL = forNull();
+
+    private final long byteCount;
+    private final long crc;
+
+    private RawDocument(long byteCount, long crc) {
+        this.byteCount = byteCount;
+        this.crc = crc;
+    }
+
+    private static RawDocument forNull() {
+        byte[] json = "null".getBytes(UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        return new RawDocument(json.length, crc.getValue());
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    /**
+     * Streams each value token by token through a sink of the deserializing thread.
+     */
+    public static final class Deserializer extends StdDeserializer<RawDocument> {
+
+        private static final ThreadLocal<ResultChecksum.Sink> SINKS = ThreadLocal.withInitial(ResultChecksum.Sink::new);
+
+        public Deserializer() {
+            super(RawDocument.class);
+        }
+
+        @Override
+        public RawDocument deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            ResultChecksum.Sink sink = SINKS.get();
+            sink.copy(parser);
+            return new RawDocument(sink.getByteCount(), sink.getCrc());
+        }
+
+        @Override
+        public RawDocument getNullValue(DeserializationContext context) {
+            return NULL;
+        }
+    }
+}
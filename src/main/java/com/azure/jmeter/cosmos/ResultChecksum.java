@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Counts the bytes of a sample's query results and sums a CRC32 of each result, so that runs can check they
+ * read the same data. Results are streamed through the checksum as they serialize, without building a copy
+ * of them, and the sum does not depend on the order results arrive in, so unordered cross-partition queries
+ * give the same checksum every time. Results queried as {@link RawDocument}s were already counted and checksummed
+ * as they were read, and only their totals are added.
+ * <p>
+ * Instances are not thread safe; one is reused for every sample of a sampler thread.
+ */
+public final class ResultChecksum {
+
+    static final String RESULT_BYTES = "ResultBytes";
+    static final String RESULT_CHECKSUM = "ResultChecksum";
+
+    private final Sink sink = new Sink();
+    private long documentCount;
+    private long byteCount;
+    private long checksum;
+
+    /**
+     * Serializes JSON values into a CRC32 and a byte count, one value at a time, without keeping the bytes.
+     */
+    static final class Sink extends OutputStream {
+        private final CRC32 crc = new CRC32();
+        private final JsonGenerator generator;
+        private long byteCount;
+
+        Sink() {
+            try {
+                generator = ItemTemplates.MAPPER.getFactory().createGenerator(this);
+                // Each value is checksummed on its own, without the space written between root values
+                generator.setRootValueSeparator(null);
+            } catch (IOException e) {
+                // Creating a generator over a stream that never fails does not do I/O
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            crc.update(b);
+            byteCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            crc.update(b, off, len);
+            byteCount += len;
+        }
+
+        void serialize(JsonNode value) throws IOException {
+            crc.reset();
+            byteCount = 0;
+            ItemTemplates.MAPPER.writeTree(generator, value);
+            generator.flush();
+        }
+
+        /**
+         * Streams the value {@code parser} is at, leaving the parser on its last token.
+         */
+        void copy(JsonParser parser) throws IOException {
+            crc.reset();
+            byteCount = 0;
+            generator.copyCurrentStructure(parser);
+            generator.flush();
+        }
+
+        long getByteCount() {
+            return byteCount;
+        }
+
+        long getCrc() {
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * Adds one result document.
+     */
+    public void add(JsonNode document) {
+        try {
+            sink.serialize(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        add(sink.getByteCount(), sink.getCrc());
+    }
+
+    /**
+     * Adds one result document that was counted as it was read.
+     */
+    public void add(RawDocument document) {
+        RawDocument counted = document != null ? document : RawDocument.NULL;
+        add(counted.getByteCount(), counted.getCrc());
+    }
+
+    private void add(long bytes, long crc) {
+        byteCount += bytes;
+        checksum += crc;
+        documentCount++;
+    }
+
+    public void reset() {
+        documentCount = 0;
+        byteCount = 0;
+        checksum = 0;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Writes the byte count and the checksum, as 16 hex digits.
+     */
+    public void writeTo(Map<String, String> diagnosticsData) {
+        diagnosticsData.put(RESULT_BYTES, Long.toString(byteCount));
+        diagnosticsData.put(RESULT_CHECKSUM, String.format("%016x", checksum));
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.implementation.CosmosPagedFluxOptions;
+import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.ModelBridgeInternal;
+import com.azure.cosmos.util.CosmosPagedFlux;
+import com.azure.cosmos.util.UtilBridgeInternal;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An in-process stand-in for a Cosmos DB container, selected by a {@code simulated:} CosmosDB URI, so test
+ * plans and the load generator itself can be exercised without an account.
+ * <p>
+ * The behaviour is configured by the query string of the URI, for example
+ * {@code simulated://local?pages=3&items=10&latency=lognormal:4:0.5&throttleRate=0.01}:
+ * <ul>
+ *     <li>{@code pages}, {@code items}: pages per query and items per page, unless the page size asks for fewer</li>
+ *     <li>{@code charge}: request units per page; {@code serverTimeMs}: reported query execution time per page</li>
+ *     <li>{@code latency}: milliseconds per page, as {@code 5}, {@code uniform:2:8}, {@code exponential:5} or
+ *     {@code lognormal:median:sigma}</li>
+ *     <li>{@code throttleRate}, {@code retryAfterMs}: share of pages failing with 429, and the retry-after
+ *     they carry</li>
+ *     <li>{@code timeoutRate}, {@code timeoutMs}: share of pages failing with 408 after {@code timeoutMs}</li>
+ *     <li>{@code splitRate}: share of pages failing with 410 and the partition key range gone sub-status</li>
+ * </ul>
+ * Only queries are simulated; the SDK gives no way to create point operation responses outside a real client.
+ */
+public final class SimulatedBackend {
+
+    public static final String SCHEME = "simulated:";
+
+    private static final Map<String, SimulatedBackend> BACKENDS = new ConcurrentHashMap<>();
+
+    private final int pages;
+    private final int items;
+    private final double charge;
+    private final double serverTimeMillis;
+    private final LatencyDistribution latency;
+    private final double throttleRate;
+    private final long retryAfterMillis;
+    private final double timeoutRate;
+    private final long timeoutMillis;
+    private final double splitRate;
+    private final List<JsonNode> documents;
+
+    /**
+     * A simulated failure carrying the status, sub-status and headers the service would have sent.
+     */
+    static final class SimulatedCosmosException extends CosmosException {
+        private static final long serialVersionUID = 1L;
+
+        SimulatedCosmosException(int statusCode, int subStatusCode, String message, Map<String, String> headers) {
+            super(statusCode, message, withSubStatus(headers, subStatusCode), null);
+        }
+
+        private static Map<String, String> withSubStatus(Map<String, String> headers, int subStatusCode) {
+            Map<String, String> responseHeaders = new HashMap<>(headers);
+            responseHeaders.put(HttpConstants.HttpHeaders.SUB_STATUS, Integer.toString(subStatusCode));
+            return responseHeaders;
+        }
+    }
+
+    /**
+     * Per-page latency in milliseconds.
+     */
+    static final class LatencyDistribution {
+        private enum Kind { CONSTANT, UNIFORM, EXPONENTIAL, LOGNORMAL }
+
+        private final Kind kind;
+        private final double first;
+        private final double second;
+
+        private LatencyDistribution(Kind kind, double first, double second) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the distribution is not one of the supported forms
+         */
+        static LatencyDistribution parse(String spec) {
+            String[] parts = spec.trim().split(":");
+            try {
+                if (parts.length == 1) {
+                    return new LatencyDistribution(Kind.CONSTANT, Double.parseDouble(parts[0]), 0);
+                }
+                Kind kind = Kind.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+                double first = Double.parseDouble(parts[1]);
+                double second = parts.length > 2 ? Double.parseDouble(parts[2]) : 0;
+                return new LatencyDistribution(kind, first, second);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Latency must be ms, uniform:min:max, exponential:mean or "
+                        + "lognormal:median:sigma: " + spec, e);
+            }
+        }
+
+        long nextNanos() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double millis;
+            switch (kind) {
+                case UNIFORM:
+                    millis = first + random.nextDouble() * (second - first);
+                    break;
+                case EXPONENTIAL:
+                    millis = -first * Math.log(1 - random.nextDouble());
+                    break;
+                case LOGNORMAL:
+                    millis = first * Math.exp(second * random.nextGaussian());
+                    break;
+                default:
+                    millis = first;
+                    break;
+            }
+            return (long) (Math.max(millis, 0) * 1e6);
+        }
+    }
+
+    private SimulatedBackend(Map<String, String> settings) {
+        this.pages = Math.max(1, (int) number(settings, "pages", 1));
+        this.items = Math.max(0, (int) number(settings, "items", 10));
+        this.charge = number(settings, "charge", 2.5);
+        this.serverTimeMillis = number(settings, "serverTimeMs", 0.2);
+        this.latency = LatencyDistribution.parse(settings.getOrDefault("latency", "0"));
+        this.throttleRate = number(settings, "throttleRate", 0);
+        this.retryAfterMillis = (long) number(settings, "retryAfterMs", 100);
+        this.timeoutRate = number(settings, "timeoutRate", 0);
+        this.timeoutMillis = (long) number(settings, "timeoutMs", 1000);
+        this.splitRate = number(settings, "splitRate", 0);
+
+        List<JsonNode> documents = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            ObjectNode document = ItemTemplates.MAPPER.createObjectNode();
+            document.put("id", "simulated-" + i);
+            documents.add(document);
+        }
+        this.documents = Collections.unmodifiableList(documents);
+    }
+
+    /**
+     * @return true if {@code uri} selects the simulated backend rather than a Cosmos DB account
+     */
+    public static boolean isSimulated(String uri) {
+        return uri != null && uri.startsWith(SCHEME);
+    }
+
+    /**
+     * @return the backend shared by all samplers using {@code uri}
+     * @throws IllegalArgumentException if a setting in the URI is malformed
+     */
+    public static SimulatedBackend forUri(String uri) {
+        return BACKENDS.computeIfAbsent(uri, SimulatedBackend::parse);
+    }
+
+    static SimulatedBackend parse(String uri) {
+        Map<String, String> settings = new HashMap<>();
+        String query = URI.create(uri).getRawQuery();
+        if (query != null) {
+            for (String setting : query.split("&")) {
+                int equals = setting.indexOf('=');
+                if (equals > 0) {
+                    settings.put(URLDecoder.decode(setting.substring(0, equals), UTF_8),
+                            URLDecoder.decode(setting.substring(equals + 1), UTF_8));
+                }
+            }
+        }
+        return new SimulatedBackend(settings);
+    }
+
+    private static double number(Map<String, String> settings, String name, double defaultValue) {
+        String value = settings.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Simulated backend setting " + name + " is not a number: " + value, e);
+        }
+    }
+
+    /**
+     * Runs a query. Nothing happens until the pages are subscribed to, as with a real container.
+     */
+    public CosmosPagedFlux<JsonNode> queryItems() {
+        return UtilBridgeInternal.createCosmosPagedFlux(this::queryPages);
+    }
+
+    private Flux<FeedResponse<JsonNode>> queryPages(CosmosPagedFluxOptions options) {
+        Integer maxItemCount = options.getMaxItemCount();
+        int pageItems = maxItemCount != null && maxItemCount > 0 ? Math.min(maxItemCount, items) : items;
+        return Flux.range(1, pages).concatMap(page -> nextPage(page, pageItems));
+    }
+
+    private Mono<FeedResponse<JsonNode>> nextPage(int page, int pageItems) {
+        double outcome = ThreadLocalRandom.current().nextDouble();
+        if (outcome < throttleRate) {
+            Map<String, String> headers = new HashMap<>();
+            headers.put(HttpConstants.HttpHeaders.RETRY_AFTER_IN_MILLISECONDS, Long.toString(retryAfterMillis));
+            return delayed(latency.nextNanos(), new SimulatedCosmosException(
+                    HttpConstants.StatusCodes.TOO_MANY_REQUESTS,
+                    HttpConstants.SubStatusCodes.USER_REQUEST_RATE_TOO_LARGE,
+                    "Simulated request rate too large", headers));
+        }
+        outcome -= throttleRate;
+        if (outcome < timeoutRate) {
+            return delayed(timeoutMillis * 1_000_000L, new SimulatedCosmosException(
+                    HttpConstants.StatusCodes.REQUEST_TIMEOUT, 0, "Simulated request timeout", Collections.emptyMap()));
+        }
+        outcome -= timeoutRate;
+        if (outcome < splitRate) {
+            return delayed(latency.nextNanos(), new SimulatedCosmosException(HttpConstants.StatusCodes.GONE,
+                    HttpConstants.SubStatusCodes.PARTITION_KEY_RANGE_GONE, "Simulated partition split",
+                    Collections.emptyMap()));
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(HttpConstants.HttpHeaders.REQUEST_CHARGE, Double.toString(charge));
+        headers.put(HttpConstants.HttpHeaders.QUERY_METRICS, queryMetrics(pageItems));
+        if (page < pages) {
+            headers.put(HttpConstants.HttpHeaders.CONTINUATION, Integer.toString(page));
+        }
+        FeedResponse<JsonNode> response = ModelBridgeInternal.createFeedResponse(documents.subList(0, pageItems),
+                headers);
+        long delayNanos = latency.nextNanos();
+        return delayNanos > 0 ? Mono.delay(Duration.ofNanos(delayNanos)).thenReturn(response) : Mono.just(response);
+    }
+
+    private static <T> Mono<T> delayed(long delayNanos, CosmosException failure) {
+        Mono<T> error = Mono.error(failure);
+        return delayNanos > 0 ? Mono.delay(Duration.ofNanos(delayNanos)).then(error) : error;
+    }
+
+    private String queryMetrics(int pageItems) {
+        long documentSize = 400L * pageItems;
+        return "totalExecutionTimeInMs=" + serverTimeMillis
+                + ";queryCompileTimeInMs=0.01;queryLogicalPlanBuildTimeInMs=0.00;queryPhysicalPlanBuildTimeInMs=0.00"
+                + ";queryOptimizationTimeInMs=0.00;VMExecutionTimeInMs=" + serverTimeMillis / 2
+                + ";indexLookupTimeInMs=0.00;documentLoadTimeInMs=" + serverTimeMillis / 4
+                + ";systemFunctionExecuteTimeInMs=0.00;userFunctionExecuteTimeInMs=0.00"
+                + ";retrievedDocumentCount=" + pageItems + ";retrievedDocumentSize=" + documentSize
+                + ";outputDocumentCount=" + pageItems + ";outputDocumentSize=" + documentSize
+                + ";writeOutputTimeInMs=0.00;indexUtilizationRatio=1.00";
+    }
+}
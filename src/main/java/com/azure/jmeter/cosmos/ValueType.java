@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+/**
+ * The JSON type a text setting, such as a query parameter or partition key value, is converted to.
+ */
+public enum ValueType {
+    STRING,
+    NUMBER,
+    BOOLEAN;
+
+    /**
+     * @return {@code value} as a {@link String}, a {@link Long} or {@link Double}, or a {@link Boolean}
+     * @throws NumberFormatException if a number is malformed
+     */
+    public Object convert(String value) {
+        switch (this) {
+            case NUMBER:
+                return value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0
+                        ? (Object) Double.parseDouble(value) : (Object) Long.parseLong(value);
+            case BOOLEAN:
+                return Boolean.parseBoolean(value);
+            default:
+                return value;
+        }
+    }
+}
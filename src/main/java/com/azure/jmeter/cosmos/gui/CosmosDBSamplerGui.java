@@ -15,18 +15,31 @@
  */
 package com.azure.jmeter.cosmos.gui;
 
+import com.azure.cosmos.ConnectionMode;
+import com.azure.cosmos.ConsistencyLevel;
 import com.azure.jmeter.cosmos.CosmosDBSampler;
+import com.azure.jmeter.cosmos.DiagnosticsCapture;
+import com.azure.jmeter.cosmos.DrainMode;
+import com.azure.jmeter.cosmos.Enums;
+import com.azure.jmeter.cosmos.GovernorMode;
+import com.azure.jmeter.cosmos.IssueMode;
+import com.azure.jmeter.cosmos.OperationType;
+import com.azure.jmeter.cosmos.ValueType;
 
 import java.awt.BorderLayout;
 import javax.swing.BorderFactory;
 import javax.swing.GroupLayout;
 import javax.swing.GroupLayout.Alignment;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.LayoutStyle.ComponentPlacement;
 
+import org.apache.jmeter.gui.util.VerticalPanel;
 import org.apache.jmeter.samplers.gui.AbstractSamplerGui;
 import org.apache.jmeter.testelement.TestElement;
 
@@ -38,17 +51,148 @@ public class CosmosDBSamplerGui extends AbstractSamplerGui {
     private final JTextField containerID = new JTextField();
     private final JTextField partitionKeyPath = new JTextField();
     private final JTextArea cosmosDBQuery = new JTextArea();
+    private final JTextArea queryParameters = new JTextArea(3, 0);
+    private final JTextArea queryMix = new JTextArea(4, 0);
     private final JTextField runID = new JTextField();
     private final JTextField queryType = new JTextField();
+    private final JComboBox<DrainMode> drainMode = new JComboBox<>(DrainMode.values());
+    private final JTextField pageSize = new JTextField();
+    private final JTextField maxPages = new JTextField();
+    private final JComboBox<OperationType> operationType = new JComboBox<>(OperationType.values());
+    private final JTextField itemID = new JTextField();
+    private final JTextField partitionKeyValue = new JTextField();
+    private final JComboBox<ValueType> partitionKeyType = new JComboBox<>(ValueType.values());
+    private final JTextArea documentTemplate = new JTextArea(4, 0);
+    private final JTextField bulkBatchSize = new JTextField();
+    private final JTextField bulkFeederFile = new JTextField();
+    private final JTextField bulkInitialMicroBatchSize = new JTextField();
+    private final JTextField bulkMaxMicroBatchConcurrency = new JTextField();
+    private final JTextField batchSize = new JTextField();
+    private final JTextField batchOperations = new JTextField();
+    private final JTextField batchPartitionKeyVariable = new JTextField();
+    private final JTextArea batchPatchTemplate = new JTextArea(2, 0);
+    private final JTextField changeFeedStart = new JTextField();
+    private final JTextField keyFeederFile = new JTextField();
+    private final JTextField keyDistribution = new JTextField();
+    private final JTextField keyVariables = new JTextField();
+    private final JComboBox<IssueMode> issueMode = new JComboBox<>(IssueMode.values());
+    private final JTextField targetRate = new JTextField();
+    private final JTextField openLoopWindow = new JTextField();
+    private final JTextField maxInFlight = new JTextField();
+    private final JComboBox<GovernorMode> governorMode = new JComboBox<>(GovernorMode.values());
+    private final JTextField governorTarget = new JTextField();
+    private final JTextField governorInitialRate = new JTextField();
+    private final JTextField diagnosticsJournal = new JTextField();
+    private final JTextField journalRotateSize = new JTextField();
+    private final JComboBox<DiagnosticsCapture> diagnosticsCapture = new JComboBox<>(DiagnosticsCapture.values());
+    private final JTextField diagnosticsThreshold = new JTextField();
+    private final JTextField diagnosticsPercent = new JTextField();
+    private final JComboBox<ConnectionMode> connectionMode = new JComboBox<>(ConnectionMode.values());
+    private final JComboBox<ConsistencyLevel> consistencyLevel = new JComboBox<>(ConsistencyLevel.values());
+    private final JTextField maxConnectionsPerEndpoint = new JTextField();
+    private final JTextField idleEndpointTimeout = new JTextField();
+    private final JTextField preferredRegions = new JTextField();
+    private final JTextField maxDegreeOfParallelism = new JTextField();
+    private final JTextField maxBufferedItemCount = new JTextField();
+    private final JCheckBox copySamplerData = new JCheckBox("Copy response data to sampler data");
+    private final JCheckBox resultChecksum = new JCheckBox("Count bytes and checksum the results");
+    private final JCheckBox rawResults = new JCheckBox("Stream results into byte counts instead of keeping them");
+    private final JCheckBox warmUp = new JCheckBox("Open connections and caches at test start");
+    private final JTextField warmUpQueries = new JTextField();
+    private final JTextField warmUpSamples = new JTextField();
 
     public CosmosDBSamplerGui() {
         setLayout(new BorderLayout());
         setBorder(makeBorder());
         add(makeTitlePanel(), BorderLayout.NORTH);
-        add(createCosmosDBSamplerPanel(), BorderLayout.AFTER_LAST_LINE);
+        VerticalPanel settingsPanel = new VerticalPanel();
+        settingsPanel.add(createCosmosDBSamplerPanel());
+        settingsPanel.add(createFieldPanel("Connection",
+                new String[]{"Connection Mode", "Consistency Level", "Max Connections per Endpoint",
+                        "Idle Endpoint Timeout (s)", "Preferred Regions (comma separated)"},
+                new JComponent[]{connectionMode, consistencyLevel, maxConnectionsPerEndpoint, idleEndpointTimeout,
+                        preferredRegions}));
+        settingsPanel.add(createFieldPanel("Item Operation",
+                new String[]{"Operation Type", "Item ID", "PartitionKey Value", "PartitionKey Type",
+                        "Document Template"},
+                new JComponent[]{operationType, itemID, partitionKeyValue, partitionKeyType, documentTemplate}));
+        settingsPanel.add(createFieldPanel("Bulk",
+                new String[]{"Batch Size", "Feeder File", "Initial Micro Batch Size", "Max Micro Batch Concurrency"},
+                new JComponent[]{bulkBatchSize, bulkFeederFile, bulkInitialMicroBatchSize,
+                        bulkMaxMicroBatchConcurrency}));
+        settingsPanel.add(createFieldPanel("Transactional Batch",
+                new String[]{"Batch Size", "Operations (e.g. create:2,read:1)", "PartitionKey Variable",
+                        "Patch Template"},
+                new JComponent[]{batchSize, batchOperations, batchPartitionKeyVariable, batchPatchTemplate}));
+        settingsPanel.add(createFieldPanel("Change Feed",
+                new String[]{"Start (BEGINNING, NOW or ISO-8601 time)"},
+                new JComponent[]{changeFeedStart}));
+        settingsPanel.add(createFieldPanel("Key Feeder",
+                new String[]{"Key File", "Distribution (sequential, random, zipfian:theta, hotset:fraction:share)",
+                        "Key Variables"},
+                new JComponent[]{keyFeederFile, keyDistribution, keyVariables}));
+        settingsPanel.add(createFieldPanel("Issue Mode",
+                new String[]{"Issue Mode", "Target Rate (requests/s per thread)", "Window (ms)", "Max In Flight"},
+                new JComponent[]{issueMode, targetRate, openLoopWindow, maxInFlight}));
+        settingsPanel.add(createFieldPanel("Rate Governor",
+                new String[]{"Governor Mode", "Target (RU/s or throttle ratio)", "Initial Rate (samples/s)"},
+                new JComponent[]{governorMode, governorTarget, governorInitialRate}));
+        settingsPanel.add(createFieldPanel("Diagnostics Capture",
+                new String[]{"Capture", "Latency Threshold (ms)", "Sampled Percentage"},
+                new JComponent[]{diagnosticsCapture, diagnosticsThreshold, diagnosticsPercent}));
+        settingsPanel.add(createFieldPanel("Diagnostics Journal",
+                new String[]{"Journal Path (empty for none)", "Rotate Size (MB)"},
+                new JComponent[]{diagnosticsJournal, journalRotateSize}));
+        settingsPanel.add(createFieldPanel("Warm-up",
+                new String[]{"Warm-up", "Untimed Queries", "Excluded Samples per Thread"},
+                new JComponent[]{warmUp, warmUpQueries, warmUpSamples}));
+        settingsPanel.add(createFieldPanel("Result Drain",
+                new String[]{"Drain Mode", "Page Size", "Max Pages", "Max Degree of Parallelism",
+                        "Max Buffered Item Count", "Sampler Data", "Result Checksum", "Raw Results"},
+                new JComponent[]{drainMode, pageSize, maxPages, maxDegreeOfParallelism, maxBufferedItemCount,
+                        copySamplerData, resultChecksum, rawResults}));
+        add(settingsPanel, BorderLayout.AFTER_LAST_LINE);
         add(createCosmosDBQueryPanel(), BorderLayout.CENTER);
     }
 
+    /**
+     * Builds a titled panel with one labelled row per field, laid out like the configuration panel.
+     */
+    private static JPanel createFieldPanel(String title, String[] labels, JComponent[] fields) {
+        JPanel panel = new JPanel();
+        panel.setBorder(BorderFactory.createTitledBorder(title));
+        GroupLayout layout = new GroupLayout(panel);
+        panel.setLayout(layout);
+
+        GroupLayout.ParallelGroup horizontalGroup = layout.createParallelGroup(Alignment.LEADING);
+        GroupLayout.SequentialGroup verticalGroup = layout.createSequentialGroup();
+        for (int i = 0; i < labels.length; i++) {
+            JLabel label = new JLabel(labels[i]);
+            horizontalGroup.addGroup(layout.createSequentialGroup().addComponent(label)
+                    .addPreferredGap(ComponentPlacement.RELATED).addComponent(fields[i]));
+            verticalGroup.addGroup(layout.createParallelGroup(Alignment.LEADING)
+                    .addComponent(label, GroupLayout.PREFERRED_SIZE,
+                            GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE)
+                    .addComponent(fields[i], GroupLayout.PREFERRED_SIZE,
+                            GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE));
+        }
+        layout.setHorizontalGroup(horizontalGroup);
+        layout.setVerticalGroup(verticalGroup);
+        return panel;
+    }
+
+    /**
+     * Selects the enum constant with the given name, leaving the selection unchanged if there is none.
+     */
+    private static <E extends Enum<E>> void selectByName(JComboBox<E> comboBox, String name) {
+        for (int i = 0; i < comboBox.getItemCount(); i++) {
+            if (comboBox.getItemAt(i).name().equalsIgnoreCase(name)) {
+                comboBox.setSelectedIndex(i);
+                return;
+            }
+        }
+    }
+
     private JPanel createCosmosDBQueryPanel() {
         JPanel cosmosDBQueryPanel = new JPanel(new BorderLayout(5, 0));
         cosmosDBQueryPanel.setBorder(BorderFactory.createTitledBorder("CosmosDB Query"));
@@ -56,18 +200,39 @@ public class CosmosDBSamplerGui extends AbstractSamplerGui {
         cosmosDBQueryPanel.setLayout(layout);
 
         JLabel queryLabel = new JLabel("Query:");
+        JLabel queryParametersLabel = new JLabel("Parameters:");
+        queryParametersLabel.setToolTipText("One binding per line, e.g. @tenant=tenantVar or @age=ageVar:number");
+        JLabel queryMixLabel = new JLabel("Query Mix:");
+        queryMixLabel.setToolTipText("Optional JSON array of {\"name\", \"weight\", \"query\", \"parameters\"} "
+                + "used instead of the query above");
 
         layout.setHorizontalGroup(layout.createParallelGroup(Alignment.LEADING)
                 .addGroup(layout.createSequentialGroup().addComponent(queryLabel)
                         .addPreferredGap(ComponentPlacement.RELATED)
-                        .addComponent(cosmosDBQuery)));
+                        .addComponent(cosmosDBQuery))
+                .addGroup(layout.createSequentialGroup().addComponent(queryParametersLabel)
+                        .addPreferredGap(ComponentPlacement.RELATED)
+                        .addComponent(queryParameters))
+                .addGroup(layout.createSequentialGroup().addComponent(queryMixLabel)
+                        .addPreferredGap(ComponentPlacement.RELATED)
+                        .addComponent(queryMix)));
 
         layout.setVerticalGroup(layout.createSequentialGroup()
                 .addGroup(layout.createParallelGroup(Alignment.LEADING)
                         .addComponent(queryLabel, GroupLayout.PREFERRED_SIZE,
                                 GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE)
                         .addComponent(cosmosDBQuery, GroupLayout.DEFAULT_SIZE,
-                                GroupLayout.DEFAULT_SIZE, GroupLayout.DEFAULT_SIZE)));
+                                GroupLayout.DEFAULT_SIZE, GroupLayout.DEFAULT_SIZE))
+                .addGroup(layout.createParallelGroup(Alignment.LEADING)
+                        .addComponent(queryParametersLabel, GroupLayout.PREFERRED_SIZE,
+                                GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE)
+                        .addComponent(queryParameters, GroupLayout.PREFERRED_SIZE,
+                                GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE))
+                .addGroup(layout.createParallelGroup(Alignment.LEADING)
+                        .addComponent(queryMixLabel, GroupLayout.PREFERRED_SIZE,
+                                GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE)
+                        .addComponent(queryMix, GroupLayout.PREFERRED_SIZE,
+                                GroupLayout.PREFERRED_SIZE, GroupLayout.PREFERRED_SIZE)));
 
         return cosmosDBQueryPanel;
 
@@ -173,8 +338,55 @@ public class CosmosDBSamplerGui extends AbstractSamplerGui {
             cosmosDBSampler.setContainerID(containerID.getText());
             cosmosDBSampler.setPartitionKeyPath(partitionKeyPath.getText());
             cosmosDBSampler.setCosmosDBQuery(cosmosDBQuery.getText());
+            cosmosDBSampler.setQueryParameters(queryParameters.getText());
+            cosmosDBSampler.setQueryMix(queryMix.getText());
             cosmosDBSampler.setRunID(runID.getText());
             cosmosDBSampler.setQueryType(queryType.getText());
+            cosmosDBSampler.setDrainMode(((DrainMode) drainMode.getSelectedItem()).name());
+            cosmosDBSampler.setPageSize(pageSize.getText());
+            cosmosDBSampler.setMaxPages(maxPages.getText());
+            cosmosDBSampler.setOperationType(((OperationType) operationType.getSelectedItem()).name());
+            cosmosDBSampler.setItemID(itemID.getText());
+            cosmosDBSampler.setPartitionKeyValue(partitionKeyValue.getText());
+            cosmosDBSampler.setPartitionKeyType(((ValueType) partitionKeyType.getSelectedItem()).name());
+            cosmosDBSampler.setDocumentTemplate(documentTemplate.getText());
+            cosmosDBSampler.setBulkBatchSize(bulkBatchSize.getText());
+            cosmosDBSampler.setBulkFeederFile(bulkFeederFile.getText());
+            cosmosDBSampler.setBulkInitialMicroBatchSize(bulkInitialMicroBatchSize.getText());
+            cosmosDBSampler.setBulkMaxMicroBatchConcurrency(bulkMaxMicroBatchConcurrency.getText());
+            cosmosDBSampler.setBatchSize(batchSize.getText());
+            cosmosDBSampler.setBatchOperations(batchOperations.getText());
+            cosmosDBSampler.setBatchPartitionKeyVariable(batchPartitionKeyVariable.getText());
+            cosmosDBSampler.setBatchPatchTemplate(batchPatchTemplate.getText());
+            cosmosDBSampler.setChangeFeedStart(changeFeedStart.getText());
+            cosmosDBSampler.setKeyFeederFile(keyFeederFile.getText());
+            cosmosDBSampler.setKeyDistribution(keyDistribution.getText());
+            cosmosDBSampler.setKeyVariables(keyVariables.getText());
+            cosmosDBSampler.setIssueMode(((IssueMode) issueMode.getSelectedItem()).name());
+            cosmosDBSampler.setTargetRate(targetRate.getText());
+            cosmosDBSampler.setOpenLoopWindow(openLoopWindow.getText());
+            cosmosDBSampler.setMaxInFlight(maxInFlight.getText());
+            cosmosDBSampler.setGovernorMode(((GovernorMode) governorMode.getSelectedItem()).name());
+            cosmosDBSampler.setGovernorTarget(governorTarget.getText());
+            cosmosDBSampler.setGovernorInitialRate(governorInitialRate.getText());
+            cosmosDBSampler.setDiagnosticsCapture(((DiagnosticsCapture) diagnosticsCapture.getSelectedItem()).name());
+            cosmosDBSampler.setDiagnosticsThreshold(diagnosticsThreshold.getText());
+            cosmosDBSampler.setDiagnosticsPercent(diagnosticsPercent.getText());
+            cosmosDBSampler.setDiagnosticsJournal(diagnosticsJournal.getText());
+            cosmosDBSampler.setJournalRotateSize(journalRotateSize.getText());
+            cosmosDBSampler.setConnectionMode(((ConnectionMode) connectionMode.getSelectedItem()).name());
+            cosmosDBSampler.setConsistencyLevel(((ConsistencyLevel) consistencyLevel.getSelectedItem()).name());
+            cosmosDBSampler.setMaxConnectionsPerEndpoint(maxConnectionsPerEndpoint.getText());
+            cosmosDBSampler.setIdleEndpointTimeout(idleEndpointTimeout.getText());
+            cosmosDBSampler.setPreferredRegions(preferredRegions.getText());
+            cosmosDBSampler.setMaxDegreeOfParallelism(maxDegreeOfParallelism.getText());
+            cosmosDBSampler.setMaxBufferedItemCount(maxBufferedItemCount.getText());
+            cosmosDBSampler.setCopySamplerData(copySamplerData.isSelected());
+            cosmosDBSampler.setResultChecksum(resultChecksum.isSelected());
+            cosmosDBSampler.setRawResults(rawResults.isSelected());
+            cosmosDBSampler.setWarmUp(warmUp.isSelected());
+            cosmosDBSampler.setWarmUpQueries(warmUpQueries.getText());
+            cosmosDBSampler.setWarmUpSamples(warmUpSamples.getText());
 
         }
     }
@@ -190,8 +402,62 @@ public class CosmosDBSamplerGui extends AbstractSamplerGui {
             containerID.setText(cosmosDBSampler.getContainerID());
             partitionKeyPath.setText(cosmosDBSampler.getPartitionKeyPath());
             cosmosDBQuery.setText(cosmosDBSampler.getCosmosDBQuery());
+            queryParameters.setText(cosmosDBSampler.getQueryParameters());
+            queryMix.setText(cosmosDBSampler.getQueryMix());
             runID.setText(cosmosDBSampler.getRunID());
             queryType.setText(cosmosDBSampler.getQueryType());
+            drainMode.setSelectedItem(
+                    Enums.fromString(DrainMode.class, cosmosDBSampler.getDrainMode(), DrainMode.FULL));
+            pageSize.setText(cosmosDBSampler.getPageSize());
+            maxPages.setText(cosmosDBSampler.getMaxPages());
+            operationType.setSelectedItem(
+                    Enums.fromString(OperationType.class, cosmosDBSampler.getOperationType(), OperationType.QUERY));
+            itemID.setText(cosmosDBSampler.getItemID());
+            partitionKeyValue.setText(cosmosDBSampler.getPartitionKeyValue());
+            partitionKeyType.setSelectedItem(
+                    Enums.fromString(ValueType.class, cosmosDBSampler.getPartitionKeyType(), ValueType.STRING));
+            documentTemplate.setText(cosmosDBSampler.getDocumentTemplate());
+            bulkBatchSize.setText(cosmosDBSampler.getBulkBatchSize());
+            bulkFeederFile.setText(cosmosDBSampler.getBulkFeederFile());
+            bulkInitialMicroBatchSize.setText(cosmosDBSampler.getBulkInitialMicroBatchSize());
+            bulkMaxMicroBatchConcurrency.setText(cosmosDBSampler.getBulkMaxMicroBatchConcurrency());
+            batchSize.setText(cosmosDBSampler.getBatchSize());
+            batchOperations.setText(cosmosDBSampler.getBatchOperations());
+            batchPartitionKeyVariable.setText(cosmosDBSampler.getBatchPartitionKeyVariable());
+            batchPatchTemplate.setText(cosmosDBSampler.getBatchPatchTemplate());
+            changeFeedStart.setText(cosmosDBSampler.getChangeFeedStart());
+            keyFeederFile.setText(cosmosDBSampler.getKeyFeederFile());
+            keyDistribution.setText(cosmosDBSampler.getKeyDistribution());
+            keyVariables.setText(cosmosDBSampler.getKeyVariables());
+            issueMode.setSelectedItem(
+                    Enums.fromString(IssueMode.class, cosmosDBSampler.getIssueMode(), IssueMode.CLOSED_LOOP));
+            targetRate.setText(cosmosDBSampler.getTargetRate());
+            openLoopWindow.setText(cosmosDBSampler.getOpenLoopWindow());
+            maxInFlight.setText(cosmosDBSampler.getMaxInFlight());
+            governorMode.setSelectedItem(
+                    Enums.fromString(GovernorMode.class, cosmosDBSampler.getGovernorMode(), GovernorMode.NONE));
+            governorTarget.setText(cosmosDBSampler.getGovernorTarget());
+            governorInitialRate.setText(cosmosDBSampler.getGovernorInitialRate());
+            diagnosticsCapture.setSelectedItem(
+                    Enums.fromString(DiagnosticsCapture.class, cosmosDBSampler.getDiagnosticsCapture(),
+                            DiagnosticsCapture.ALWAYS));
+            diagnosticsThreshold.setText(cosmosDBSampler.getDiagnosticsThreshold());
+            diagnosticsPercent.setText(cosmosDBSampler.getDiagnosticsPercent());
+            diagnosticsJournal.setText(cosmosDBSampler.getDiagnosticsJournal());
+            journalRotateSize.setText(cosmosDBSampler.getJournalRotateSize());
+            selectByName(connectionMode, cosmosDBSampler.getConnectionMode());
+            selectByName(consistencyLevel, cosmosDBSampler.getConsistencyLevel());
+            maxConnectionsPerEndpoint.setText(cosmosDBSampler.getMaxConnectionsPerEndpoint());
+            idleEndpointTimeout.setText(cosmosDBSampler.getIdleEndpointTimeout());
+            preferredRegions.setText(cosmosDBSampler.getPreferredRegions());
+            maxDegreeOfParallelism.setText(cosmosDBSampler.getMaxDegreeOfParallelism());
+            maxBufferedItemCount.setText(cosmosDBSampler.getMaxBufferedItemCount());
+            copySamplerData.setSelected(cosmosDBSampler.isCopySamplerData());
+            resultChecksum.setSelected(cosmosDBSampler.isResultChecksum());
+            rawResults.setSelected(cosmosDBSampler.isRawResults());
+            warmUp.setSelected(cosmosDBSampler.isWarmUp());
+            warmUpQueries.setText(cosmosDBSampler.getWarmUpQueries());
+            warmUpSamples.setText(cosmosDBSampler.getWarmUpSamples());
         }
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos.gui;
+
+import com.azure.jmeter.cosmos.CosmosDBSummaryListener;
+import com.azure.jmeter.cosmos.HistogramAggregator;
+
+import java.awt.BorderLayout;
+import javax.swing.BorderFactory;
+
+import org.apache.jmeter.gui.util.VerticalPanel;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.visualizers.gui.AbstractListenerGui;
+import org.apache.jorphan.gui.JLabeledTextField;
+
+public class CosmosDBSummaryListenerGui extends AbstractListenerGui {
+
+    private final JLabeledTextField reportFile = new JLabeledTextField("Report File (empty to only log)");
+    private final JLabeledTextField hotPartitions = new JLabeledTextField("Hot Partitions per runID");
+
+    public CosmosDBSummaryListenerGui() {
+        setLayout(new BorderLayout());
+        setBorder(makeBorder());
+        add(makeTitlePanel(), BorderLayout.NORTH);
+        VerticalPanel settingsPanel = new VerticalPanel();
+        settingsPanel.setBorder(BorderFactory.createTitledBorder("Merged Engine Summaries"));
+        settingsPanel.add(reportFile);
+        settingsPanel.add(hotPartitions);
+        add(settingsPanel, BorderLayout.CENTER);
+    }
+
+    @Override
+    public String getLabelResource() {
+        return "Azure CosmosDB Summary Listener";
+    }
+
+    @Override
+    public String getStaticLabel() {
+        return getLabelResource();
+    }
+
+    @Override
+    public TestElement createTestElement() {
+        CosmosDBSummaryListener listener = new CosmosDBSummaryListener();
+        modifyTestElement(listener);
+        return listener;
+    }
+
+    @Override
+    public void modifyTestElement(TestElement element) {
+        element.clear();
+        super.configureTestElement(element);
+        if (element instanceof CosmosDBSummaryListener) {
+            CosmosDBSummaryListener listener = (CosmosDBSummaryListener) element;
+            listener.setReportFile(reportFile.getText());
+            listener.setHotPartitions(hotPartitions.getText());
+        }
+    }
+
+    @Override
+    public void configure(TestElement element) {
+        super.configure(element);
+        if (element instanceof CosmosDBSummaryListener) {
+            CosmosDBSummaryListener listener = (CosmosDBSummaryListener) element;
+            reportFile.setText(listener.getReportFile());
+            hotPartitions.setText(listener.getHotPartitions());
+        }
+    }
+
+    @Override
+    public void clearGui() {
+        super.clearGui();
+        reportFile.setText("");
+        hotPartitions.setText(Integer.toString(HistogramAggregator.DEFAULT_HOT_PARTITIONS));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.cosmos.client;
+
+import com.azure.cosmos.ConnectionMode;
+import com.azure.cosmos.ConsistencyLevel;
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CosmosClientRegistryTest {
+    private static final CosmosClientSettings SETTINGS =
+            new CosmosClientSettings(null, "testKey", ConnectionMode.DIRECT, ConsistencyLevel.SESSION);
+
+    @Mock
+    private CosmosAsyncClient mockClient;
+    @Mock
+    private CosmosAsyncClient otherClient;
+
+    @BeforeEach
+    public void setup() {
+        CosmosClientRegistry.closeAll();
+    }
+
+    @AfterEach
+    public void teardown() {
+        verifyNoMoreInteractions(mockClient, otherClient);
+    }
+
+    @Test
+    public void testLazyClientInit() {
+        // Actually initializing the client will throw an NPE since we're passing a null URI.
+        assertThrows(NullPointerException.class, () -> CosmosClientRegistry.acquire(SETTINGS));
+        assertEquals(0, CosmosClientRegistry.size());
+    }
+
+    @Test
+    public void testReturnExistingClient() {
+        CosmosClientRegistry.register(SETTINGS, mockClient);
+
+        CosmosClientRegistry.Lease first = CosmosClientRegistry.acquire(SETTINGS);
+        CosmosClientRegistry.Lease second = CosmosClientRegistry.acquire(
+                new CosmosClientSettings(null, "testKey", ConnectionMode.DIRECT, ConsistencyLevel.SESSION));
+
+        assertSame(mockClient, first.getClient());
+        assertSame(mockClient, second.getClient());
+    }
+
+    @Test
+    public void testClientClosedByLastLease() {
+        CosmosClientRegistry.register(SETTINGS, mockClient);
+        CosmosClientRegistry.Lease first = CosmosClientRegistry.acquire(SETTINGS);
+        CosmosClientRegistry.Lease second = CosmosClientRegistry.acquire(SETTINGS);
+
+        first.close();
+        first.close();
+        verify(mockClient, never()).close();
+        assertEquals(1, CosmosClientRegistry.size());
+
+        second.close();
+        verify(mockClient).close();
+        assertEquals(0, CosmosClientRegistry.size());
+    }
+
+    @Test
+    public void testDifferentKeysKeepSeparateClients() {
+        CosmosClientSettings otherSettings =
+                new CosmosClientSettings(null, "someOtherKey", ConnectionMode.DIRECT, ConsistencyLevel.SESSION);
+        CosmosClientRegistry.register(SETTINGS, mockClient);
+        CosmosClientRegistry.register(otherSettings, otherClient);
+
+        CosmosClientRegistry.Lease lease = CosmosClientRegistry.acquire(SETTINGS);
+        CosmosClientRegistry.Lease otherLease = CosmosClientRegistry.acquire(otherSettings);
+        otherLease.close();
+
+        verify(otherClient).close();
+        assertSame(mockClient, lease.getClient());
+        assertEquals(1, CosmosClientRegistry.size());
+    }
+
+    @Test
+    public void testContainerSharedAcrossLeases(@Mock CosmosAsyncDatabase database,
+                                                @Mock CosmosAsyncContainer container) {
+        CosmosClientRegistry.register(SETTINGS, mockClient);
+        when(mockClient.getDatabase("db")).thenReturn(database);
+        when(database.getContainer("coll")).thenReturn(container);
+
+        assertSame(container, CosmosClientRegistry.acquire(SETTINGS).getContainer("db", "coll"));
+        assertSame(container, CosmosClientRegistry.acquire(SETTINGS).getContainer("db", "coll"));
+        verify(mockClient).getDatabase("db");
+    }
+
+    @Test
+    public void testTuningIsPartOfTheKey() {
+        CosmosClientSettings tuned = new CosmosClientSettings(null, "testKey", ConnectionMode.DIRECT,
+                ConsistencyLevel.SESSION, 64, Duration.ofSeconds(30), Arrays.asList("West US", "East US"));
+        CosmosClientRegistry.register(SETTINGS, mockClient);
+        CosmosClientRegistry.register(tuned, otherClient);
+
+        assertEquals(SETTINGS, new CosmosClientSettings(null, "testKey", ConnectionMode.DIRECT,
+                ConsistencyLevel.SESSION, 0, null, Collections.emptyList()));
+        assertNotEquals(tuned, new CosmosClientSettings(null, "testKey", ConnectionMode.DIRECT,
+                ConsistencyLevel.SESSION, 64, Duration.ofSeconds(30), Arrays.asList("East US", "West US")));
+        assertNotEquals(SETTINGS, new CosmosClientSettings(null, "testKey", ConnectionMode.GATEWAY,
+                ConsistencyLevel.SESSION));
+        assertSame(otherClient, CosmosClientRegistry.acquire(tuned).getClient());
+        assertSame(mockClient, CosmosClientRegistry.acquire(SETTINGS).getClient());
+    }
+
+    @Test
+    public void testBuildDoesNotHoldUpOtherClients(@Mock CosmosClientSettings slowSettings) throws Exception {
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(slowSettings.buildClient()).thenAnswer(invocation -> {
+            building.countDown();
+            release.await();
+            return otherClient;
+        });
+        CosmosClientRegistry.register(SETTINGS, mockClient);
+
+        CompletableFuture<CosmosClientRegistry.Lease> first =
+                CompletableFuture.supplyAsync(() -> CosmosClientRegistry.acquire(slowSettings));
+        assertTrue(building.await(5, TimeUnit.SECONDS));
+        CompletableFuture<CosmosClientRegistry.Lease> second =
+                CompletableFuture.supplyAsync(() -> CosmosClientRegistry.acquire(slowSettings));
+
+        // Another client is handed out while the slow one is still being built
+        assertSame(mockClient, CosmosClientRegistry.acquire(SETTINGS).getClient());
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertSame(otherClient, first.get(5, TimeUnit.SECONDS).getClient());
+        assertSame(otherClient, second.get(5, TimeUnit.SECONDS).getClient());
+        verify(slowSettings).buildClient();
+    }
+}
@@ -15,12 +15,13 @@
  */
 package com.azure.cosmos.client;
 
+import com.azure.cosmos.ConnectionMode;
+import com.azure.cosmos.ConsistencyLevel;
 import com.azure.cosmos.CosmosAsyncClient;
 
 public class CosmosDBTestUtils {
     public static void setCosmosClient(CosmosAsyncClient client, String uri, String key) {
-        CosmosClientSingleton.client = client;
-        CosmosClientSingleton.uri = uri;
-        CosmosClientSingleton.key = key;
+        CosmosClientRegistry.register(new CosmosClientSettings(uri, key, ConnectionMode.DIRECT, ConsistencyLevel.SESSION),
+                client);
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BaselineTest {
+
+    private static final Baseline.Tolerances TOLERANCES = new Baseline.Tolerances(0.1, 0.1, 5, 0.25);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    public void clearBaselines() {
+        Baseline.clearAll();
+    }
+
+    private static Map<String, String> summary(String queryType, String requestCharge, String ratio,
+                                               String indexUtilization, String latencyP99) {
+        Map<String, String> summary = new HashMap<>();
+        summary.put("runID", "run");
+        summary.put("queryType", queryType);
+        summary.put(HistogramAggregator.REQUEST_CHARGE_MEAN, requestCharge);
+        summary.put(HistogramAggregator.RETRIEVED_TO_OUTPUT_RATIO, ratio);
+        summary.put(HistogramAggregator.INDEX_UTILIZATION, indexUtilization);
+        summary.put(HistogramAggregator.LATENCY_P99, latencyP99);
+        return summary;
+    }
+
+    @Test
+    public void testMissingFileIsEmpty() {
+        Baseline baseline = Baseline.forFile(tempDir.resolve("missing.jsonl").toString(), TOLERANCES);
+        assertTrue(baseline.isEmpty());
+        assertNull(baseline.checkSample("run", "Q1", 1000, true, 1000));
+    }
+
+    @Test
+    public void testWriteThenRead() throws IOException {
+        String path = tempDir.resolve("baseline.jsonl").toString();
+        Map<String, String> hotPartition = new HashMap<>();
+        hotPartition.put("runID", "run");
+        hotPartition.put("queryType", "hot-partition");
+        Baseline.write(path, List.of(summary("Q1", "10.00", "1.00", "100.00", "20.000"), hotPartition));
+        assertEquals(1, Files.readAllLines(tempDir.resolve("baseline.jsonl"), UTF_8).size());
+
+        Baseline baseline = Baseline.forFile(path, TOLERANCES);
+        assertFalse(baseline.isEmpty());
+        assertSame(baseline, Baseline.forFile(path, TOLERANCES));
+    }
+
+    @Test
+    public void testCheckSample() {
+        Map<String, String> row = summary("Q1", "10.00", "2.00", "90.00", "20.000");
+        row.put(HistogramAggregator.REQUEST_CHARGE_P99, "15.00");
+        row.put(HistogramAggregator.RETRIEVED_DOCUMENT_COUNT_P99, "100");
+        Baseline baseline = new Baseline(List.of(row), TOLERANCES);
+
+        // Samples above the mean but within the p99 bounds are normal variance
+        assertNull(baseline.checkSample("run", "Q1", 16.4, true, 109));
+        assertNull(baseline.checkSample("run", "Q2", 100, true, 1000));
+        assertNull(baseline.checkSample("other", "Q1", 100, true, 1000));
+
+        String regression = baseline.checkSample("run", "Q1", 17, false, 0);
+        assertNotNull(regression);
+        assertTrue(regression.startsWith(HistogramAggregator.REQUEST_CHARGE_P99), regression);
+
+        regression = baseline.checkSample("run", "Q1", 10, true, 111);
+        assertNotNull(regression);
+        assertTrue(regression.startsWith(HistogramAggregator.RETRIEVED_DOCUMENT_COUNT_P99), regression);
+    }
+
+    @Test
+    public void testCheckSampleWithoutPercentilesInBaseline() {
+        Baseline baseline = new Baseline(List.of(summary("Q1", "10.00", "2.00", "90.00", "20.000")), TOLERANCES);
+
+        assertNull(baseline.checkSample("run", "Q1", 1000, true, 1000));
+    }
+
+    @Test
+    public void testCompare() {
+        Baseline baseline = new Baseline(List.of(
+                summary("Q1", "10.00", "1.00", "100.00", "20.000"),
+                summary("Q2", "5.00", "1.00", "100.00", "10.000")), TOLERANCES);
+
+        Map<String, String> regressions = baseline.compare(List.of(
+                summary("Q1", "10.50", "1.05", "98.00", "24.000"),
+                summary("Q2", "5.00", "1.00", "100.00", "13.000"),
+                summary("Q3", "50.00", "9.00", "0.00", "100.000")));
+
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get("run/Q2").startsWith(HistogramAggregator.LATENCY_P99), regressions.toString());
+    }
+
+    @Test
+    public void testFinishBaselineReportsRegressions() throws IOException {
+        String path = tempDir.resolve("baseline.jsonl").toString();
+
+        assertTrue(CosmosDBSampler.finishBaseline(path, List.of(summary("Q1", "10.00", "1.00", "100.00", "20.000")))
+                .isEmpty());
+        List<String> recorded = Files.readAllLines(tempDir.resolve("baseline.jsonl"), UTF_8);
+        Baseline.clearAll();
+
+        Map<String, String> regressions = CosmosDBSampler.finishBaseline(path,
+                List.of(summary("Q1", "10.00", "1.00", "100.00", "30.000")));
+
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get("run/Q1").startsWith(HistogramAggregator.LATENCY_P99), regressions.toString());
+        // A regressed run does not replace the baseline unless asked to
+        assertEquals(recorded, Files.readAllLines(tempDir.resolve("baseline.jsonl"), UTF_8));
+    }
+}
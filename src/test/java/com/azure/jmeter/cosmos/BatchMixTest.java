@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.models.CosmosItemOperationType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchMixTest {
+
+    @Test
+    public void testOperationsRepeatInOrder() {
+        BatchMix mix = BatchMix.parse("create:2, read, delete:1");
+
+        assertEquals(CosmosItemOperationType.CREATE, mix.operationAt(0));
+        assertEquals(CosmosItemOperationType.CREATE, mix.operationAt(1));
+        assertEquals(CosmosItemOperationType.READ, mix.operationAt(2));
+        assertEquals(CosmosItemOperationType.DELETE, mix.operationAt(3));
+        assertEquals(CosmosItemOperationType.CREATE, mix.operationAt(4));
+        assertEquals(CosmosItemOperationType.DELETE, mix.operationAt(7));
+        assertTrue(mix.matches("create:2, read, delete:1"));
+        assertFalse(mix.matches("create:2"));
+    }
+
+    @Test
+    public void testOperationKinds() {
+        assertTrue(BatchMix.hasDocument(CosmosItemOperationType.REPLACE));
+        assertFalse(BatchMix.hasDocument(CosmosItemOperationType.PATCH));
+        assertTrue(BatchMix.isWrite(CosmosItemOperationType.DELETE));
+        assertFalse(BatchMix.isWrite(CosmosItemOperationType.READ));
+    }
+
+    @Test
+    public void testRejectsMalformedMix() {
+        assertThrows(IllegalArgumentException.class, () -> BatchMix.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> BatchMix.parse("merge:1"));
+        assertThrows(IllegalArgumentException.class, () -> BatchMix.parse("upsert:0"));
+        assertThrows(IllegalArgumentException.class, () -> BatchMix.parse("upsert:two"));
+        assertThrows(IllegalArgumentException.class, () -> BatchMix.parse("upsert:1:2"));
+    }
+}
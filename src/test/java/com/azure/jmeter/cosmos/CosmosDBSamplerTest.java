@@ -15,27 +15,63 @@
  */
 package com.azure.jmeter.cosmos;
 
+import com.azure.cosmos.BridgeInternal;
 import com.azure.cosmos.CosmosAsyncClient;
 import com.azure.cosmos.CosmosAsyncContainer;
 import com.azure.cosmos.CosmosAsyncDatabase;
+import com.azure.cosmos.CosmosDiagnostics;
 import com.azure.cosmos.CosmosException;
 import com.azure.cosmos.client.CosmosDBTestUtils;
+import com.azure.cosmos.implementation.ClientSideRequestStatistics;
 import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.implementation.RetryContext;
+import com.azure.cosmos.models.CosmosBatch;
+import com.azure.cosmos.models.CosmosBatchOperationResult;
+import com.azure.cosmos.models.CosmosBatchResponse;
+import com.azure.cosmos.models.CosmosBulkExecutionOptions;
+import com.azure.cosmos.models.CosmosBulkItemResponse;
+import com.azure.cosmos.models.CosmosBulkOperationResponse;
+import com.azure.cosmos.models.CosmosChangeFeedRequestOptions;
+import com.azure.cosmos.models.CosmosItemOperation;
+import com.azure.cosmos.models.CosmosItemOperationType;
+import com.azure.cosmos.models.CosmosItemResponse;
 import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedRange;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
 import com.azure.cosmos.util.CosmosPagedFlux;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.jmeter.control.LoopController;
 import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ThreadGroup;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -67,6 +103,7 @@ public class CosmosDBSamplerTest {
 
     @AfterEach
     public void teardown() {
+        JMeterContextService.getContext().setVariables(null);
         verifyNoMoreInteractions(mockClient, mockDatabase, mockContainer);
     }
 
@@ -102,7 +139,8 @@ public class CosmosDBSamplerTest {
         diagnosticDataStrings.add(resultCosmosDiagosticsString);
         CosmosDBSampler testSampler = new CosmosDBSampler() {
             @Override
-            protected void processCosmosResponseData(CosmosPagedFlux<JsonNode> response, Map<String, String> diagnosticsData) {
+            protected void processCosmosResponseData(CosmosPagedFlux<JsonNode> response,
+                                                     Map<String, String> diagnosticsData, SampleResult result) {
                 diagnosticDataStrings.forEach(diagnosticsString -> processCosmosDiagnosticsData(diagnosticsString, diagnosticsData));
             }
         };
@@ -141,4 +179,392 @@ public class CosmosDBSamplerTest {
         assertEquals(expectedResponse, result.getResponseDataAsString());
         assertEquals(expectedResponse, result.getSamplerData());
     }
+
+    @Test
+    public void testFirstPageDrainMode(@Mock CosmosPagedFlux<JsonNode> mockFlux,
+                                       @Mock FeedResponse<JsonNode> mockPage) {
+        sampler.setDrainMode(DrainMode.FIRST_PAGE.name());
+        sampler.setPageSize("5");
+        when(mockContainer.queryItems(eq(sampler.getCosmosDBQuery()), any(CosmosQueryRequestOptions.class),
+                eq(JsonNode.class)))
+                .thenReturn(mockFlux);
+        when(mockFlux.byPage(5)).thenReturn(Flux.just(mockPage, mockPage, mockPage));
+        when(mockPage.getRequestCharge()).thenReturn(1.25);
+        when(mockPage.getResults()).thenReturn(Collections.nCopies(5, null));
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful());
+        assertEquals(1, result.getSubResults().length);
+        assertEquals("{\"RequestCharge\":1.25,\"ItemCount\":5}", result.getSubResults()[0].getResponseDataAsString());
+        assertTrue(result.getResponseDataAsString().contains("\"PageCount\":\"1\""));
+        assertTrue(result.getResponseDataAsString().contains("\"RequestCharge\":\"1.25RUs\""));
+    }
+
+    @Test
+    public void testRawResults(@Mock CosmosPagedFlux<RawDocument> mockFlux, @Mock FeedResponse<RawDocument> mockPage)
+            throws IOException {
+        sampler.setRawResults(true);
+        RawDocument document = ItemTemplates.MAPPER.readValue("{\"id\":\"a\"}", RawDocument.class);
+        when(mockContainer.queryItems(eq(sampler.getCosmosDBQuery()), any(CosmosQueryRequestOptions.class),
+                eq(RawDocument.class)))
+                .thenReturn(mockFlux);
+        when(mockFlux.byPage(anyInt())).thenReturn(Flux.just(mockPage, mockPage));
+        when(mockPage.getResults()).thenReturn(Collections.nCopies(2, document));
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful());
+        assertEquals(2, result.getSubResults().length);
+        assertTrue(result.getResponseDataAsString().contains("\"ItemCount\":\"4\""));
+        assertTrue(result.getResponseDataAsString().contains("\"ResultBytes\":\"40\""));
+        assertFalse(result.getResponseDataAsString().contains(ResultChecksum.RESULT_CHECKSUM));
+    }
+
+    @Test
+    public void testErrorsCaptureIncludesRetriedThrottles(@Mock CosmosItemResponse<JsonNode> mockResponse,
+                                                          @Mock CosmosDiagnostics diagnostics,
+                                                          @Mock ClientSideRequestStatistics statistics,
+                                                          @Mock RetryContext retryContext,
+                                                          @TempDir Path tempDir) throws IOException {
+        String text = "{\"retryContext\":{\"statusAndSubStatusCodes\":[[429,3200]],\"retryCount\":1}}";
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("pk1");
+        sampler.setDiagnosticsCapture(DiagnosticsCapture.ERRORS.name());
+        sampler.setDiagnosticsJournal(tempDir.resolve("diagnostics").toString());
+        when(mockContainer.readItem(eq("item1"), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+        when(mockResponse.getDiagnostics()).thenReturn(diagnostics);
+        when(diagnostics.toString()).thenReturn(text);
+        when(statistics.getRetryContext()).thenReturn(retryContext);
+        when(retryContext.getStatusAndSubStatusCodes()).thenReturn(Collections.singletonList(new int[] {429, 3200}));
+        when(retryContext.getRetryCount()).thenReturn(1);
+
+        SampleResult result;
+        try (MockedStatic<BridgeInternal> bridge = mockStatic(BridgeInternal.class, CALLS_REAL_METHODS)) {
+            // The SDK retried the 429 itself, so only its request statistics show it
+            bridge.when(() -> BridgeInternal.getClientSideRequestStatics(diagnostics)).thenReturn(statistics);
+            result = sampler.sample(new Entry());
+        }
+        DiagnosticsJournal.closeAll();
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getResponseDataAsString().contains("\"ThrottleCount\":\"1\""));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(tempDir.resolve("diagnostics.1.jsonl.gz"))),
+                StandardCharsets.UTF_8))) {
+            JsonNode record = ItemTemplates.MAPPER.readTree(reader.readLine());
+            assertEquals(text, record.get("Diagnostics").get(0).asText());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testQueryMixLabelsSamples(@Mock CosmosPagedFlux<JsonNode> mockFlux) {
+        sampler.setQueryMix("[{\"name\": \"recent\", \"weight\": 3, \"query\": \"SELECT TOP 10 * FROM c\"}]");
+        when(mockContainer.queryItems(eq("SELECT TOP 10 * FROM c"), any(CosmosQueryRequestOptions.class),
+                eq(JsonNode.class)))
+                .thenReturn(mockFlux);
+        when(mockFlux.byPage(anyInt())).thenReturn(Flux.empty());
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful());
+        assertEquals("Azure Cosmos DB Sampler: recent", result.getSampleLabel());
+        assertTrue(result.getResponseDataAsString().contains("\"queryType\":\"recent\""));
+        assertTrue(result.getResponseDataAsString().contains("\"query\":\"SELECT TOP 10 * FROM c\""));
+    }
+
+    @Test
+    public void testPointRead(@Mock CosmosItemResponse<JsonNode> mockResponse) {
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("pk1");
+        when(mockContainer.readItem(eq("item1"), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getRequestCharge()).thenReturn(1.0);
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+        when(mockResponse.getDuration()).thenReturn(Duration.ofMillis(3));
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful());
+        assertEquals(Integer.toString(HttpConstants.StatusCodes.OK), result.getResponseCode());
+        String responseData = result.getResponseDataAsString();
+        assertTrue(responseData.contains("\"operation\":\"READ\""));
+        assertTrue(responseData.contains("\"RequestCharge\":\"1.00RUs\""));
+        assertTrue(responseData.contains("\"Latency\":\"3.000000milliseconds\""));
+    }
+
+    @Test
+    public void testLastSampleOfThreadSendsEngineSummary(@Mock CosmosItemResponse<JsonNode> mockResponse) {
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("pk1");
+        when(mockContainer.readItem(eq("item1"), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getRequestCharge()).thenReturn(1.0);
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+        when(mockResponse.getDuration()).thenReturn(Duration.ofMillis(3));
+        LoopController loops = new LoopController();
+        loops.setLoops(2);
+        ThreadGroup threadGroup = new ThreadGroup();
+        threadGroup.setSamplerController(loops);
+        JMeterVariables variables = new JMeterVariables();
+        JMeterContextService.getContext().setThreadGroup(threadGroup);
+        JMeterContextService.getContext().setVariables(variables);
+        // Long enough that no interval summary is due during the test
+        HistogramAggregator.getInstance().setEngineSummaryInterval(TimeUnit.HOURS.toNanos(1));
+        try {
+            variables.incIteration();
+            assertEquals(0, sampler.sample(new Entry()).getSubResults().length);
+
+            variables.incIteration();
+            SampleResult[] subResults = sampler.sample(new Entry()).getSubResults();
+
+            assertEquals(1, subResults.length);
+            assertEquals(EngineSummary.LABEL, subResults[0].getSampleLabel());
+        } finally {
+            HistogramAggregator.getInstance().setEngineSummaryInterval(0);
+            JMeterContextService.getContext().setThreadGroup(null);
+        }
+    }
+
+    @Test
+    public void testPointReadWithNumericPartitionKey(@Mock CosmosItemResponse<JsonNode> mockResponse) {
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("42");
+        sampler.setPartitionKeyType(ValueType.NUMBER.name());
+        when(mockContainer.readItem(eq("item1"), eq(new PartitionKey(42L)), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful(), result.getResponseMessage());
+    }
+
+    @Test
+    public void testPointReadsFromKeyFile(@Mock CosmosItemResponse<JsonNode> mockResponse, @TempDir Path tempDir)
+            throws IOException {
+        Path keyFile = tempDir.resolve("keys.csv");
+        Files.write(keyFile, "item1,pk1\nitem2,pk2\n".getBytes(StandardCharsets.UTF_8));
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setKeyFeederFile(keyFile.toString());
+        when(mockContainer.readItem(anyString(), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+
+        try {
+            sampler.sample(new Entry());
+            sampler.sample(new Entry());
+        } finally {
+            KeyFeeder.closeAll();
+        }
+
+        verify(mockContainer).readItem(eq("item1"), eq(new PartitionKey("pk1")), eq(JsonNode.class));
+        verify(mockContainer).readItem(eq("item2"), eq(new PartitionKey("pk2")), eq(JsonNode.class));
+    }
+
+    @Test
+    public void testPointReadNotFound(@Mock CosmosException notFound) {
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("missing");
+        sampler.setPartitionKeyValue("pk1");
+        when(notFound.getStatusCode()).thenReturn(HttpConstants.StatusCodes.NOTFOUND);
+        when(mockContainer.readItem(eq("missing"), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.error(notFound));
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertFalse(result.isSuccessful());
+        assertEquals(Integer.toString(HttpConstants.StatusCodes.NOTFOUND), result.getResponseCode());
+    }
+
+    @Test
+    public void testBulkUpsert(@Mock CosmosBulkOperationResponse<Object> created,
+                               @Mock CosmosBulkOperationResponse<Object> throttled,
+                               @Mock CosmosBulkItemResponse createdItem,
+                               @Mock CosmosBulkItemResponse throttledItem) {
+        sampler.setOperationType(OperationType.BULK.name());
+        sampler.setBulkBatchSize("2");
+        sampler.setPartitionKeyPath("/pk");
+        sampler.setDocumentTemplate("{\"pk\":\"a\"}");
+        when(mockContainer.executeBulkOperations(any(), any(CosmosBulkExecutionOptions.class)))
+                .thenReturn(Flux.just(created, throttled));
+        when(created.getResponse()).thenReturn(createdItem);
+        when(createdItem.getStatusCode()).thenReturn(HttpConstants.StatusCodes.CREATED);
+        when(createdItem.getRequestCharge()).thenReturn(10.0);
+        when(createdItem.isSuccessStatusCode()).thenReturn(true);
+        when(throttled.getResponse()).thenReturn(throttledItem);
+        when(throttledItem.getStatusCode()).thenReturn(HttpConstants.StatusCodes.TOO_MANY_REQUESTS);
+        when(throttledItem.getRequestCharge()).thenReturn(0.0);
+        when(throttledItem.isSuccessStatusCode()).thenReturn(false);
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getSampleCount());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(2, result.getSubResults().length);
+        String responseData = result.getResponseDataAsString();
+        assertTrue(responseData.contains("\"ThrottledCount\":\"1\""));
+        assertTrue(responseData.contains("\"StatusCount201\":\"1\""));
+        assertTrue(responseData.contains("\"RequestCharge\":\"10.00RUs\""));
+    }
+
+    @Test
+    public void testBatch(@Mock CosmosBatchResponse response,
+                          @Mock CosmosBatchOperationResult created, @Mock CosmosItemOperation createOperation,
+                          @Mock CosmosBatchOperationResult read, @Mock CosmosItemOperation readOperation) {
+        sampler.setOperationType(OperationType.BATCH.name());
+        sampler.setBatchSize("2");
+        sampler.setBatchOperations("create,read");
+        sampler.setBatchPartitionKeyVariable("tenant");
+        sampler.setPartitionKeyPath("/tenant");
+        sampler.setDocumentTemplate("{\"value\":1}");
+        JMeterVariables variables = new JMeterVariables();
+        variables.put("tenant", "t1");
+        JMeterContextService.getContext().setVariables(variables);
+        when(mockContainer.executeCosmosBatch(any(CosmosBatch.class))).thenAnswer(invocation -> {
+            CosmosBatch batch = invocation.getArgument(0);
+            assertEquals(new PartitionKey("t1"), batch.getPartitionKeyValue());
+            assertEquals(2, batch.getOperations().size());
+            return Mono.just(response);
+        });
+        when(response.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+        when(response.isSuccessStatusCode()).thenReturn(true);
+        when(response.getRequestCharge()).thenReturn(12.5);
+        when(response.getResults()).thenReturn(List.of(created, read));
+        when(created.getOperation()).thenReturn(createOperation);
+        when(createOperation.getOperationType()).thenReturn(CosmosItemOperationType.CREATE);
+        when(created.getStatusCode()).thenReturn(HttpConstants.StatusCodes.CREATED);
+        when(read.getOperation()).thenReturn(readOperation);
+        when(readOperation.getOperationType()).thenReturn(CosmosItemOperationType.READ);
+        when(read.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful(), result.getResponseMessage());
+        assertEquals(1, result.getSampleCount());
+        assertEquals(2, result.getSubResults().length);
+        String responseData = result.getResponseDataAsString();
+        assertTrue(responseData.contains("\"OperationStatusCounts\":\"CREATE 201=1,READ 200=1\""), responseData);
+        assertTrue(responseData.contains("\"WriteCount\":\"1\""), responseData);
+        assertTrue(responseData.contains("\"RequestCharge\":\"12.50RUs\""), responseData);
+    }
+
+    @Test
+    public void testBatchesDoNotChangeTheParsedTemplate(@Mock CosmosBatchResponse response) {
+        sampler.setOperationType(OperationType.BATCH.name());
+        sampler.setBatchSize("1");
+        sampler.setBatchOperations("create");
+        sampler.setPartitionKeyPath("/tenant");
+        sampler.setDocumentTemplate("{\"tenant\":\"t0\",\"value\":1}");
+        List<PartitionKey> partitionKeys = new ArrayList<>();
+        List<JsonNode> documents = new ArrayList<>();
+        when(mockContainer.executeCosmosBatch(any(CosmosBatch.class))).thenAnswer(invocation -> {
+            CosmosBatch batch = invocation.getArgument(0);
+            partitionKeys.add(batch.getPartitionKeyValue());
+            documents.add(batch.getOperations().get(0).getItem());
+            return Mono.just(response);
+        });
+        when(response.isSuccessStatusCode()).thenReturn(true);
+
+        sampler.setPartitionKeyValue("t1");
+        assertTrue(sampler.sample(new Entry()).isSuccessful());
+        // Without a value the partition key comes from the template again, not from the previous sample
+        sampler.setPartitionKeyValue("");
+        assertTrue(sampler.sample(new Entry()).isSuccessful());
+
+        assertEquals(List.of(new PartitionKey("t1"), new PartitionKey("t0")), partitionKeys);
+        assertEquals("t1", documents.get(0).get("tenant").asText());
+        assertEquals("t0", documents.get(1).get("tenant").asText());
+    }
+
+    @Test
+    public void testChangeFeed(@Mock CosmosPagedFlux<JsonNode> mockFlux, @Mock FeedResponse<JsonNode> mockPage)
+            throws IOException {
+        sampler.setOperationType(OperationType.CHANGE_FEED.name());
+        sampler.setChangeFeedStart("BEGINNING");
+        ObjectNode document = ItemTemplates.MAPPER.createObjectNode();
+        document.put("id", "doc1");
+        document.put("_ts", System.currentTimeMillis() / 1000 - 5);
+        when(mockContainer.getFeedRanges())
+                .thenReturn(Mono.just(Collections.singletonList(FeedRange.forFullRange())));
+        when(mockContainer.queryChangeFeed(any(CosmosChangeFeedRequestOptions.class), eq(JsonNode.class)))
+                .thenReturn(mockFlux);
+        when(mockFlux.byPage(anyInt())).thenReturn(Flux.just(mockPage));
+        when(mockPage.getResults()).thenReturn(Collections.nCopies(2, document));
+        when(mockPage.getRequestCharge()).thenReturn(3.0);
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful());
+        String responseData = result.getResponseDataAsString();
+        assertTrue(responseData.contains("\"DocumentCount\":\"2\""));
+        assertTrue(responseData.contains("\"PagesPerRange\":\"1\""));
+        assertTrue(ItemTemplates.MAPPER.readTree(responseData).get("ChangeFeedLagP50").asLong() >= 4000);
+        assertTrue(responseData.contains("\"RequestCharge\":\"3.00RUs\""));
+        assertEquals(1, result.getSubResults().length);
+        verify(mockContainer).getFeedRanges();
+        verify(mockContainer).queryChangeFeed(any(CosmosChangeFeedRequestOptions.class), eq(JsonNode.class));
+    }
+
+    @Test
+    public void testWarmUpAtTestStarted(@Mock CosmosPagedFlux<JsonNode> mockFlux) {
+        sampler.setWarmUp(true);
+        sampler.setWarmUpQueries("2");
+        when(mockContainer.openConnectionsAndInitCaches()).thenReturn(Mono.empty());
+        when(mockContainer.queryItems(eq(sampler.getCosmosDBQuery()), any(CosmosQueryRequestOptions.class),
+                eq(JsonNode.class)))
+                .thenReturn(mockFlux);
+        when(mockFlux.byPage(anyInt())).thenReturn(Flux.empty());
+
+        sampler.testStarted();
+        sampler.testEnded();
+
+        verify(mockContainer, times(2)).queryItems(eq(sampler.getCosmosDBQuery()),
+                any(CosmosQueryRequestOptions.class), eq(JsonNode.class));
+        verify(mockClient).close();
+    }
+
+    @Test
+    public void testWarmUpSamplesIgnored(@Mock CosmosItemResponse<JsonNode> mockResponse) {
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("pk1");
+        sampler.setWarmUpSamples("1");
+        when(mockContainer.readItem(eq("item1"), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+
+        SampleResult warmUp = sampler.sample(new Entry());
+        SampleResult measured = sampler.sample(new Entry());
+
+        assertTrue(warmUp.isIgnore());
+        assertEquals("Azure Cosmos DB Sampler (warm-up)", warmUp.getSampleLabel());
+        assertFalse(measured.isIgnore());
+        assertEquals("Azure Cosmos DB Sampler", measured.getSampleLabel());
+    }
+
+    @Test
+    public void testSamplerDataCopyOptional(@Mock CosmosItemResponse<JsonNode> mockResponse) {
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("pk1");
+        sampler.setCopySamplerData(false);
+        when(mockContainer.readItem(eq("item1"), any(PartitionKey.class), eq(JsonNode.class)))
+                .thenReturn(Mono.just(mockResponse));
+        when(mockResponse.getStatusCode()).thenReturn(HttpConstants.StatusCodes.OK);
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getResponseDataAsString().contains("\"operation\":\"READ\""));
+        assertNull(result.getSamplerData());
+    }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.HdrHistogram.Histogram;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CosmosDBSummaryListenerTest {
+
+    @Test
+    public void testKeepsLatestSummaryOfEachEngine() throws IOException {
+        CosmosDBSummaryListener listener = new CosmosDBSummaryListener();
+        listener.testStarted("engine-a");
+        listener.testStarted("engine-b");
+        listener.sampleOccurred(event(summary("1@engine-a", 1, 10)));
+        listener.sampleOccurred(event(summary("1@engine-a", 3, 30)));
+        listener.sampleOccurred(event(summary("1@engine-a", 2, 20)));
+        listener.sampleOccurred(event(summary("2@engine-b", 1, 5)));
+        listener.sampleOccurred(new SampleEvent(new SampleResult(), "Thread Group"));
+
+        List<Map<String, String>> summaries = listener.summarize();
+
+        assertEquals(1, summaries.size());
+        assertEquals("35", summaries.get(0).get("Samples"));
+        listener.testEnded("engine-a");
+        assertEquals(1, listener.summarize().size());
+        listener.testEnded("engine-b");
+        assertTrue(listener.summarize().isEmpty());
+    }
+
+    private static String summary(String engine, long sequence, int samples) throws IOException {
+        Histogram latency = new Histogram(3);
+        latency.recordValueWithCount(1000, samples);
+        EngineSummary summary = new EngineSummary(engine, sequence);
+        summary.addSeries("run1", "query", latency, 0, 0, 0, samples);
+        return summary.toJson();
+    }
+
+    private static SampleEvent event(String summaryJson) {
+        SampleResult result = new SampleResult();
+        result.setSampleLabel("Azure Cosmos DB Sampler");
+        SampleResult summaryResult = new SampleResult();
+        summaryResult.setSampleLabel(EngineSummary.LABEL);
+        summaryResult.setSamplerData(summaryJson);
+        result.addRawSubResult(summaryResult);
+        return new SampleEvent(result, "Thread Group");
+    }
+}
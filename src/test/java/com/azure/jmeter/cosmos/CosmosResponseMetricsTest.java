@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.BridgeInternal;
+import com.azure.cosmos.CosmosDiagnostics;
+import com.azure.cosmos.implementation.ClientSideRequestStatistics;
+import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.implementation.QueryMetrics;
+import com.azure.cosmos.implementation.RetryContext;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.ModelBridgeInternal;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CosmosResponseMetricsTest {
+    // Same diagnostics as CosmosDBSamplerTest.testSingleSample
+    private static final String SAMPLE_DIAGNOSTICS = "userAgent=azsdk-java-cosmos/4.28.0 MacOSX/11.3 JRE/11.0.12\n" +
+            " Retrieved Document Count                 :               9\n" +
+            " Retrieved Document Size                  :            3763 bytes\n" +
+            " Output Document Count                    :               9\n" +
+            " Output Document Size                     :            3820 bytes\n" +
+            " Index Utilization                        :          100.00 %\n" +
+            " Total Query Execution Time               :        0.190000 milliseconds\n" +
+            " Query Preparation Times Query Compilation Time : 0.030000 milliseconds\n" +
+            " Logical Plan Build Time : 0.000000 milliseconds\n" +
+            " Physical Plan Build Time : 0.000000 milliseconds\n" +
+            " Query Optimization Time : 0.000000 milliseconds\n" +
+            " Index Lookup Time : 0.000000 milliseconds\n" +
+            " Document Load Time : 0.030000 milliseconds\n" +
+            " Runtime Execution Times Query Engine Times : 0.010000 milliseconds\n" +
+            " Request Charge : 2.43 RUs";
+
+    @Mock
+    private FeedResponse<JsonNode> mockPage;
+    @Mock
+    private QueryMetrics mockQueryMetrics;
+
+    @Test
+    public void testMatchesLegacyParser() {
+        Map<String, String> legacyData = new HashMap<>();
+        new CosmosDBSampler().processCosmosDiagnosticsData(SAMPLE_DIAGNOSTICS, legacyData);
+
+        // The same page as the diagnostics above, with its metrics in the header the service sends them in
+        Map<String, String> headers = new HashMap<>();
+        headers.put(HttpConstants.HttpHeaders.REQUEST_CHARGE, "2.43");
+        headers.put(HttpConstants.HttpHeaders.QUERY_METRICS, "totalExecutionTimeInMs=0.19"
+                + ";queryCompileTimeInMs=0.03;queryLogicalPlanBuildTimeInMs=0.00;queryPhysicalPlanBuildTimeInMs=0.00"
+                + ";queryOptimizationTimeInMs=0.00;VMExecutionTimeInMs=0.04;indexLookupTimeInMs=0.00"
+                + ";documentLoadTimeInMs=0.03;systemFunctionExecuteTimeInMs=0.00;userFunctionExecuteTimeInMs=0.00"
+                + ";retrievedDocumentCount=9;retrievedDocumentSize=3763;outputDocumentCount=9;outputDocumentSize=3820"
+                + ";writeOutputTimeInMs=0.00;indexUtilizationRatio=1.00");
+        List<JsonNode> documents = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            documents.add(ItemTemplates.MAPPER.createObjectNode().put("id", Integer.toString(i)));
+        }
+        FeedResponse<JsonNode> page = ModelBridgeInternal.createFeedResponse(documents, headers);
+
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        metrics.add(page);
+        Map<String, String> typedData = new HashMap<>();
+        metrics.writeTo(typedData);
+        // The legacy parser never broke pages down by partition key range
+        typedData.keySet().removeIf(key -> key.startsWith("Partition"));
+
+        assertTrue(metrics.hasQueryMetrics());
+        assertEquals(legacyData, typedData);
+        assertEquals(1, metrics.getPageCount());
+        assertEquals(9, metrics.getItemCount());
+        assertEquals(2.43, metrics.getRequestCharge());
+    }
+
+    @Test
+    public void testAccumulatesPages() {
+        when(mockPage.getRequestCharge()).thenReturn(1.5);
+        when(mockPage.getResults()).thenReturn(Collections.nCopies(4, null));
+
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        metrics.add(mockPage);
+        metrics.add(mockPage);
+        Map<String, String> data = new HashMap<>();
+        metrics.writeTo(data);
+
+        assertEquals(Collections.singletonMap(CosmosResponseMetrics.REQUEST_CHARGE, "3.00RUs"), data);
+        assertEquals(2, metrics.getPageCount());
+        assertEquals(8, metrics.getItemCount());
+    }
+
+    @Test
+    public void testCountsThrottlingFromRetryContext(@Mock RetryContext throttled, @Mock RetryContext notRetried) {
+        when(throttled.getStatusAndSubStatusCodes())
+                .thenReturn(Arrays.asList(new int[] {429, 3200}, new int[] {429, 3200}));
+        when(throttled.getRetryCount()).thenReturn(2);
+        when(throttled.getRetryLatency()).thenReturn(380L);
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        metrics.addRetries(throttled);
+        metrics.addRetries(notRetried);
+        metrics.addThrottles(1);
+        Map<String, String> data = new HashMap<>();
+        metrics.writeTo(data);
+
+        assertEquals(3, metrics.getThrottleCount());
+        assertEquals(2, metrics.getRetryCount());
+        assertEquals("3", data.get(CosmosResponseMetrics.THROTTLE_COUNT));
+        assertEquals("2", data.get(CosmosResponseMetrics.RETRY_COUNT));
+        assertEquals("380.000000milliseconds", data.get(CosmosResponseMetrics.RETRY_WAIT));
+
+        metrics.reset();
+        metrics.addRetries(null);
+        data.clear();
+        metrics.writeTo(data);
+        assertEquals(0, metrics.getThrottleCount());
+        assertFalse(data.containsKey(CosmosResponseMetrics.THROTTLE_COUNT));
+    }
+
+    @Test
+    public void testRendersDiagnosticsOnlyWhenCapturing(@Mock CosmosDiagnostics diagnostics,
+                                                        @Mock ClientSideRequestStatistics statistics,
+                                                        @Mock RetryContext retryContext) {
+        String text = "{\"retryContext\":{\"statusAndSubStatusCodes\":[[429,3200]],\"retryCount\":1,"
+                + "\"retryLatency\":20}}";
+        when(diagnostics.toString()).thenReturn(text);
+        when(statistics.getRetryContext()).thenReturn(retryContext);
+        when(retryContext.getStatusAndSubStatusCodes()).thenReturn(Collections.singletonList(new int[] {429, 3200}));
+        when(retryContext.getRetryCount()).thenReturn(1);
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+
+        try (MockedStatic<BridgeInternal> bridge = mockStatic(BridgeInternal.class)) {
+            bridge.when(() -> BridgeInternal.getClientSideRequestStatics(diagnostics)).thenReturn(statistics);
+
+            // Retries are counted without holding on to the diagnostics
+            metrics.add(diagnostics);
+            assertFalse(metrics.hasPendingDiagnostics());
+            assertEquals(1, metrics.getThrottleCount());
+
+            metrics.setCaptureDiagnostics(true);
+            metrics.add(diagnostics);
+            assertTrue(metrics.hasPendingDiagnostics());
+            metrics.discardDiagnostics();
+            assertFalse(metrics.hasPendingDiagnostics());
+            assertEquals(2, metrics.getThrottleCount());
+            assertTrue(metrics.takeDiagnostics().isEmpty());
+
+            metrics.add(diagnostics);
+            metrics.readDiagnostics();
+            assertFalse(metrics.hasPendingDiagnostics());
+            assertEquals(3, metrics.getRetryCount());
+            assertEquals(Collections.singletonList(text), metrics.takeDiagnostics());
+
+            metrics.add(diagnostics);
+            metrics.reset();
+            assertFalse(metrics.hasPendingDiagnostics());
+        }
+    }
+
+    @Test
+    public void testStopsCountingRetriesWhenRequestStatisticsCannotBeRead(@Mock CosmosDiagnostics diagnostics) {
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        metrics.setCaptureDiagnostics(true);
+
+        try (MockedStatic<BridgeInternal> bridge = mockStatic(BridgeInternal.class)) {
+            bridge.when(() -> BridgeInternal.getClientSideRequestStatics(diagnostics))
+                    .thenThrow(new NoSuchMethodError("getClientSideRequestStatics"));
+
+            metrics.add(diagnostics);
+            metrics.add(diagnostics);
+
+            assertEquals(0, metrics.getRetryCount());
+            // The diagnostics are still captured, and the internals are not looked up again
+            assertTrue(metrics.hasPendingDiagnostics());
+            bridge.verify(() -> BridgeInternal.getClientSideRequestStatics(diagnostics), times(1));
+        } finally {
+            CosmosResponseMetrics.RETRY_STATISTICS_READABLE.set(true);
+        }
+    }
+
+    @Test
+    public void testBreaksDownPartitions() {
+        when(mockQueryMetrics.getRetrievedDocumentCount()).thenReturn(9L);
+        when(mockQueryMetrics.getTotalQueryExecutionTime()).thenReturn(Duration.ofNanos(190_000));
+
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        metrics.addPartition("0", mockQueryMetrics, 2.0);
+        metrics.addPartition("1", mockQueryMetrics, 0.5);
+        metrics.addPartition("0", mockQueryMetrics, 1.0);
+        Map<String, String> data = new HashMap<>();
+        metrics.writeTo(data);
+
+        assertEquals("0=3.00,1=0.50", data.get(CosmosResponseMetrics.PARTITION_REQUEST_CHARGE));
+        assertEquals("0=18,1=9", data.get(CosmosResponseMetrics.PARTITION_DOCUMENT_COUNT));
+        assertEquals("0=0.380,1=0.190", data.get(CosmosResponseMetrics.PARTITION_QUERY_EXECUTION_TIME));
+
+        metrics.reset();
+        metrics.addPartition("1", mockQueryMetrics, 0.5);
+        data.clear();
+        metrics.writeTo(data);
+        assertEquals("1=0.50", data.get(CosmosResponseMetrics.PARTITION_REQUEST_CHARGE));
+        assertEquals(2, metrics.getPartitions().size());
+    }
+
+    @Test
+    public void testFormatFixed() {
+        assertEquals("0.190000", CosmosResponseMetrics.formatFixed(0.19, 6));
+        assertEquals("100.00", CosmosResponseMetrics.formatFixed(100, 2));
+        assertEquals("2.05", CosmosResponseMetrics.formatFixed(2.049999, 2));
+        assertEquals("12", CosmosResponseMetrics.formatFixed(12.3, 0));
+    }
+}
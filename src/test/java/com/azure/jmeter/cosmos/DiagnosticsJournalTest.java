@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiagnosticsJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWritesCompressedRecords() throws IOException {
+        String path = tempDir.resolve("diagnostics").toString();
+        DiagnosticsJournal journal = new DiagnosticsJournal(path, Long.MAX_VALUE);
+        SampleResult result = new SampleResult();
+        result.setSampleLabel("Azure Cosmos DB Sampler");
+        result.setResponseCode("200");
+        result.setSuccessful(true);
+        for (int i = 0; i < 3; i++) {
+            long sampleId = journal.nextSampleId();
+            assertTrue(journal.offer(sampleId, result, Collections.singletonMap("SampleId", Long.toString(sampleId)),
+                    List.of("{\"userAgent\":\"azsdk-java-cosmos/4.28.0\"}")));
+        }
+        journal.close();
+
+        List<JsonNode> records = readRecords();
+        assertEquals(3, records.size());
+        assertEquals(3, journal.getWrittenCount());
+        assertEquals(0, journal.getDroppedCount());
+        JsonNode first = records.get(0);
+        assertEquals(1, first.get("SampleId").asLong());
+        assertEquals("1", first.get("Summary").get("SampleId").asText());
+        assertEquals("200", first.get("ResponseCode").asText());
+        assertEquals("{\"userAgent\":\"azsdk-java-cosmos/4.28.0\"}", first.get("Diagnostics").get(0).asText());
+        assertTrue(Files.exists(tempDir.resolve("diagnostics.1.jsonl.gz")));
+    }
+
+    @Test
+    public void testRotatesWithoutOverwriting() throws IOException, InterruptedException {
+        Files.createFile(tempDir.resolve("diagnostics.1.jsonl.gz"));
+        String path = tempDir.resolve("diagnostics").toString();
+        DiagnosticsJournal journal = new DiagnosticsJournal(path, 1);
+        SampleResult result = new SampleResult();
+        for (int i = 0; i < 3; i++) {
+            journal.offer(journal.nextSampleId(), result, Collections.emptyMap(), Collections.emptyList());
+            // Give the writer a batch of its own, so each record is rotated into its own file
+            while (journal.getWrittenCount() <= i) {
+                Thread.sleep(5);
+            }
+        }
+        journal.close();
+
+        assertEquals(0, Files.size(tempDir.resolve("diagnostics.1.jsonl.gz")));
+        assertTrue(Files.exists(tempDir.resolve("diagnostics.4.jsonl.gz")));
+        assertEquals(3, readRecords().size());
+    }
+
+    @Test
+    public void testDropsOnceClosed() {
+        DiagnosticsJournal journal = new DiagnosticsJournal(tempDir.resolve("diagnostics").toString(), 1);
+        journal.close();
+
+        assertFalse(journal.offer(journal.nextSampleId(), new SampleResult(), Collections.emptyMap(),
+                Collections.emptyList()));
+        assertEquals(1, journal.getDroppedCount());
+    }
+
+    private List<JsonNode> readRecords() throws IOException {
+        List<JsonNode> records = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDir, "diagnostics.*.jsonl.gz")) {
+            for (Path file : files) {
+                if (Files.size(file) == 0) {
+                    continue;
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(file)), UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        records.add(ItemTemplates.MAPPER.readTree(line));
+                    }
+                }
+            }
+        }
+        records.sort((a, b) -> Long.compare(a.get("SampleId").asLong(), b.get("SampleId").asLong()));
+        return records;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentFeederTest {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    public void teardown() {
+        DocumentFeeder.closeAll();
+    }
+
+    @Test
+    public void testWrapsAroundAndSkipsBlankLines() throws IOException {
+        Path file = tempDir.resolve("docs.jsonl");
+        Files.write(file, Arrays.asList("{\"id\":\"1\"}", "", "{\"id\":\"2\"}"));
+        DocumentFeeder feeder = DocumentFeeder.forFile(file.toString());
+
+        assertSame(feeder, DocumentFeeder.forFile(file.toString()));
+        assertEquals(Arrays.asList("{\"id\":\"1\"}", "{\"id\":\"2\"}", "{\"id\":\"1\"}"), feeder.next(3));
+        assertEquals(Arrays.asList("{\"id\":\"2\"}"), feeder.next(1));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        Path file = tempDir.resolve("empty.jsonl");
+        Files.write(file, Arrays.asList("", " "));
+
+        assertThrows(IOException.class, () -> DocumentFeeder.forFile(file.toString()).next(1));
+    }
+
+    @Test
+    public void testDocumentsMustBeObjects() throws IOException {
+        Path file = tempDir.resolve("mixed.jsonl");
+        Files.write(file, Arrays.asList("{\"id\":\"1\"}", "", "[1, 2]", "{\"id\":"));
+        DocumentFeeder feeder = DocumentFeeder.forFile(file.toString());
+
+        assertEquals("1", feeder.nextDocuments(1).get(0).get("id").asText());
+        IllegalArgumentException notObject = assertThrows(IllegalArgumentException.class,
+                () -> feeder.nextDocuments(1));
+        assertTrue(notObject.getMessage().contains("Line 3 of feeder file"), notObject.getMessage());
+        IllegalArgumentException malformed = assertThrows(IllegalArgumentException.class,
+                () -> feeder.nextDocuments(1));
+        assertTrue(malformed.getMessage().contains("Line 4 of feeder file"), malformed.getMessage());
+    }
+}
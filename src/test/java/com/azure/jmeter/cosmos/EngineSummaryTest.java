@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineSummaryTest {
+
+    @Test
+    public void testMergesEnginesThroughJson() throws IOException {
+        EngineSummary first = new EngineSummary("1@engine-a", 3);
+        first.addSeries("run1", "query", latencies(1, 100), 1, 4, 2, 250.0);
+        first.addPartition("run1", "query", "0", 10, 90, 200.0);
+        EngineSummary second = new EngineSummary("2@engine-b", 1);
+        second.addSeries("run1", "query", latencies(101, 200), 0, 1, 1, 150.0);
+        second.addPartition("run1", "query", "0", 5, 40, 100.0);
+        second.addPartition("run1", "query", "1", 5, 10, 100.0);
+
+        EngineSummary received = EngineSummary.fromJson(first.toJson());
+        assertEquals("1@engine-a", received.getEngine());
+        assertEquals(3, received.getSequence());
+        received.merge(EngineSummary.fromJson(second.toJson()));
+        List<Map<String, String>> summaries = received.summarize(10);
+
+        assertEquals(3, summaries.size());
+        Map<String, String> query = summaries.get(0);
+        assertEquals("run1", query.get("runID"));
+        assertEquals("query", query.get("queryType"));
+        assertEquals("200", query.get("Samples"));
+        assertEquals("1", query.get("Errors"));
+        assertEquals("5", query.get("Throttles"));
+        assertEquals("3", query.get("Retries"));
+        assertEquals("400.00", query.get("RequestChargeTotal"));
+        assertEquals(100.0, Double.parseDouble(query.get("LatencyP50")), 1.0);
+        assertEquals(200.0, Double.parseDouble(query.get("LatencyMax")), 1.0);
+
+        Map<String, String> hottest = summaries.get(1);
+        assertEquals("hot-partition", hottest.get("queryType"));
+        assertEquals("0", hottest.get("PartitionKeyRangeId"));
+        assertEquals("130", hottest.get("RetrievedDocumentCount"));
+        assertEquals("75.00%", hottest.get("RequestChargeShare"));
+        assertEquals("1", summaries.get(2).get("PartitionKeyRangeId"));
+    }
+
+    @Test
+    public void testRejectsMalformedJson() {
+        assertThrows(IOException.class, () -> EngineSummary.fromJson("{\"engine\":\"1@engine-a\"}"));
+        assertThrows(IOException.class, () -> EngineSummary.fromJson(
+                "{\"engine\":\"1@engine-a\",\"series\":[{\"runID\":\"run1\",\"latency\":\"not a histogram\"}]}"));
+    }
+
+    private static Histogram latencies(int fromMillis, int toMillis) {
+        Histogram histogram = new Histogram(3);
+        for (int millis = fromMillis; millis <= toMillis; millis++) {
+            histogram.recordValue(millis * 1000L);
+        }
+        return histogram;
+    }
+}
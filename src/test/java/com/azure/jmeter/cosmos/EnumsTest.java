@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnumsTest {
+
+    @Test
+    public void testFromString() {
+        assertEquals(DrainMode.PAGES, Enums.fromString(DrainMode.class, " pages ", DrainMode.FULL));
+        assertEquals(ValueType.NUMBER, Enums.fromString(ValueType.class, "Number", ValueType.STRING));
+    }
+
+    @Test
+    public void testEmptyNameIsTheDefault() {
+        assertEquals(DrainMode.FULL, Enums.fromString(DrainMode.class, "", DrainMode.FULL));
+        assertEquals(DrainMode.FULL, Enums.fromString(DrainMode.class, " ", DrainMode.FULL));
+        assertEquals(DrainMode.FULL, Enums.fromString(DrainMode.class, null, DrainMode.FULL));
+    }
+
+    @Test
+    public void testRejectsUnknownNames() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> Enums.fromString(DrainMode.class, "FIRST_PAGES", DrainMode.FULL));
+        assertTrue(e.getMessage().contains("FIRST_PAGES"));
+        assertThrows(IllegalArgumentException.class, () -> Enums.fromString(ValueType.class, "date", ValueType.STRING));
+    }
+}
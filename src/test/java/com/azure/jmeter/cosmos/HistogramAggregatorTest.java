@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.implementation.QueryMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HistogramAggregatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMergesThreadsOnLastTestEnded() throws Exception {
+        HistogramAggregator aggregator = new HistogramAggregator();
+        aggregator.testStarted();
+        aggregator.testStarted();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                HistogramAggregator.Recorders recorders = aggregator.newRecorders("run1", "pointRead");
+                for (int i = 1; i <= 1000; i++) {
+                    recorders.recordLatency(i * 1000L);
+                    recorders.recordRequestCharge(1.0);
+                }
+                recorders.recordError();
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(aggregator.testEnded("").isEmpty());
+        Path report = tempDir.resolve("report.jsonl");
+        List<Map<String, String>> summaries = aggregator.testEnded(report.toString());
+
+        assertEquals(1, summaries.size());
+        Map<String, String> summary = summaries.get(0);
+        assertEquals("run1", summary.get("runID"));
+        assertEquals("pointRead", summary.get("queryType"));
+        assertEquals("4000", summary.get("Samples"));
+        assertEquals("4", summary.get("Errors"));
+        assertEquals(500.0, Double.parseDouble(summary.get("LatencyP50")), 1.0);
+        assertEquals(1000.0, Double.parseDouble(summary.get("LatencyMax")), 1.0);
+        assertEquals(1.0, Double.parseDouble(summary.get("RequestChargeP99")), 0.01);
+        assertFalse(summary.containsKey("TotalQueryExecutionTimeP50"));
+        assertEquals(1, Files.readAllLines(report).size());
+    }
+
+    @Test
+    public void testSeparatesRunAndQueryType() throws IOException {
+        HistogramAggregator aggregator = new HistogramAggregator();
+        aggregator.testStarted();
+        HistogramAggregator.Recorders query = aggregator.newRecorders("run1", "query");
+        query.recordLatency(2000);
+        query.recordServerTime(500);
+        query.recordSamplerOverhead(300);
+        query.recordRetrievedDocuments(10);
+        aggregator.newRecorders("run1", "read").recordLatency(1000);
+
+        assertTrue(query.matches("run1", "query"));
+        assertFalse(query.matches("run1", "read"));
+        List<Map<String, String>> summaries = aggregator.testEnded("");
+
+        assertEquals(2, summaries.size());
+        Map<String, String> querySummary = summaries.stream()
+                .filter(summary -> summary.get("queryType").equals("query")).findFirst().orElseThrow();
+        assertEquals("0.500", querySummary.get("TotalQueryExecutionTimeP50"));
+        assertEquals("10", querySummary.get("RetrievedDocumentCountMax"));
+        assertEquals("0.300", querySummary.get("SamplerOverheadP50"));
+    }
+
+    @Test
+    public void testReportsHotPartitions() {
+        CosmosResponseMetrics sample = new CosmosResponseMetrics();
+        QueryMetrics queryMetrics = mock(QueryMetrics.class);
+        when(queryMetrics.getRetrievedDocumentCount()).thenReturn(10L);
+        when(queryMetrics.getTotalQueryExecutionTime()).thenReturn(Duration.ofMillis(2));
+        sample.addPartition("0", queryMetrics, 1.0);
+        sample.addPartition("1", queryMetrics, 6.0);
+        sample.addPartition("2", queryMetrics, 3.0);
+
+        HistogramAggregator aggregator = new HistogramAggregator();
+        aggregator.testStarted();
+        aggregator.newRecorders("run1", "hot").recordPartitions(sample.getPartitions());
+        aggregator.newRecorders("run1", "cold").recordPartitions(sample.getPartitions());
+        List<Map<String, String>> summaries = aggregator.testEnded("", 2);
+
+        List<Map<String, String>> hot = summaries.stream()
+                .filter(summary -> summary.get("queryType").equals("hot-partition")).collect(Collectors.toList());
+        assertEquals(2, hot.size());
+        assertEquals("1", hot.get(0).get("Rank"));
+        assertEquals("1", hot.get(0).get("PartitionKeyRangeId"));
+        assertEquals("3", hot.get(0).get("PartitionCount"));
+        assertEquals("2", hot.get(0).get("Samples"));
+        assertEquals("20", hot.get(0).get("RetrievedDocumentCount"));
+        assertEquals("12.00", hot.get(0).get("RequestCharge"));
+        assertEquals("60.00%", hot.get(0).get("RequestChargeShare"));
+        assertEquals(2.0, Double.parseDouble(hot.get(0).get("TotalQueryExecutionTimeP50")), 0.01);
+        assertEquals("2", hot.get(1).get("PartitionKeyRangeId"));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemTemplatesTest {
+
+    @Test
+    public void testParseDocumentSetsId() throws IOException {
+        ObjectNode document = ItemTemplates.parseDocument("{\"id\":\"old\",\"tenant\":{\"id\":\"t1\"}}", "new");
+
+        assertEquals("new", document.get("id").asText());
+        assertEquals(new PartitionKey("t1"), ItemTemplates.partitionKey(document, "/tenant/id"));
+    }
+
+    @Test
+    public void testParseDocumentRequiresId() {
+        assertThrows(IllegalArgumentException.class, () -> ItemTemplates.parseDocument("{\"a\":1}", ""));
+        assertThrows(IllegalArgumentException.class, () -> ItemTemplates.parseDocument("[1]", "id"));
+    }
+
+    @Test
+    public void testNumericPartitionKey() throws IOException {
+        ObjectNode document = ItemTemplates.parseDocument("{\"id\":\"1\",\"region\":42}", null);
+
+        assertEquals(new PartitionKey(42), ItemTemplates.partitionKey(document, "region"));
+        assertThrows(IllegalArgumentException.class, () -> ItemTemplates.partitionKey(document, ""));
+    }
+
+    @Test
+    public void testParsePatchOperations() throws IOException {
+        assertNotNull(ItemTemplates.parsePatchOperations(
+                "[{\"op\":\"set\",\"path\":\"/a\",\"value\":1},{\"op\":\"increment\",\"path\":\"/n\",\"value\":2}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ItemTemplates.parsePatchOperations("[{\"op\":\"move\",\"path\":\"/a\"}]"));
+        assertThrows(IllegalArgumentException.class, () -> ItemTemplates.parsePatchOperations("{}"));
+    }
+
+    @Test
+    public void testSetPartitionKey() throws IOException {
+        ObjectNode document = ItemTemplates.parseDocument("{\"id\":\"1\",\"tenant\":{\"name\":\"a\"}}", "");
+
+        ItemTemplates.setPartitionKey(document, "/tenant/id", "t1");
+        ItemTemplates.setPartitionKey(document, "/region/code", "eu");
+
+        assertEquals(new PartitionKey("t1"), ItemTemplates.partitionKey(document, "/tenant/id"));
+        assertEquals("a", document.at("/tenant/name").asText());
+        assertEquals(new PartitionKey("eu"), ItemTemplates.partitionKey(document, "/region/code"));
+        ItemTemplates.setPartitionKey(document, "/shard", 42L);
+        assertEquals(new PartitionKey(42L), ItemTemplates.partitionKey(document, "/shard"));
+        assertThrows(IllegalArgumentException.class, () -> ItemTemplates.setPartitionKey(document, "/id/x", "v"));
+        assertThrows(IllegalArgumentException.class, () -> ItemTemplates.setPartitionKey(document, "", "v"));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyDistributionTest {
+
+    private static final int PICKS = 100_000;
+
+    @Test
+    public void testRandomStaysInRange() {
+        KeyDistribution random = KeyDistribution.parse("random", 10);
+        AtomicLong sequence = new AtomicLong();
+
+        for (int i = 0; i < PICKS; i++) {
+            long index = random.next(sequence);
+            assertTrue(index >= 0 && index < 10);
+        }
+        assertEquals(0, sequence.get());
+    }
+
+    @Test
+    public void testZipfianFavoursFirstKeys() {
+        KeyDistribution zipfian = KeyDistribution.parse("zipfian:0.99", 1_000_000);
+        AtomicLong sequence = new AtomicLong();
+        long[] counts = new long[3];
+        int inFirstThousand = 0;
+
+        for (int i = 0; i < PICKS; i++) {
+            long index = zipfian.next(sequence);
+            assertTrue(index >= 0 && index < 1_000_000);
+            if (index < counts.length) {
+                counts[(int) index]++;
+            }
+            if (index < 1000) {
+                inFirstThousand++;
+            }
+        }
+
+        assertTrue(counts[0] > counts[1] && counts[1] > counts[2]);
+        // With theta 0.99 about half of all picks fall on the first thousand of a million keys
+        assertTrue(inFirstThousand > PICKS * 0.4 && inFirstThousand < PICKS * 0.65);
+    }
+
+    @Test
+    public void testHotSetShare() {
+        KeyDistribution hotSet = KeyDistribution.parse("hotset:0.1:0.9", 1000);
+        AtomicLong sequence = new AtomicLong();
+        int hot = 0;
+
+        for (int i = 0; i < PICKS; i++) {
+            if (hotSet.next(sequence) < 100) {
+                hot++;
+            }
+        }
+
+        assertEquals(PICKS * 0.9, hot, PICKS * 0.01);
+    }
+
+    @Test
+    public void testZetaApproximatesSum() {
+        double exact = 0;
+        for (int i = 1; i <= 300_000; i++) {
+            exact += 1.0 / Math.pow(i, 0.99);
+        }
+
+        assertEquals(exact, KeyDistribution.zeta(300_000, 0.99), exact * 1e-6);
+    }
+
+    @Test
+    public void testRejectsMalformedDistribution() {
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("gaussian", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("zipfian:1.5", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("hotset:0:0.8", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("random", 0));
+    }
+
+    @Test
+    public void testParsesIndependentlyOfDefaultLocale() {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            KeyDistribution zipfian = KeyDistribution.parse("zipfian:0.99", 1000);
+            long index = zipfian.next(new AtomicLong());
+            assertTrue(index >= 0 && index < 1000);
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyFeederTest {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    public void teardown() {
+        KeyFeeder.closeAll();
+    }
+
+    @Test
+    public void testReadsFixedWidthRecords() throws IOException {
+        Path file = tempDir.resolve("keys.csv");
+        Files.write(file, ("item1,tenantA      \n"
+                + "item22,tenantB,x   \n"
+                + "item333           \r\n").getBytes(UTF_8));
+        KeyFeeder feeder = KeyFeeder.forFile(file.toString());
+        KeyFeeder.Record record = new KeyFeeder.Record();
+
+        assertSame(feeder, KeyFeeder.forFile(file.toString()));
+        assertEquals(3, feeder.size());
+
+        feeder.read(1, record);
+        assertEquals(3, record.getFieldCount());
+        assertEquals("item22", record.field(0));
+        assertEquals("tenantB", record.field(1));
+        assertEquals("x", record.field(2));
+
+        feeder.read(2, record);
+        assertEquals(1, record.getFieldCount());
+        assertEquals("item333", record.field(0));
+        assertThrows(IllegalArgumentException.class, () -> record.field(1));
+    }
+
+    @Test
+    public void testSequentialWrapsAround() throws IOException {
+        Path file = tempDir.resolve("keys.csv");
+        Files.write(file, "a,1\nb,2\n".getBytes(UTF_8));
+        KeyFeeder feeder = KeyFeeder.forFile(file.toString());
+        KeyDistribution sequential = KeyDistribution.parse("sequential", feeder.size());
+        KeyFeeder.Record record = new KeyFeeder.Record();
+
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            feeder.next(sequential, record);
+            ids.append(record.field(0));
+        }
+
+        assertEquals("aba", ids.toString());
+    }
+
+    @Test
+    public void testRejectsUnpaddedLines() throws IOException {
+        Path file = tempDir.resolve("keys.csv");
+        Files.write(file, "a,1\nbb,2\n".getBytes(UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> KeyFeeder.forFile(file.toString()));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsEndpointTest {
+
+    @Test
+    public void testServesLiveMetrics() throws IOException {
+        HistogramAggregator aggregator = new HistogramAggregator();
+        aggregator.testStarted();
+        HistogramAggregator.Recorders recorders = aggregator.newRecorders("run\"1", "query");
+        for (int i = 1; i <= 100; i++) {
+            recorders.recordLatency(i * 1000L);
+            recorders.recordRequestCharge(2.5);
+        }
+        recorders.recordError();
+        recorders.recordThrottling(3, 2, 1_000_000);
+
+        assertTrue(MetricsEndpoint.start("", 0, aggregator));
+        String metrics;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://localhost:" + MetricsEndpoint.getPort() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(MetricsEndpoint.CONTENT_TYPE, connection.getContentType());
+            try (InputStream in = connection.getInputStream()) {
+                metrics = new String(in.readAllBytes(), UTF_8);
+            }
+        } finally {
+            MetricsEndpoint.stop();
+        }
+
+        String labels = "{runID=\"run\\\"1\",queryType=\"query\"}";
+        assertTrue(metrics.contains("cosmosdb_sampler_samples_total" + labels + " 100\n"), metrics);
+        assertTrue(metrics.contains("cosmosdb_sampler_errors_total" + labels + " 1\n"), metrics);
+        assertTrue(metrics.contains("cosmosdb_sampler_throttles_total" + labels + " 3\n"), metrics);
+        assertTrue(metrics.contains("cosmosdb_sampler_retries_total" + labels + " 2\n"), metrics);
+        assertTrue(metrics.contains("cosmosdb_sampler_request_units_total" + labels + " 250.0\n"), metrics);
+        assertTrue(metrics.contains("cosmosdb_sampler_latency_seconds_count" + labels + " 100\n"), metrics);
+        assertTrue(metrics.contains("quantile=\"0.99\"} 0.099"), metrics);
+        assertTrue(metrics.endsWith("# EOF\n"));
+        assertEquals(0, MetricsEndpoint.getPort());
+
+        // Scraping does not take the latencies away from the final summary
+        List<Map<String, String>> summaries = aggregator.testEnded("");
+        assertEquals("100", summaries.get(0).get("Samples"));
+        assertEquals("1", summaries.get(0).get("Errors"));
+    }
+
+    @Test
+    public void testBindsToConfiguredAddress() {
+        HistogramAggregator aggregator = new HistogramAggregator();
+
+        assertFalse(MetricsEndpoint.start("no-such-host.invalid", 0, aggregator));
+        assertEquals(0, MetricsEndpoint.getPort());
+
+        assertTrue(MetricsEndpoint.start("127.0.0.1", 0, aggregator));
+        try {
+            assertNotEquals(0, MetricsEndpoint.getPort());
+        } finally {
+            MetricsEndpoint.stop();
+        }
+    }
+}
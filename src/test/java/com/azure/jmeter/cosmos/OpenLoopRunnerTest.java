@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenLoopRunnerTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    public void testIssuesAtTargetRate() throws InterruptedException {
+        OpenLoopRunner runner = new OpenLoopRunner(tickingClock(TimeUnit.MICROSECONDS.toNanos(500)));
+
+        OpenLoopRunner.Window window = runner.run(() -> Mono.just(2.0), 1000, WINDOW_NANOS, 10,
+                DRAIN_TIMEOUT_NANOS);
+        Map<String, String> data = new HashMap<>();
+        window.writeTo(data);
+
+        assertEquals(100, window.getIssued());
+        assertEquals(0, window.getFailed());
+        assertEquals("100", data.get("Completed"));
+        assertEquals("200.00RUs", data.get(CosmosResponseMetrics.REQUEST_CHARGE));
+        assertEquals(100, window.getCorrectedLatency().getTotalCount());
+    }
+
+    @Test
+    public void testCorrectedLatencyIncludesQueueing() throws InterruptedException {
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        OpenLoopRunner runner = new OpenLoopRunner(now::get);
+
+        // One request in flight at a time, each taking 20ms, while the schedule asks for one every 10ms, so the
+        // tenth request starts 90ms behind its intended time
+        OpenLoopRunner.Window window = runner.run(() -> Mono.fromCallable(() -> {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+            return 1.0;
+        }), 100, WINDOW_NANOS, 1, DRAIN_TIMEOUT_NANOS);
+        Map<String, String> data = new HashMap<>();
+        window.writeTo(data);
+
+        assertEquals(10, window.getIssued());
+        assertEquals(110.0, Double.parseDouble(data.get("CorrectedLatencyMax")), 0.2);
+        assertEquals(20.0, Double.parseDouble(data.get("ServiceLatencyMax")), 0.1);
+    }
+
+    @Test
+    public void testCountsFailures() throws InterruptedException {
+        OpenLoopRunner runner = new OpenLoopRunner();
+
+        OpenLoopRunner.Window window = runner.run(() -> {
+            throw new IllegalStateException("no request");
+        }, 100, WINDOW_NANOS, 10, DRAIN_TIMEOUT_NANOS);
+
+        assertEquals(10, window.getIssued());
+        assertEquals(10, window.getFailed());
+    }
+
+    @Test
+    public void testCancelsRequestsPendingAtDrainTimeout() throws InterruptedException {
+        OpenLoopRunner runner = new OpenLoopRunner();
+        AtomicInteger cancelled = new AtomicInteger();
+
+        OpenLoopRunner.Window window = runner.run(() -> Mono.delay(Duration.ofMillis(500)).thenReturn(1.0)
+                        .doOnCancel(cancelled::incrementAndGet),
+                100, WINDOW_NANOS, 10, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertEquals(10, window.getIssued());
+        assertEquals(10, window.getTimedOut());
+        assertEquals(10, cancelled.get());
+        assertEquals(0, window.getCorrectedLatency().getTotalCount());
+
+        // Nothing from the timed out window shows up in the next one
+        Thread.sleep(600);
+        OpenLoopRunner.Window next = runner.run(() -> Mono.just(1.0), 100, WINDOW_NANOS, 10, DRAIN_TIMEOUT_NANOS);
+        assertEquals(next.getIssued(), next.getCorrectedLatency().getTotalCount());
+    }
+
+    /**
+     * @return a clock that moves on by {@code stepNanos} every time it is read, so schedules never wait long
+     */
+    private static LongSupplier tickingClock(long stepNanos) {
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        return () -> now.addAndGet(stepNanos);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParameterizedQueryTest {
+
+    @Test
+    public void testBindTypedParameters() {
+        ParameterizedQuery query = ParameterizedQuery.parse("SELECT * FROM c WHERE c.t = @tenant AND c.a > @age",
+                "@tenant=tenantId\n@age = minAge:number; @active=isActive:boolean");
+        JMeterVariables variables = new JMeterVariables();
+        variables.put("tenantId", "t1");
+        variables.put("minAge", "42");
+        variables.put("isActive", "true");
+
+        SqlQuerySpec spec = query.bind(variables);
+
+        assertTrue(query.hasParameters());
+        assertEquals("SELECT * FROM c WHERE c.t = @tenant AND c.a > @age", spec.getQueryText());
+        List<SqlParameter> parameters = spec.getParameters();
+        assertEquals(3, parameters.size());
+        assertEquals("@tenant", parameters.get(0).getName());
+        assertEquals("t1", parameters.get(0).getValue(String.class));
+        assertEquals(42L, parameters.get(1).getValue(Long.class));
+        assertEquals(Boolean.TRUE, parameters.get(2).getValue(Boolean.class));
+    }
+
+    @Test
+    public void testMatches() {
+        ParameterizedQuery query = ParameterizedQuery.parse("SELECT * FROM c", "");
+
+        assertFalse(query.hasParameters());
+        assertTrue(query.matches("SELECT * FROM c", ""));
+        assertFalse(query.matches("SELECT * FROM c", "@a=b"));
+    }
+
+    @Test
+    public void testInvalidBindings() {
+        assertThrows(IllegalArgumentException.class, () -> ParameterizedQuery.parse("q", "tenant=tenantId"));
+        assertThrows(IllegalArgumentException.class, () -> ParameterizedQuery.parse("q", "@a=b:date"));
+        ParameterizedQuery query = ParameterizedQuery.parse("q", "@a=missing");
+        assertThrows(IllegalArgumentException.class, () -> query.bind(new JMeterVariables()));
+    }
+}
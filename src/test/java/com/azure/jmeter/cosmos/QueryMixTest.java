@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryMixTest {
+
+    private static final String MIX = "["
+            + "{\"name\": \"byTenant\", \"weight\": 70, \"query\": \"SELECT * FROM c WHERE c.tenant = @tenant\","
+            + " \"parameters\": \"@tenant=tenantId\"},"
+            + "{\"name\": \"recent\", \"weight\": 20, \"query\": \"SELECT TOP 10 * FROM c ORDER BY c._ts DESC\"},"
+            + "{\"name\": \"count\", \"weight\": 10, \"query\": \"SELECT VALUE COUNT(1) FROM c\"}]";
+
+    @Test
+    public void testParse() throws IOException {
+        QueryMix mix = QueryMix.parse(MIX);
+
+        assertEquals(3, mix.getEntries().size());
+        QueryMix.Entry byTenant = mix.getEntries().get(0);
+        assertEquals("byTenant", byTenant.getName());
+        assertEquals("Azure Cosmos DB Sampler: byTenant", byTenant.getLabel());
+        assertTrue(byTenant.getQuery().hasParameters());
+        assertFalse(mix.getEntries().get(1).getQuery().hasParameters());
+        assertTrue(mix.matches(MIX));
+        assertFalse(mix.matches(MIX + " "));
+    }
+
+    @Test
+    public void testPicksInProportionToWeight() throws IOException {
+        QueryMix mix = QueryMix.parse(MIX);
+        Map<String, Integer> picks = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            picks.merge(mix.next().getName(), 1, Integer::sum);
+        }
+
+        assertEquals(70_000, picks.get("byTenant"), 1_500);
+        assertEquals(20_000, picks.get("recent"), 1_500);
+        assertEquals(10_000, picks.get("count"), 1_500);
+    }
+
+    @Test
+    public void testDefaultWeight() throws IOException {
+        QueryMix mix = QueryMix.parse("[{\"name\": \"only\", \"query\": \"SELECT * FROM c\"}]");
+
+        assertEquals(1.0, mix.getEntries().get(0).getWeight());
+        assertEquals("only", mix.next().getName());
+    }
+
+    @Test
+    public void testRejectsMalformedMix() {
+        assertThrows(IllegalArgumentException.class, () -> QueryMix.parse("[]"));
+        assertThrows(IllegalArgumentException.class, () -> QueryMix.parse("{\"name\": \"a\"}"));
+        assertThrows(IllegalArgumentException.class, () -> QueryMix.parse("[{\"name\": \"a\"}]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> QueryMix.parse("[{\"name\": \"a\", \"weight\": 0, \"query\": \"SELECT * FROM c\"}]"));
+        assertThrows(IOException.class, () -> QueryMix.parse("[{"));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateGovernorTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @AfterEach
+    public void tearDown() {
+        RateGovernor.clearAll();
+    }
+
+    @Test
+    public void testSharedBySettings() {
+        RateGovernor governor = RateGovernor.forSettings(GovernorMode.REQUEST_UNITS, 1000, 50);
+
+        assertSame(governor, RateGovernor.forSettings(GovernorMode.REQUEST_UNITS, 1000, 50));
+        assertNotSame(governor, RateGovernor.forSettings(GovernorMode.REQUEST_UNITS, 2000, 50));
+        assertTrue(governor.matches(GovernorMode.REQUEST_UNITS, 1000, 50));
+        assertEquals(50, governor.getRate());
+    }
+
+    @Test
+    public void testHoldsRequestUnitTarget() {
+        RateGovernor governor = new RateGovernor("ru", GovernorMode.REQUEST_UNITS, 1000, 100);
+
+        // 100 samples of 5 RU each consume 500 RU/s, so 200 samples/s reach the target
+        recordSamples(governor, 100, 5.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertEquals(200, governor.getRate(), 0.001);
+
+        // 20 RU samples need only 50 samples/s, but the rate halves at most per adjustment
+        recordSamples(governor, 200, 20.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertEquals(100, governor.getRate(), 0.001);
+    }
+
+    @Test
+    public void testHoldsThrottleRatio() {
+        RateGovernor governor = new RateGovernor("ratio", GovernorMode.THROTTLE_RATIO, 0.05, 100);
+
+        recordSamples(governor, 100, 1.0, 20);
+        governor.adjust(ONE_SECOND);
+        assertEquals(70, governor.getRate(), 0.001);
+
+        recordSamples(governor, 70, 1.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertEquals(77, governor.getRate(), 0.001);
+    }
+
+    @Test
+    public void testDoesNotRunAwayAboveAchievedRate() {
+        RateGovernor governor = new RateGovernor("ratio", GovernorMode.THROTTLE_RATIO, 0.05, 100);
+
+        // The threads only managed 10 samples/s, so growing further would only store up a burst
+        recordSamples(governor, 10, 1.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertEquals(20, governor.getRate(), 0.001);
+
+        // Nothing recorded, nothing to adjust
+        governor.adjust(ONE_SECOND);
+        assertEquals(20, governor.getRate(), 0.001);
+    }
+
+    @Test
+    public void testWarnsOfWindowsWithoutRequestCharge() {
+        RateGovernor governor = new RateGovernor("ru", GovernorMode.REQUEST_UNITS, 1000, 100);
+
+        recordSamples(governor, 100, 5.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertFalse(governor.hasWarned());
+
+        // Without any charge there is nothing to divide the target by, so the rate can only grow
+        recordSamples(governor, 200, 0.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertTrue(governor.hasWarned());
+        assertEquals(400, governor.getRate(), 0.001);
+    }
+
+    @Test
+    public void testWarnsWhenRetriesCannotBeRead() {
+        RateGovernor governor = new RateGovernor("ratio", GovernorMode.THROTTLE_RATIO, 0.05, 100);
+
+        recordSamples(governor, 100, 1.0, 0);
+        governor.adjust(ONE_SECOND);
+        assertFalse(governor.hasWarned());
+
+        CosmosResponseMetrics.RETRY_STATISTICS_READABLE.set(false);
+        try {
+            recordSamples(governor, 100, 1.0, 0);
+            governor.adjust(ONE_SECOND);
+            assertTrue(governor.hasWarned());
+        } finally {
+            CosmosResponseMetrics.RETRY_STATISTICS_READABLE.set(true);
+        }
+    }
+
+    @Test
+    public void testPacesAcquires() throws InterruptedException {
+        RateGovernor governor = new RateGovernor("pace", GovernorMode.REQUEST_UNITS, 1000, 100);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            governor.acquire();
+        }
+
+        // The first turn is immediate, the next ten are 10ms apart
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(95));
+    }
+
+    private static void recordSamples(RateGovernor governor, int samples, double charge, int throttled) {
+        for (int i = 0; i < samples; i++) {
+            governor.record(charge, i < throttled);
+        }
+    }
+}
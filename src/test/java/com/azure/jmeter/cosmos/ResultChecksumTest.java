@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultChecksumTest {
+
+    @Test
+    public void testIgnoresResultOrder() throws Exception {
+        JsonNode first = ItemTemplates.MAPPER.readTree("{\"id\":\"a\",\"pk\":1}");
+        JsonNode second = ItemTemplates.MAPPER.readTree("{\"id\":\"b\"}");
+
+        ResultChecksum forward = new ResultChecksum();
+        forward.add(first);
+        forward.add(second);
+        ResultChecksum reverse = new ResultChecksum();
+        reverse.add(second);
+        reverse.add(first);
+
+        assertEquals(forward.getChecksum(), reverse.getChecksum());
+        assertEquals(2, forward.getDocumentCount());
+        assertEquals(ItemTemplates.MAPPER.writeValueAsBytes(first).length
+                + ItemTemplates.MAPPER.writeValueAsBytes(second).length, forward.getByteCount());
+    }
+
+    @Test
+    public void testDetectsChangedResults() throws Exception {
+        ResultChecksum checksum = new ResultChecksum();
+        checksum.add(ItemTemplates.MAPPER.readTree("{\"id\":\"a\",\"pk\":1}"));
+        long original = checksum.getChecksum();
+        checksum.reset();
+        checksum.add(ItemTemplates.MAPPER.readTree("{\"id\":\"a\",\"pk\":2}"));
+        Map<String, String> data = new HashMap<>();
+        checksum.writeTo(data);
+
+        assertNotEquals(original, checksum.getChecksum());
+        assertEquals(1, checksum.getDocumentCount());
+        assertEquals(16, data.get(ResultChecksum.RESULT_CHECKSUM).length());
+        assertEquals("17", data.get(ResultChecksum.RESULT_BYTES));
+    }
+
+    @Test
+    public void testRawDocumentsCountTheSameBytes() throws Exception {
+        String json = "[{\"id\":\"a\",\"pk\":1,\"tags\":[\"x\",\"y\"],\"price\":9.5,\"nested\":{\"ok\":true}},"
+                + "\"text\",42,null]";
+        JsonNode trees = ItemTemplates.MAPPER.readTree(json);
+        List<RawDocument> parsed = ItemTemplates.MAPPER.readValue(json, new TypeReference<List<RawDocument>>() {
+        });
+
+        ResultChecksum fromTrees = new ResultChecksum();
+        ResultChecksum fromRaw = new ResultChecksum();
+        ResultChecksum fromParsed = new ResultChecksum();
+        long expectedBytes = 0;
+        for (JsonNode tree : trees) {
+            fromTrees.add(tree);
+            // The SDK hands results over from a tree of the page, so raw documents are read from trees too
+            fromRaw.add(ItemTemplates.MAPPER.treeToValue(tree, RawDocument.class));
+            expectedBytes += ItemTemplates.MAPPER.writeValueAsBytes(tree).length;
+        }
+        parsed.forEach(fromParsed::add);
+
+        assertEquals(4, parsed.size());
+        assertEquals(expectedBytes, fromRaw.getByteCount());
+        assertEquals(expectedBytes, fromParsed.getByteCount());
+        assertEquals(4, parsed.get(3).getByteCount());
+        assertEquals(fromTrees.getByteCount(), fromRaw.getByteCount());
+        assertEquals(fromTrees.getChecksum(), fromRaw.getChecksum());
+        assertEquals(fromTrees.getChecksum(), fromParsed.getChecksum());
+        assertEquals(4, fromRaw.getDocumentCount());
+    }
+
+    @Test
+    public void testRawDocumentsReadByTheMapperMatchTheTreePath() throws Exception {
+        String[] documents = {
+                "{\"id\":\"a\",\"pk\":1,\"tags\":[\"x\",\"y\"],\"price\":9.5,\"nested\":{\"ok\":true}}",
+                "{\"id\":\"b\",\"name\":\"caf\\u00e9 \\\"quoted\\\"\\n\",\"count\":-9007199254740993,\"empty\":{}}",
+                "{\"id\":\"c\",\"big\":123456789012345678901234567890,\"scaled\":1.5e3,\"lists\":[[],[null,false]]}"
+        };
+        for (String json : documents) {
+            // Straight from the JSON text, through the deserializer that raw queries register
+            RawDocument raw = ItemTemplates.MAPPER.readValue(json, RawDocument.class);
+            ResultChecksum fromTree = new ResultChecksum();
+            fromTree.add(ItemTemplates.MAPPER.readTree(json));
+            ResultChecksum fromRaw = new ResultChecksum();
+            fromRaw.add(raw);
+
+            assertEquals(fromTree.getByteCount(), raw.getByteCount(), json);
+            assertEquals(fromTree.getByteCount(), fromRaw.getByteCount(), json);
+            assertEquals(fromTree.getChecksum(), fromRaw.getChecksum(), json);
+            assertEquals(1, fromRaw.getDocumentCount());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Microsoft Corporation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.azure.jmeter.cosmos;
+
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.implementation.HttpConstants;
+import com.azure.cosmos.models.FeedResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulatedBackendTest {
+
+    @Test
+    public void testPagesAndMetrics() {
+        SimulatedBackend backend = SimulatedBackend.parse("simulated://test?pages=3&items=4&charge=1.5");
+
+        List<FeedResponse<JsonNode>> pages = backend.queryItems().byPage(10).collectList().block();
+
+        assertEquals(3, pages.size());
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics();
+        pages.forEach(metrics::add);
+        assertEquals(4.5, metrics.getRequestCharge(), 1e-9);
+        assertEquals(12, metrics.getItemCount());
+        assertTrue(metrics.hasQueryMetrics());
+        assertEquals(12, metrics.getRetrievedDocumentCount());
+    }
+
+    @Test
+    public void testPageSizeLimitsItems() {
+        SimulatedBackend backend = SimulatedBackend.parse("simulated://test?pages=2&items=10");
+
+        FeedResponse<JsonNode> page = backend.queryItems().byPage(3).blockFirst();
+
+        assertEquals(3, page.getResults().size());
+    }
+
+    @Test
+    public void testThrottling() {
+        SimulatedBackend backend = SimulatedBackend.parse("simulated://test?throttleRate=1&retryAfterMs=250");
+
+        CosmosException e = assertThrows(CosmosException.class, () -> backend.queryItems().byPage(10).blockLast());
+
+        assertEquals(HttpConstants.StatusCodes.TOO_MANY_REQUESTS, e.getStatusCode());
+        assertEquals(Duration.ofMillis(250), e.getRetryAfterDuration());
+    }
+
+    @Test
+    public void testPartitionSplit() {
+        SimulatedBackend backend = SimulatedBackend.parse("simulated://test?splitRate=1");
+
+        CosmosException e = assertThrows(CosmosException.class, () -> backend.queryItems().byPage(10).blockLast());
+
+        assertEquals(HttpConstants.StatusCodes.GONE, e.getStatusCode());
+        assertEquals(HttpConstants.SubStatusCodes.PARTITION_KEY_RANGE_GONE, e.getSubStatusCode());
+    }
+
+    @Test
+    public void testLatencyDistributions() {
+        assertEquals(5_000_000L, SimulatedBackend.LatencyDistribution.parse("5").nextNanos());
+        long uniform = SimulatedBackend.LatencyDistribution.parse("uniform:2:3").nextNanos();
+        assertTrue(uniform >= 2_000_000L && uniform <= 3_000_000L);
+        assertTrue(SimulatedBackend.LatencyDistribution.parse("lognormal:4:0.5").nextNanos() > 0);
+        assertThrows(IllegalArgumentException.class, () -> SimulatedBackend.LatencyDistribution.parse("gamma:1"));
+    }
+
+    @Test
+    public void testSamplerAgainstSimulatedBackend() {
+        CosmosDBSampler sampler = new CosmosDBSampler();
+        sampler.setCosmosDBURI("simulated://sampler-test?pages=2&items=5&throttleRate=0");
+        sampler.setCosmosDBQuery("SELECT * FROM c");
+        sampler.setDrainMode(DrainMode.FULL.name());
+
+        SampleResult result = sampler.sample(new Entry());
+
+        assertTrue(result.isSuccessful(), result.getResponseMessage());
+        assertEquals(2, result.getSubResults().length);
+        assertTrue(result.getResponseDataAsString().contains("\"ItemCount\":\"10\""));
+
+        sampler.setCosmosDBURI("simulated://sampler-test?throttleRate=1");
+        SampleResult throttled = sampler.sample(new Entry());
+
+        assertFalse(throttled.isSuccessful());
+        assertEquals("429", throttled.getResponseCode());
+    }
+
+    @Test
+    public void testSimulatedBackendFailsSamplesOfOtherOperations() {
+        CosmosDBSampler sampler = new CosmosDBSampler();
+        sampler.setCosmosDBURI("simulated://sampler-test");
+        sampler.setOperationType(OperationType.READ.name());
+        sampler.setItemID("item1");
+        sampler.setPartitionKeyValue("pk1");
+
+        sampler.testStarted();
+        try {
+            SampleResult result = sampler.sample(new Entry());
+
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getResponseMessage().contains("only supports queries, not READ"),
+                    result.getResponseMessage());
+        } finally {
+            sampler.testEnded();
+        }
+    }
+}